@@ -16,15 +16,24 @@
 package be.ceau.itunesapi;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
+import be.ceau.itunesapi.http.AsyncConnector;
 import be.ceau.itunesapi.http.Connector;
+import be.ceau.itunesapi.http.Connectors;
+import be.ceau.itunesapi.http.Deadline;
+import be.ceau.itunesapi.http.DeadlineExceededException;
 import be.ceau.itunesapi.http.URLConnector;
 import be.ceau.itunesapi.request.Country;
 import be.ceau.itunesapi.request.feedgenerator.FeedFormat;
@@ -111,18 +120,96 @@ public class FeedGenerator implements Serializable {
 		if (connector == null) {
 			throw new IllegalArgumentException("connector can not be null");
 		}
+		String url = getJsonUrl();
+		try (InputStream in = Connectors.open(connector, url)) {
+			JsonNode json = Feed.READER.readTree(in).get("feed");
+			Feed feed = Feed.READER.treeToValue(json, Feed.class);
+			logger.trace("{} -> {}", url, feed);
+			return feed;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Execute this Feed Generator API request using the provided {@link Connector}
+	 * implementation, aborting when the given {@link Deadline} passes. The
+	 * {@link Deadline} applies to connecting, waiting, retrying and reading the
+	 * response, as far as supported by the {@link Connector}.
+	 * 
+	 * @param connector
+	 *            {@link Connector} implementation, not {@code null}
+	 * @param deadline
+	 *            {@link Deadline} for the request, not {@code null}
+	 * @return parsed {@link Feed} response from iTunes
+	 * @throws IllegalArgumentException
+	 *             if an argument is {@code null}
+	 * @throws RuntimeException
+	 *             wrapping any {@link IOException} thrown performing the
+	 *             request or parsing the response, including
+	 *             {@link DeadlineExceededException}
+	 */
+	public Feed execute(Connector connector, Deadline deadline) {
+		if (deadline == null) {
+			throw new IllegalArgumentException("deadline can not be null");
+		}
+		Deadline previous = deadline.attach();
+		try {
+			return execute(connector);
+		} finally {
+			Deadline.restore(previous);
+		}
+	}
+
+	/**
+	 * Execute this Feed Generator API request asynchronously using the provided
+	 * {@link AsyncConnector} implementation. The response is parsed on the given
+	 * {@link Executor}.
+	 * 
+	 * @param connector
+	 *            {@link AsyncConnector} implementation, not {@code null}
+	 * @param executor
+	 *            {@link Executor} to parse the response on, not {@code null}
+	 * @return {@link CompletableFuture} completing with the parsed {@link Feed}
+	 *         response from iTunes, or completing exceptionally with any
+	 *         {@link IOException} thrown performing the request or parsing the
+	 *         response
+	 * @throws IllegalArgumentException
+	 *             if an argument is {@code null}
+	 */
+	public CompletableFuture<Feed> executeAsync(AsyncConnector connector, Executor executor) {
+		if (connector == null) {
+			throw new IllegalArgumentException("connector can not be null");
+		}
+		if (executor == null) {
+			throw new IllegalArgumentException("executor can not be null");
+		}
+		final String url = getJsonUrl();
+		return connector.getAsync(url).thenApplyAsync(new Function<byte[], Feed>() {
+			@Override
+			public Feed apply(byte[] body) {
+				try {
+					JsonNode json = Feed.READER.readTree(body).get("feed");
+					Feed feed = Feed.READER.treeToValue(json, Feed.class);
+					logger.trace("{} -> {}", url, feed);
+					return feed;
+				} catch (IOException e) {
+					throw new CompletionException(e);
+				}
+			}
+		}, executor);
+	}
+
+	/**
+	 * @return url of the JSON format of the feed matching the current state of
+	 *         this {@link FeedGenerator}, regardless of the chosen format
+	 */
+	private String getJsonUrl() {
 		FeedFormat chosenFormat = getFormat();
 		setFormat(FeedFormat.JSON);
 		String url = getUrl();
 		setFormat(chosenFormat);
-		try {
-			String response = connector.get(url);
-			logger.trace("{} -> {}", url, response);
-			JsonNode json = Feed.READER.readTree(response).get("feed");
-			return Feed.READER.treeToValue(json, Feed.class);
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
+		return url;
 	}
 
 	public Country getCountry() {
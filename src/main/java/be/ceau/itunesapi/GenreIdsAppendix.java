@@ -15,13 +15,23 @@
 */
 package be.ceau.itunesapi;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import be.ceau.itunesapi.http.AsyncConnector;
 import be.ceau.itunesapi.http.Connector;
+import be.ceau.itunesapi.http.Connectors;
+import be.ceau.itunesapi.http.Deadline;
+import be.ceau.itunesapi.http.DeadlineExceededException;
 import be.ceau.itunesapi.http.URLConnector;
 import be.ceau.itunesapi.response.genreidsappendix.GenreIdsResponse;
 
@@ -67,13 +77,80 @@ public class GenreIdsAppendix implements Serializable {
 		if (connector == null) {
 			throw new IllegalArgumentException("connector can not be null");
 		}
-		try {
-			String response = connector.get(API_ENDPOINT);
+		try (InputStream in = Connectors.open(connector, API_ENDPOINT)) {
+			GenreIdsResponse response = GenreIdsResponse.parse(in);
 			logger.trace("{} -> {}", API_ENDPOINT, response);
-			return GenreIdsResponse.parse(response);
+			return response;
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	/**
+	 * Execute this Genre IDs Appendix request using the provided {@link Connector}
+	 * implementation, aborting when the given {@link Deadline} passes. The
+	 * {@link Deadline} applies to connecting, waiting, retrying and reading the
+	 * response, as far as supported by the {@link Connector}.
+	 * 
+	 * @param connector
+	 *            {@link Connector} implementation, not {@code null}
+	 * @param deadline
+	 *            {@link Deadline} for the request, not {@code null}
+	 * @return parsed {@link GenreIdsResponse} response from iTunes
+	 * @throws IllegalArgumentException
+	 *             if an argument is {@code null}
+	 * @throws RuntimeException
+	 *             wrapping any {@link IOException} thrown performing the
+	 *             request or parsing the response, including
+	 *             {@link DeadlineExceededException}
+	 */
+	public GenreIdsResponse execute(Connector connector, Deadline deadline) {
+		if (deadline == null) {
+			throw new IllegalArgumentException("deadline can not be null");
+		}
+		Deadline previous = deadline.attach();
+		try {
+			return execute(connector);
+		} finally {
+			Deadline.restore(previous);
+		}
+	}
+
+	/**
+	 * Execute this Genre IDs Appendix request asynchronously using the provided
+	 * {@link AsyncConnector} implementation. The response is parsed on the given
+	 * {@link Executor}.
+	 * 
+	 * @param connector
+	 *            {@link AsyncConnector} implementation, not {@code null}
+	 * @param executor
+	 *            {@link Executor} to parse the response on, not {@code null}
+	 * @return {@link CompletableFuture} completing with the parsed
+	 *         {@link GenreIdsResponse} response from iTunes, or completing
+	 *         exceptionally with any {@link IOException} thrown performing the
+	 *         request or parsing the response
+	 * @throws IllegalArgumentException
+	 *             if an argument is {@code null}
+	 */
+	public CompletableFuture<GenreIdsResponse> executeAsync(AsyncConnector connector, Executor executor) {
+		if (connector == null) {
+			throw new IllegalArgumentException("connector can not be null");
+		}
+		if (executor == null) {
+			throw new IllegalArgumentException("executor can not be null");
+		}
+		return connector.getAsync(API_ENDPOINT).thenApplyAsync(new Function<byte[], GenreIdsResponse>() {
+			@Override
+			public GenreIdsResponse apply(byte[] body) {
+				try (InputStream in = new ByteArrayInputStream(body)) {
+					GenreIdsResponse response = GenreIdsResponse.parse(in);
+					logger.trace("{} -> {}", API_ENDPOINT, response);
+					return response;
+				} catch (IOException e) {
+					throw new CompletionException(e);
+				}
+			}
+		}, executor);
+	}
+
 }
@@ -16,26 +16,42 @@
 package be.ceau.itunesapi;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import be.ceau.itunesapi.http.AsyncConnector;
 import be.ceau.itunesapi.http.Connector;
+import be.ceau.itunesapi.http.Connectors;
+import be.ceau.itunesapi.http.Deadline;
+import be.ceau.itunesapi.http.DeadlineExceededException;
 import be.ceau.itunesapi.http.URLConnector;
 import be.ceau.itunesapi.request.Country;
 import be.ceau.itunesapi.request.Entity;
+import be.ceau.itunesapi.request.Fingerprint;
+import be.ceau.itunesapi.request.lookup.IdType;
 import be.ceau.itunesapi.request.lookup.Sort;
+import be.ceau.itunesapi.response.Correlation;
 import be.ceau.itunesapi.response.Response;
+import be.ceau.itunesapi.response.Result;
 
 /**
  * Request object for the iTunes Lookup API.
@@ -50,6 +66,17 @@ public class Lookup implements Serializable {
 
 	private static final String API_ENDPOINT = "https://itunes.apple.com/lookup?";
 
+	/**
+	 * Default maximum number of ids in a single request, 200.
+	 */
+	public static final int MAX_IDS = 200;
+
+	/**
+	 * Default maximum length of a request url, 2000 characters, accepted by
+	 * servers and proxies alike.
+	 */
+	public static final int MAX_URL_LENGTH = 2000;
+
 	private static final String ID = "id";
 	private static final String AMG_ARTIST_ID = "amgArtistId";
 	private static final String AMG_ALBUM_ID = "amgAlbumId";
@@ -57,6 +84,19 @@ public class Lookup implements Serializable {
 	private static final String UPC = "upc";
 	private static final String ISBN = "isbn";
 
+	/**
+	 * Orders numeric ids by value, and any ids by length, then lexicographically.
+	 */
+	private static final Comparator<String> ID_ORDER = new Comparator<String>() {
+		@Override
+		public int compare(String a, String b) {
+			if (a.length() != b.length()) {
+				return a.length() < b.length() ? -1 : 1;
+			}
+			return a.compareTo(b);
+		}
+	};
+
 	private final Map<String, Set<String>> map;
 	private Entity entity;
 	private int limit;
@@ -67,7 +107,8 @@ public class Lookup implements Serializable {
 	 * No-arg constructor.
 	 */
 	public Lookup() {
-		Map<String, Set<String>> map = new HashMap<>();
+		// fixed key order, so build() is deterministic
+		Map<String, Set<String>> map = new LinkedHashMap<>();
 		map.put(ID, new HashSet<String>());
 		map.put(AMG_ARTIST_ID, new HashSet<String>());
 		map.put(AMG_ALBUM_ID, new HashSet<String>());
@@ -108,16 +149,118 @@ public class Lookup implements Serializable {
 		if (connector == null) {
 			throw new IllegalArgumentException("connector can not be null");
 		}
-		try {
-			String url = build();
-			String response = connector.get(url);
+		String url = build();
+		try (InputStream in = Connectors.open(connector, url)) {
+			Response response = Response.READER.readValue(in);
 			logger.trace("{} -> {}", url, response);
-			return Response.READER.readValue(response);
+			return response;
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	/**
+	 * Execute this iTunes Lookup API request using the provided {@link Connector}
+	 * implementation, aborting when the given {@link Deadline} passes. The
+	 * {@link Deadline} applies to connecting, waiting, retrying and reading the
+	 * response, as far as supported by the {@link Connector}.
+	 * 
+	 * @param connector
+	 *            {@link Connector} implementation, not {@code null}
+	 * @param deadline
+	 *            {@link Deadline} for the request, not {@code null}
+	 * @return parsed {@link Response} from iTunes
+	 * @throws IllegalArgumentException
+	 *             if an argument is {@code null}
+	 * @throws RuntimeException
+	 *             wrapping any {@link IOException} thrown performing the
+	 *             request or parsing the response, including
+	 *             {@link DeadlineExceededException}
+	 */
+	public Response execute(Connector connector, Deadline deadline) {
+		if (deadline == null) {
+			throw new IllegalArgumentException("deadline can not be null");
+		}
+		Deadline previous = deadline.attach();
+		try {
+			return execute(connector);
+		} finally {
+			Deadline.restore(previous);
+		}
+	}
+
+	/**
+	 * Execute this iTunes Lookup API request using the provided
+	 * {@link Connector} implementation, as many requests as
+	 * {@link #split()} returns, merging their results into a single
+	 * {@link Response}. Any limit applies to each request separately.
+	 * 
+	 * @param connector
+	 *            {@link Connector} instance, not {@code null}
+	 * @return parsed and merged {@link Response} from iTunes
+	 * @throws IllegalArgumentException
+	 *             if argument {@code null}, or if a single id does not fit in
+	 *             a request url
+	 * @throws RuntimeException
+	 *             wrapping any {@link IOException} thrown performing a
+	 *             request or parsing its response
+	 */
+	public Response executeSplit(Connector connector) {
+		if (connector == null) {
+			throw new IllegalArgumentException("connector can not be null");
+		}
+		List<Lookup> parts = split();
+		if (parts.size() == 1) {
+			return parts.get(0).execute(connector);
+		}
+		List<Result> results = new ArrayList<>();
+		for (Lookup part : parts) {
+			results.addAll(part.execute(connector).getResults());
+		}
+		Response response = new Response();
+		response.setResultCount(results.size());
+		response.setResults(results);
+		return response;
+	}
+
+	/**
+	 * Execute this iTunes Lookup API request asynchronously using the
+	 * provided {@link AsyncConnector} implementation. The response is parsed
+	 * on the given {@link Executor}.
+	 * 
+	 * @param connector
+	 *            {@link AsyncConnector} implementation, not {@code null}
+	 * @param executor
+	 *            {@link Executor} to parse the response on, not {@code null}
+	 * @return {@link CompletableFuture} completing with the parsed
+	 *         {@link Response} from iTunes, or completing exceptionally with
+	 *         any {@link IOException} thrown performing the request or parsing
+	 *         the response
+	 * @throws IllegalArgumentException
+	 *             if an argument is {@code null}
+	 */
+	public CompletableFuture<Response> executeAsync(AsyncConnector connector, Executor executor) {
+		if (connector == null) {
+			throw new IllegalArgumentException("connector can not be null");
+		}
+		if (executor == null) {
+			throw new IllegalArgumentException("executor can not be null");
+		}
+		final String url = build();
+		return connector.getAsync(url).thenApplyAsync(new Function<byte[], Response>() {
+			@Override
+			public Response apply(byte[] body) {
+				try {
+					Response response = Response.READER.readValue(body);
+					logger.trace("{} -> {}", url, response);
+					return response;
+				} catch (IOException e) {
+					throw new CompletionException(e);
+				}
+			}
+		}, executor);
+	}
+
 	/**
 	 * @return modifiable {@link Set} containing all ids currently set in this
 	 *         {@link Lookup}, never {@code null}
@@ -154,6 +297,36 @@ public class Lookup implements Serializable {
 		return this;
 	}
 
+	/**
+	 * @param type
+	 *            an {@link IdType}, not {@code null}
+	 * @return modifiable {@link Set} containing all ids of the given type
+	 *         currently set in this {@link Lookup}, never {@code null}
+	 */
+	public Set<String> getIds(IdType type) {
+		return map.get(type.getParameter());
+	}
+
+	/**
+	 * @param type
+	 *            an {@link IdType}, not {@code null}
+	 * @param ids
+	 *            a {@link Collection} of ids of the given type, can be
+	 *            {@code null} or empty
+	 * @return {@code this} instance for method chaining
+	 */
+	public Lookup addIds(IdType type, Collection<String> ids) {
+		if (ids != null) {
+			Set<String> set = map.get(type.getParameter());
+			for (String id : ids) {
+				if (id != null) {
+					set.add(id);
+				}
+			}
+		}
+		return this;
+	}
+
 	/**
 	 * @return modifiable {@link Set} containing all AMG artist ids currently
 	 *         set in this {@link Lookup}, never {@code null}
@@ -403,7 +576,12 @@ public class Lookup implements Serializable {
 	}
 
 	/**
-	 * Create the request url for this {@link Lookup}
+	 * Create the request url for this {@link Lookup}. The url is canonical:
+	 * parameters always appear in the same order, and ids are sorted, so
+	 * {@link Lookup} instances requesting the same items produce the same url,
+	 * whatever the order in which ids were added. The url is not checked
+	 * against any length limit: use {@link #split()} for large numbers of
+	 * ids.
 	 * 
 	 * @return full request url {@link String} matching this {@link Lookup}
 	 */
@@ -414,8 +592,10 @@ public class Lookup implements Serializable {
 				if (sb.length() > 0) {
 					sb.append("&");
 				}
+				List<String> values = new ArrayList<>(entry.getValue());
+				Collections.sort(values, ID_ORDER);
 				try {
-					String q = URLEncoder.encode(String.join(",", entry.getValue()), "UTF-8");
+					String q = URLEncoder.encode(String.join(",", values), "UTF-8");
 					sb.append(entry.getKey()).append("=").append(q);
 				} catch (UnsupportedEncodingException e) {
 					throw new IllegalStateException(e);
@@ -449,4 +629,122 @@ public class Lookup implements Serializable {
 		return API_ENDPOINT + sb.toString();
 	}
 
+	/**
+	 * Correlate the results of a {@link Response} to this {@link Lookup} with
+	 * the iTunes ids they were requested with, and find the ids without any
+	 * result.
+	 * 
+	 * @param response
+	 *            {@link Response} to this {@link Lookup}, not {@code null}
+	 * @return new {@link Correlation}, never {@code null}
+	 * @throws IllegalArgumentException
+	 *             if argument {@code null}
+	 * @see Correlation
+	 */
+	public Correlation correlate(Response response) {
+		return Correlation.of(getIds(), response);
+	}
+
+	/**
+	 * Split this {@link Lookup} into requests of at most {@link #MAX_IDS} ids
+	 * and {@link #MAX_URL_LENGTH} characters.
+	 * 
+	 * @return {@link List} of new {@link Lookup} instances, never empty
+	 * @throws IllegalArgumentException
+	 *             if a single id does not fit in a request url
+	 * @see #split(int, int)
+	 */
+	public List<Lookup> split() {
+		return split(MAX_IDS, MAX_URL_LENGTH);
+	}
+
+	/**
+	 * Split this {@link Lookup} into requests within the given limits,
+	 * together requesting the same items. Ids are distributed in the order of
+	 * {@link #build()}, filling each request before starting the next, so as
+	 * few requests as possible are needed. Each request has the entity,
+	 * limit, sort and country of this {@link Lookup}. A {@link Lookup}
+	 * without ids is returned as a single copy.
+	 * 
+	 * @param maxIds
+	 *            maximum number of ids in a single request, at least 1
+	 * @param maxUrlLength
+	 *            maximum length of a request url created by {@link #build()}
+	 * @return {@link List} of new {@link Lookup} instances, never empty
+	 * @throws IllegalArgumentException
+	 *             if maxIds is less than 1, or if a single id does not fit in
+	 *             a request url of maxUrlLength characters
+	 */
+	public List<Lookup> split(int maxIds, int maxUrlLength) {
+		if (maxIds < 1) {
+			throw new IllegalArgumentException("maxIds must be at least 1");
+		}
+		List<Lookup> parts = new ArrayList<>();
+		// length of the url without ids, counting a separator for every id
+		// parameter so the estimate never falls short
+		int base = copy().build().length();
+		Lookup part = null;
+		int length = 0;
+		int count = 0;
+		for (Entry<String, Set<String>> entry : map.entrySet()) {
+			List<String> values = new ArrayList<>(entry.getValue());
+			Collections.sort(values, ID_ORDER);
+			String key = entry.getKey();
+			for (String value : values) {
+				int encoded = encode(value).length();
+				boolean first = part == null || part.map.get(key).isEmpty();
+				int cost = first ? key.length() + 2 + encoded : 3 + encoded;
+				if (part != null && (count == maxIds || length + cost > maxUrlLength)) {
+					part = null;
+					cost = key.length() + 2 + encoded;
+				}
+				if (part == null) {
+					if (base + cost > maxUrlLength) {
+						throw new IllegalArgumentException(key + " " + value + " does not fit in a url of " + maxUrlLength + " characters");
+					}
+					part = copy();
+					parts.add(part);
+					length = base;
+					count = 0;
+				}
+				part.map.get(key).add(value);
+				length += cost;
+				count++;
+			}
+		}
+		if (parts.isEmpty()) {
+			parts.add(copy());
+		}
+		return parts;
+	}
+
+	/**
+	 * @return new {@link Lookup} with the parameters of this one, but no ids
+	 */
+	private Lookup copy() {
+		return new Lookup()
+				.setEntity(entity)
+				.setLimit(limit)
+				.setSort(sort)
+				.setCountry(country);
+	}
+
+	private static String encode(String value) {
+		try {
+			return URLEncoder.encode(value, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return compact 64-bit fingerprint of the url created by
+	 *         {@link #build()}, equal for {@link Lookup} instances requesting
+	 *         the same items
+	 * @see Fingerprint#of(String)
+	 */
+	public long fingerprint() {
+		return Fingerprint.of(build());
+	}
+
 }
@@ -16,18 +16,28 @@
 package be.ceau.itunesapi;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import be.ceau.itunesapi.http.AsyncConnector;
 import be.ceau.itunesapi.http.Connector;
+import be.ceau.itunesapi.http.Connectors;
+import be.ceau.itunesapi.http.Deadline;
+import be.ceau.itunesapi.http.DeadlineExceededException;
 import be.ceau.itunesapi.http.URLConnector;
 import be.ceau.itunesapi.request.Country;
 import be.ceau.itunesapi.request.Entity;
+import be.ceau.itunesapi.request.Fingerprint;
 import be.ceau.itunesapi.request.search.Attribute;
 import be.ceau.itunesapi.request.search.Lang;
 import be.ceau.itunesapi.request.search.Media;
@@ -107,16 +117,88 @@ public class Search implements Serializable {
 		if (connector == null) {
 			throw new IllegalArgumentException("connector can not be null");
 		}
-		try {
-			String url = build();
-			String response = connector.get(url);
+		String url = build();
+		try (InputStream in = Connectors.open(connector, url)) {
+			Response response = Response.READER.readValue(in);
 			logger.trace("{} -> {}", url, response);
-			return Response.READER.readValue(response);
+			return response;
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	/**
+	 * Execute this iTunes Search API request using the provided {@link Connector}
+	 * implementation, aborting when the given {@link Deadline} passes. The
+	 * {@link Deadline} applies to connecting, waiting, retrying and reading the
+	 * response, as far as supported by the {@link Connector}.
+	 * 
+	 * @param connector
+	 *            {@link Connector} implementation, not {@code null}
+	 * @param deadline
+	 *            {@link Deadline} for the request, not {@code null}
+	 * @return parsed {@link Response} from iTunes
+	 * @throws IllegalArgumentException
+	 *             if an argument is {@code null}
+	 * @throws IllegalStateException
+	 *             as thrown by {@link #build()}
+	 * @throws RuntimeException
+	 *             wrapping any {@link IOException} thrown performing the
+	 *             request or parsing the response, including
+	 *             {@link DeadlineExceededException}
+	 */
+	public Response execute(Connector connector, Deadline deadline) {
+		if (deadline == null) {
+			throw new IllegalArgumentException("deadline can not be null");
+		}
+		Deadline previous = deadline.attach();
+		try {
+			return execute(connector);
+		} finally {
+			Deadline.restore(previous);
+		}
+	}
+
+	/**
+	 * Execute this iTunes Search API request asynchronously using the
+	 * provided {@link AsyncConnector} implementation. The response is parsed
+	 * on the given {@link Executor}.
+	 * 
+	 * @param connector
+	 *            {@link AsyncConnector} implementation, not {@code null}
+	 * @param executor
+	 *            {@link Executor} to parse the response on, not {@code null}
+	 * @return {@link CompletableFuture} completing with the parsed
+	 *         {@link Response} from iTunes, or completing exceptionally with
+	 *         any {@link IOException} thrown performing the request or parsing
+	 *         the response
+	 * @throws IllegalArgumentException
+	 *             if an argument is {@code null}
+	 * @throws IllegalStateException
+	 *             as thrown by {@link #build()}
+	 */
+	public CompletableFuture<Response> executeAsync(AsyncConnector connector, Executor executor) {
+		if (connector == null) {
+			throw new IllegalArgumentException("connector can not be null");
+		}
+		if (executor == null) {
+			throw new IllegalArgumentException("executor can not be null");
+		}
+		final String url = build();
+		return connector.getAsync(url).thenApplyAsync(new Function<byte[], Response>() {
+			@Override
+			public Response apply(byte[] body) {
+				try {
+					Response response = Response.READER.readValue(body);
+					logger.trace("{} -> {}", url, response);
+					return response;
+				} catch (IOException e) {
+					throw new CompletionException(e);
+				}
+			}
+		}, executor);
+	}
+
 	/**
 	 * @return {@link String} instance, or {@code null}
 	 */
@@ -301,6 +383,16 @@ public class Search implements Serializable {
 				.append(versionParam()).append(explicitParam()).toString();
 	}
 
+	/**
+	 * @return compact 64-bit fingerprint of the url created by
+	 *         {@link #build()}, equal for {@link Search} instances with the
+	 *         same parameters
+	 * @see Fingerprint#of(String)
+	 */
+	public long fingerprint() {
+		return Fingerprint.of(build());
+	}
+
 	/**
 	 * @return "term=xxxx"
 	 * @throws IllegalStateException
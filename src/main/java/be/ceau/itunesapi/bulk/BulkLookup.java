@@ -0,0 +1,496 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.bulk;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import be.ceau.itunesapi.Lookup;
+import be.ceau.itunesapi.http.Connector;
+import be.ceau.itunesapi.http.RateLimitingConnector;
+import be.ceau.itunesapi.request.Country;
+import be.ceau.itunesapi.request.Fingerprint;
+import be.ceau.itunesapi.request.lookup.IdType;
+import be.ceau.itunesapi.response.Correlation;
+import be.ceau.itunesapi.response.Response;
+import be.ceau.itunesapi.response.Result;
+
+/**
+ * Engine looking up any number of items, read from an {@link Iterator} of
+ * ids. Ids are grouped in batches, each looked up with as few requests as
+ * {@link Lookup#split()} allows, typically one, and batches are executed
+ * concurrently on an {@link Executor}. Results are passed to a {@link ResultHandler} as soon as
+ * their batch completes, in no particular order.
+ * <p>
+ * Ids are read only as fast as batches complete: at most
+ * {@link #getParallelism()} batches are in flight at any time, so memory use
+ * does not depend on the number of ids. The pace of the requests themselves
+ * is up to the {@link Connector}, typically a {@link RateLimitingConnector}
+ * shared with the rest of the application.
+ * <p>
+ * When looking up iTunes ids, the ids of each batch that returned no result
+ * are reported to the {@link ResultHandler}, to retry or record them. A batch
+ * that fails is reported to the {@link ResultHandler}, and the run
+ * continues. An exception thrown by the {@link ResultHandler} aborts the run.
+ * To resume an aborted job where it stopped, execute it with a
+ * {@link Checkpoint}.
+ * <p>
+ * Instances are threadsafe, and can execute several runs at once.
+ */
+public class BulkLookup {
+
+	private static final Logger logger = LoggerFactory.getLogger(BulkLookup.class);
+
+	/**
+	 * Default batch size of {@link Lookup#MAX_IDS} ids.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = Lookup.MAX_IDS;
+
+	/**
+	 * Default of 4 batches in flight.
+	 */
+	public static final int DEFAULT_PARALLELISM = 4;
+
+	private final Connector connector;
+	private final Executor executor;
+
+	private final AtomicLong batches = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong results = new AtomicLong();
+	private final AtomicLong missing = new AtomicLong();
+	private final AtomicLong skipped = new AtomicLong();
+
+	private volatile int batchSize = DEFAULT_BATCH_SIZE;
+	private volatile int parallelism = DEFAULT_PARALLELISM;
+	private volatile Country country;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param connector
+	 *            {@link Connector} to perform requests with, not {@code null}
+	 * @param executor
+	 *            {@link Executor} to execute batches on, with at least
+	 *            {@link #getParallelism()} threads to use all of it, not
+	 *            {@code null}
+	 * @throws IllegalArgumentException
+	 *             if any argument {@code null}
+	 */
+	public BulkLookup(Connector connector, Executor executor) {
+		if (connector == null) {
+			throw new IllegalArgumentException("connector can not be null");
+		}
+		if (executor == null) {
+			throw new IllegalArgumentException("executor can not be null");
+		}
+		this.connector = connector;
+		this.executor = executor;
+	}
+
+	/**
+	 * Look up all given ids, returning when every batch has completed.
+	 * 
+	 * @param ids
+	 *            {@link Iterable} of ids, not {@code null}, {@code null} or
+	 *            empty ids are skipped
+	 * @param type
+	 *            {@link IdType} of all ids, not {@code null}
+	 * @param handler
+	 *            {@link ResultHandler} receiving the results, not {@code null}
+	 * @return number of results passed to handler
+	 * @throws IOException
+	 *             thrown by handler, aborting the run
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a batch to complete, after
+	 *             all batches in flight completed
+	 * @throws IllegalArgumentException
+	 *             if any argument {@code null}
+	 * @see #execute(Iterator, IdType, ResultHandler)
+	 */
+	public long execute(Iterable<String> ids, IdType type, ResultHandler handler) throws IOException, InterruptedException {
+		if (ids == null) {
+			throw new IllegalArgumentException("ids can not be null");
+		}
+		return execute(ids.iterator(), type, handler);
+	}
+
+	/**
+	 * Look up all ids read from the given {@link Iterator}, returning when
+	 * every batch has completed. The {@link Iterator} is only used from the
+	 * calling thread.
+	 * 
+	 * @param ids
+	 *            {@link Iterator} of ids, not {@code null}, {@code null} or
+	 *            empty ids are skipped
+	 * @param type
+	 *            {@link IdType} of all ids, not {@code null}
+	 * @param handler
+	 *            {@link ResultHandler} receiving the results, not {@code null}
+	 * @return number of results passed to handler
+	 * @throws IOException
+	 *             thrown by handler, aborting the run
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a batch to complete, after
+	 *             all batches in flight completed
+	 * @throws IllegalArgumentException
+	 *             if any argument {@code null}
+	 */
+	public long execute(Iterator<String> ids, IdType type, ResultHandler handler) throws IOException, InterruptedException {
+		return run(ids, type, handler, null);
+	}
+
+	/**
+	 * Look up all ids read from the given {@link Iterator}, skipping the
+	 * batches the given {@link Checkpoint} holds as completed, and recording
+	 * each batch completed in this run. A job interrupted in any way can so be
+	 * resumed by executing it again, with the same ids in the same order.
+	 * Failed batches are not recorded, and are looked up again when resumed.
+	 * A handler that is {@link Flushable} is flushed before each batch is
+	 * recorded, so the results of recorded batches survive a crash.
+	 * 
+	 * @param ids
+	 *            {@link Iterator} of ids, not {@code null}, {@code null} or
+	 *            empty ids are skipped
+	 * @param type
+	 *            {@link IdType} of all ids, not {@code null}
+	 * @param handler
+	 *            {@link ResultHandler} receiving the results, not {@code null}
+	 * @param checkpoint
+	 *            {@link Checkpoint} of the job, not {@code null}
+	 * @return number of results passed to handler in this run
+	 * @throws IOException
+	 *             thrown by handler or checkpoint, aborting the run
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a batch to complete, after
+	 *             all batches in flight completed
+	 * @throws IllegalStateException
+	 *             if checkpoint was written with another batch size, or for
+	 *             other ids, another {@link IdType} or another
+	 *             {@link Country}
+	 * @throws IllegalArgumentException
+	 *             if any argument {@code null}
+	 */
+	public long execute(Iterator<String> ids, IdType type, ResultHandler handler, Checkpoint checkpoint) throws IOException, InterruptedException {
+		if (checkpoint == null) {
+			throw new IllegalArgumentException("checkpoint can not be null");
+		}
+		return run(ids, type, handler, checkpoint);
+	}
+
+	private long run(Iterator<String> ids, IdType type, ResultHandler handler, Checkpoint checkpoint) throws IOException, InterruptedException {
+		if (ids == null) {
+			throw new IllegalArgumentException("ids can not be null");
+		}
+		if (type == null) {
+			throw new IllegalArgumentException("type can not be null");
+		}
+		if (handler == null) {
+			throw new IllegalArgumentException("handler can not be null");
+		}
+		int size = batchSize;
+		Run run = new Run(type, country, size, handler, checkpoint, parallelism);
+		try {
+			List<String> batch = new ArrayList<>(size);
+			long number = 0L;
+			while (ids.hasNext() && !run.isAborted()) {
+				String id = ids.next();
+				if (id == null || id.isEmpty()) {
+					continue;
+				}
+				batch.add(id);
+				if (batch.size() == size) {
+					run.submit(batch, number++);
+					batch = new ArrayList<>(size);
+				}
+			}
+			if (!batch.isEmpty() && !run.isAborted()) {
+				run.submit(batch, number);
+			}
+		} finally {
+			// the handler must not be used once this method returns
+			run.await();
+		}
+		return run.finish();
+	}
+
+	/**
+	 * @return maximum number of ids in a single request
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Default value is {@link #DEFAULT_BATCH_SIZE}. Applies to runs started
+	 * after the change.
+	 * 
+	 * @param batchSize
+	 *            maximum number of ids in a single request, at least 1
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if batchSize is less than 1
+	 */
+	public BulkLookup setBatchSize(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batchSize must be at least 1");
+		}
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * @return maximum number of batches in flight in a single run
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Default value is {@link #DEFAULT_PARALLELISM}. Applies to runs started
+	 * after the change.
+	 * 
+	 * @param parallelism
+	 *            maximum number of batches in flight in a single run, at
+	 *            least 1
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if parallelism is less than 1
+	 */
+	public BulkLookup setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * @return {@link Country} of the store to look up items in, or
+	 *         {@code null}
+	 */
+	public Country getCountry() {
+		return country;
+	}
+
+	/**
+	 * Default value is {@code null}, for the iTunes default store. Applies to
+	 * runs started after the change.
+	 * 
+	 * @param country
+	 *            {@link Country} of the store to look up items in, or
+	 *            {@code null}
+	 * @return {@code this} instance for method chaining
+	 */
+	public BulkLookup setCountry(Country country) {
+		this.country = country;
+		return this;
+	}
+
+	/**
+	 * @return number of batches completed, including failed ones
+	 */
+	public long getBatches() {
+		return batches.get();
+	}
+
+	/**
+	 * @return number of batches that failed
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+
+	/**
+	 * @return number of results passed to handlers
+	 */
+	public long getResults() {
+		return results.get();
+	}
+
+	/**
+	 * @return number of iTunes ids reported to handlers as missing
+	 */
+	public long getMissing() {
+		return missing.get();
+	}
+
+	/**
+	 * @return number of batches skipped because a {@link Checkpoint} held
+	 *         them as completed
+	 */
+	public long getSkipped() {
+		return skipped.get();
+	}
+
+	/**
+	 * State of a single execution.
+	 */
+	private final class Run {
+
+		private final IdType type;
+		private final Country country;
+		private final int batchSize;
+		private final ResultHandler handler;
+		private final Checkpoint checkpoint;
+		private final int parallelism;
+		private final Semaphore permits;
+
+		// guards handler, delivered and abort
+		private final Object lock = new Object();
+		private long delivered;
+		private volatile Exception abort;
+
+		private Run(IdType type, Country country, int batchSize, ResultHandler handler, Checkpoint checkpoint, int parallelism) {
+			this.type = type;
+			this.country = country;
+			this.batchSize = batchSize;
+			this.handler = handler;
+			this.checkpoint = checkpoint;
+			this.parallelism = parallelism;
+			this.permits = new Semaphore(parallelism);
+		}
+
+		private void submit(List<String> batch, final long number) throws IOException, InterruptedException {
+			if (checkpoint != null && number == 0L) {
+				checkpoint.begin(batchSize, job(batch));
+			}
+			if (checkpoint != null && checkpoint.isCompleted(number)) {
+				skipped.incrementAndGet();
+				return;
+			}
+			final List<String> ids = Collections.unmodifiableList(batch);
+			permits.acquire();
+			try {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							process(ids, number);
+						} finally {
+							permits.release();
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				permits.release();
+				throw e;
+			}
+		}
+
+		private void process(List<String> ids, long number) {
+			Response response;
+			try {
+				response = new Lookup()
+						.addIds(type, ids)
+						.setCountry(country)
+						.executeSplit(connector)
+						.freeze();
+			} catch (RuntimeException e) {
+				batches.incrementAndGet();
+				failures.incrementAndGet();
+				logger.debug("batch of {} ids failed", ids.size(), e);
+				synchronized (lock) {
+					try {
+						if (abort == null) {
+							handler.onFailure(ids, e);
+						}
+					} catch (RuntimeException failure) {
+						abort = failure;
+					}
+				}
+				return;
+			}
+			batches.incrementAndGet();
+			synchronized (lock) {
+				try {
+					for (Result result : response.getResults()) {
+						if (abort != null) {
+							return;
+						}
+						handler.onResult(result);
+						delivered++;
+						results.incrementAndGet();
+					}
+					if (type == IdType.ID && abort == null) {
+						List<String> absent = Correlation.of(ids, response).getMissing();
+						if (!absent.isEmpty()) {
+							missing.addAndGet(absent.size());
+							handler.onMissing(absent);
+						}
+					}
+					if (checkpoint != null && abort == null) {
+						// results must be stored before the batch is skipped on resume
+						if (handler instanceof Flushable) {
+							((Flushable) handler).flush();
+						}
+						checkpoint.complete(number);
+					}
+				} catch (IOException | RuntimeException e) {
+					abort = e;
+				}
+			}
+		}
+
+		/**
+		 * @return fingerprint of the id type, country and first batch of this
+		 *         run
+		 */
+		private long job(List<String> first) {
+			StringBuilder sb = new StringBuilder(type.getParameter()).append('&');
+			if (country != null) {
+				sb.append(country.getIso());
+			}
+			for (String id : first) {
+				sb.append('&').append(id);
+			}
+			return Fingerprint.of(sb.toString());
+		}
+
+		private boolean isAborted() {
+			return abort != null;
+		}
+
+		private void await() {
+			permits.acquireUninterruptibly(parallelism);
+			permits.release(parallelism);
+		}
+
+		private long finish() throws IOException {
+			synchronized (lock) {
+				if (abort instanceof IOException) {
+					throw (IOException) abort;
+				}
+				if (abort != null) {
+					throw (RuntimeException) abort;
+				}
+				return delivered;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,227 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.bulk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Journal of the completed batches of a bulk job, kept in a local file, so a
+ * restarted job can skip the batches completed before.
+ * <p>
+ * Batches are numbered from 0 in the order their ids are read, so a job can
+ * only be resumed with the same ids in the same order, and the same batch
+ * size. The file starts with a 24 byte header holding a marker, the batch
+ * size, a fingerprint of the job and the number of batches up to which all
+ * are completed, followed by the 8 byte number of each batch completed after
+ * those. A journal is refused for a job with another batch size or
+ * fingerprint. {@link BulkLookup} fingerprints the id type, the country and
+ * the ids of the first batch, so a change to later ids goes unnoticed. Each completion is
+ * written to disk before {@link #complete(long)} returns. When the journal is
+ * opened again, it is compacted into a new header, so it stays small however
+ * many batches a job has.
+ * <p>
+ * A batch is completed after its results were handled, and flushed if the
+ * handler is {@link java.io.Flushable}, so a crash in between means the batch
+ * is looked up again when the job resumes. Delete
+ * the file to start a job from scratch.
+ * <p>
+ * Instances are threadsafe.
+ */
+public class Checkpoint implements Closeable {
+
+	private static final int MARKER = 0x69544a32;
+
+	private static final int HEADER = 24;
+
+	private final Path file;
+
+	private int batchSize;
+	private long job;
+	private long watermark;
+	private final Set<Long> completed = new HashSet<>();
+	private FileChannel channel;
+
+	/**
+	 * Constructor, reading the journal in the given file if it exists.
+	 * 
+	 * @param file
+	 *            {@link Path} of the journal file, not {@code null}
+	 * @throws IOException
+	 *             if the file exists but can not be read, or is not a journal
+	 * @throws IllegalArgumentException
+	 *             if argument {@code null}
+	 */
+	public Checkpoint(Path file) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("file can not be null");
+		}
+		this.file = file;
+		if (Files.exists(file)) {
+			ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+			if (buffer.remaining() < HEADER || buffer.getInt() != MARKER) {
+				throw new IOException(file + " is not a checkpoint journal");
+			}
+			batchSize = buffer.getInt();
+			job = buffer.getLong();
+			watermark = buffer.getLong();
+			// a number only partially written before a crash is ignored
+			while (buffer.remaining() >= 8) {
+				completed.add(buffer.getLong());
+			}
+			while (completed.remove(watermark)) {
+				watermark++;
+			}
+		}
+	}
+
+	/**
+	 * Prepare the journal for a job, compacting it. A new journal records the
+	 * given batch size and fingerprint.
+	 * 
+	 * @param batchSize
+	 *            number of ids in a batch of the job, at least 1
+	 * @param job
+	 *            fingerprint identifying the job
+	 * @throws IOException
+	 *             if the journal can not be written
+	 * @throws IllegalStateException
+	 *             if the journal was written for another batch size or job
+	 * @throws IllegalArgumentException
+	 *             if batchSize is less than 1
+	 */
+	public synchronized void begin(int batchSize, long job) throws IOException {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batchSize must be at least 1");
+		}
+		if (this.batchSize != 0 && this.batchSize != batchSize) {
+			throw new IllegalStateException(file + " was written for batches of " + this.batchSize + " ids, not " + batchSize);
+		}
+		if (this.batchSize != 0 && this.job != job) {
+			throw new IllegalStateException(file + " was written for another job");
+		}
+		this.batchSize = batchSize;
+		this.job = job;
+		if (channel != null) {
+			channel.close();
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER + 8 * completed.size());
+		buffer.putInt(MARKER).putInt(batchSize).putLong(job).putLong(watermark);
+		for (Long batch : completed) {
+			buffer.putLong(batch);
+		}
+		buffer.flip();
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			while (buffer.hasRemaining()) {
+				out.write(buffer);
+			}
+			out.force(true);
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * @param batch
+	 *            number of a batch, from 0
+	 * @return {@code true} if the given batch was completed
+	 */
+	public synchronized boolean isCompleted(long batch) {
+		return batch < watermark || completed.contains(batch);
+	}
+
+	/**
+	 * Record the given batch as completed, writing it to disk.
+	 * 
+	 * @param batch
+	 *            number of a batch, from 0
+	 * @throws IOException
+	 *             if the journal can not be written
+	 * @throws IllegalStateException
+	 *             if {@link #begin(int, long)} was not called
+	 */
+	public synchronized void complete(long batch) throws IOException {
+		if (channel == null) {
+			throw new IllegalStateException("begin must be called first");
+		}
+		if (isCompleted(batch)) {
+			return;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(8).putLong(0, batch);
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		channel.force(false);
+		completed.add(batch);
+		while (completed.remove(watermark)) {
+			watermark++;
+		}
+	}
+
+	/**
+	 * @return number of batches completed
+	 */
+	public synchronized long getCompleted() {
+		return watermark + completed.size();
+	}
+
+	/**
+	 * @return number of batches up to which all are completed, the first
+	 *         batch a resumed job requests
+	 */
+	public synchronized long getWatermark() {
+		return watermark;
+	}
+
+	/**
+	 * @return number of ids in a batch of the job, or 0 if not known yet
+	 */
+	public synchronized int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @return fingerprint of the job, or 0 if not known yet
+	 */
+	public synchronized long getJob() {
+		return job;
+	}
+
+	/**
+	 * @return {@link Path} of the journal file
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+			channel = null;
+		}
+	}
+
+}
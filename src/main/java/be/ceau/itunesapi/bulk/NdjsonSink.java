@@ -0,0 +1,425 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.bulk;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import be.ceau.itunesapi.response.Result;
+
+/**
+ * {@link ResultHandler} writing each {@link Result} as a single line of JSON
+ * to an {@link OutputStream}, in the newline delimited JSON format. Absent and
+ * empty fields are left out.
+ * <p>
+ * Results are written as they arrive, through a buffer of
+ * {@link #DEFAULT_BUFFER_SIZE} bytes, so memory use does not depend on the
+ * number of results. Output is optionally compressed with gzip, as one gzip
+ * member per {@link #flush()}, so everything flushed can be read back. Missing
+ * ids and failed batches are counted and logged, but not written.
+ * <p>
+ * When writing to a file, {@link #flush()} also forces the written results to
+ * the storage device. A file left behind by a crash is repaired when opened
+ * again, by cutting off the incomplete line or gzip member at its end: only
+ * the results written since the last {@link #flush()} are lost. Passed as
+ * handler to {@link BulkLookup} with a {@link Checkpoint}, results are
+ * flushed before their batch is recorded as completed. A crash in between
+ * leaves results of a batch that is performed again when resuming, so a
+ * resumed job can write some results twice.
+ * <p>
+ * Instances are threadsafe. Call {@link #close()} to write buffered results
+ * and finish compression.
+ */
+public class NdjsonSink implements ResultHandler, Flushable, Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(NdjsonSink.class);
+
+	/**
+	 * Default output buffer of 64 KiB.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private static final ObjectWriter WRITER = new ObjectMapper()
+			.setSerializationInclusion(JsonInclude.Include.NON_EMPTY)
+			.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+			.writerFor(Result.class);
+
+	private final JsonGenerator generator;
+	private final FileChannel channel;
+
+	private final AtomicLong results = new AtomicLong();
+	private final AtomicLong missing = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+
+	/**
+	 * Constructor for uncompressed output.
+	 * 
+	 * @param out
+	 *            {@link OutputStream} to write to, not {@code null}, closed
+	 *            by {@link #close()}
+	 * @throws IOException
+	 *             if the output can not be prepared
+	 * @throws IllegalArgumentException
+	 *             if argument {@code null}
+	 */
+	public NdjsonSink(OutputStream out) throws IOException {
+		this(out, false);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param out
+	 *            {@link OutputStream} to write to, not {@code null}, closed
+	 *            by {@link #close()}
+	 * @param gzip
+	 *            {@code true} to compress the output with gzip
+	 * @throws IOException
+	 *             if the output can not be prepared
+	 * @throws IllegalArgumentException
+	 *             if out {@code null}
+	 */
+	public NdjsonSink(OutputStream out, boolean gzip) throws IOException {
+		this(out, gzip, null);
+	}
+
+	/**
+	 * Constructor writing to a file. An existing file is appended to, so a
+	 * job resumed with a {@link Checkpoint} adds to the output of earlier
+	 * runs. Consecutive gzip members in a file read as one stream. An
+	 * incomplete line or gzip member at the end of the file is removed
+	 * first.
+	 * 
+	 * @param file
+	 *            {@link Path} of the file to write to, not {@code null},
+	 *            created if missing
+	 * @param gzip
+	 *            {@code true} to compress the output with gzip
+	 * @throws IOException
+	 *             if the file can not be opened
+	 * @throws IllegalArgumentException
+	 *             if file {@code null}
+	 */
+	public NdjsonSink(Path file, boolean gzip) throws IOException {
+		this(open(file, gzip), gzip);
+	}
+
+	private NdjsonSink(FileChannel channel, boolean gzip) throws IOException {
+		this(Channels.newOutputStream(channel), gzip, channel);
+	}
+
+	private NdjsonSink(OutputStream out, boolean gzip, FileChannel channel) throws IOException {
+		if (out == null) {
+			throw new IllegalArgumentException("out can not be null");
+		}
+		OutputStream stream = gzip ? new Members(out) : out;
+		this.generator = WRITER.getFactory().createGenerator(new BufferedOutputStream(stream, DEFAULT_BUFFER_SIZE));
+		// each value ends its own line instead
+		this.generator.setRootValueSeparator(null);
+		this.channel = channel;
+	}
+
+	/**
+	 * Open the given file for appending, after removing anything a crash left
+	 * incomplete at its end.
+	 */
+	private static FileChannel open(Path file, boolean gzip) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("file can not be null");
+		}
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			long size = channel.size();
+			long length = gzip ? completeMembers(channel) : completeLines(channel);
+			if (length < size) {
+				logger.warn("removing {} incomplete bytes at the end of {}", size - length, file);
+				channel.truncate(length);
+				channel.force(false);
+			}
+			channel.position(length);
+			return channel;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return length of the given file up to and including its last newline
+	 */
+	private static long completeLines(FileChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		long end = channel.size();
+		while (end > 0) {
+			long start = Math.max(0, end - buffer.capacity());
+			buffer.clear().limit((int) (end - start));
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, start + buffer.position()) < 0) {
+					throw new IOException("file shrunk while reading");
+				}
+			}
+			for (int i = buffer.limit() - 1; i >= 0; i--) {
+				if (buffer.get(i) == '\n') {
+					return start + i + 1;
+				}
+			}
+			end = start;
+		}
+		return 0L;
+	}
+
+	/**
+	 * @return length of the leading complete gzip members of the given file
+	 */
+	private static long completeMembers(FileChannel channel) throws IOException {
+		long size = channel.size();
+		byte[] input = new byte[DEFAULT_BUFFER_SIZE];
+		byte[] output = new byte[DEFAULT_BUFFER_SIZE];
+		Inflater inflater = new Inflater(true);
+		CRC32 crc = new CRC32();
+		try {
+			long end = 0L;
+			while (end < size) {
+				long position = skipHeader(channel, end);
+				if (position < 0) {
+					return end;
+				}
+				inflater.reset();
+				crc.reset();
+				while (!inflater.finished()) {
+					if (inflater.needsInput()) {
+						int read = channel.read(ByteBuffer.wrap(input), position);
+						if (read <= 0) {
+							return end;
+						}
+						inflater.setInput(input, 0, read);
+						position += read;
+					}
+					try {
+						int inflated = inflater.inflate(output);
+						crc.update(output, 0, inflated);
+					} catch (DataFormatException e) {
+						return end;
+					}
+					if (inflater.needsDictionary()) {
+						return end;
+					}
+				}
+				position -= inflater.getRemaining();
+				ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+				if (channel.read(trailer, position) < 8
+						|| (trailer.getInt(0) & 0xffffffffL) != crc.getValue()
+						|| (trailer.getInt(4) & 0xffffffffL) != (inflater.getBytesWritten() & 0xffffffffL)) {
+					return end;
+				}
+				end = position + 8;
+			}
+			return end;
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * @return position after the gzip member header at the given position,
+	 *         or -1 if there is no complete header
+	 */
+	private static long skipHeader(FileChannel channel, long position) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(10).order(ByteOrder.LITTLE_ENDIAN);
+		if (channel.read(header, position) < 10 || header.getShort(0) != (short) 0x8b1f || header.get(2) != 8) {
+			return -1;
+		}
+		int flags = header.get(3);
+		position += 10;
+		if ((flags & 4) != 0) {
+			ByteBuffer extra = ByteBuffer.allocate(2).order(ByteOrder.LITTLE_ENDIAN);
+			if (channel.read(extra, position) < 2) {
+				return -1;
+			}
+			position += 2 + (extra.getShort(0) & 0xffff);
+		}
+		for (int flag = 8; flag <= 16; flag += 8) {
+			if ((flags & flag) != 0) {
+				// zero terminated file name or comment
+				ByteBuffer one = ByteBuffer.allocate(1);
+				do {
+					one.clear();
+					if (channel.read(one, position++) < 1) {
+						return -1;
+					}
+				} while (one.get(0) != 0);
+			}
+		}
+		if ((flags & 2) != 0) {
+			position += 2;
+		}
+		return position;
+	}
+
+	@Override
+	public synchronized void onResult(Result result) throws IOException {
+		WRITER.writeValue(generator, result);
+		generator.writeRaw('\n');
+		results.incrementAndGet();
+	}
+
+	@Override
+	public void onMissing(List<String> ids) {
+		missing.addAndGet(ids.size());
+		logger.debug("no results for {}", ids);
+	}
+
+	@Override
+	public void onFailure(List<String> ids, Exception cause) {
+		failures.incrementAndGet();
+		logger.warn("lookup of {} ids failed", ids.size(), cause);
+	}
+
+	/**
+	 * Write buffered results to the underlying {@link OutputStream}, ending
+	 * the current gzip member if compressing. When writing to a file, also
+	 * force the file to the storage device.
+	 */
+	@Override
+	public synchronized void flush() throws IOException {
+		generator.flush();
+		if (channel != null) {
+			channel.force(false);
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (generator.isClosed()) {
+			return;
+		}
+		try {
+			flush();
+		} finally {
+			generator.close();
+		}
+	}
+
+	/**
+	 * @return number of results written
+	 */
+	public long getResults() {
+		return results.get();
+	}
+
+	/**
+	 * @return number of ids reported without result
+	 */
+	public long getMissing() {
+		return missing.get();
+	}
+
+	/**
+	 * @return number of batches reported as failed
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+
+	/**
+	 * {@link OutputStream} compressing to a new gzip member after each
+	 * {@link #flush()}.
+	 */
+	private static final class Members extends OutputStream {
+
+		private final OutputStream out;
+
+		// closing a member must not close the underlying stream
+		private final OutputStream shield = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+			}
+		};
+
+		private GZIPOutputStream member;
+
+		private Members(OutputStream out) {
+			this.out = out;
+		}
+
+		private GZIPOutputStream member() throws IOException {
+			if (member == null) {
+				member = new GZIPOutputStream(shield, DEFAULT_BUFFER_SIZE);
+			}
+			return member;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			member().write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			member().write(b, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (member != null) {
+				member.close();
+				member = null;
+			}
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+			} finally {
+				out.close();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,74 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.bulk;
+
+import java.io.IOException;
+import java.util.List;
+
+import be.ceau.itunesapi.response.Correlation;
+import be.ceau.itunesapi.response.Result;
+
+/**
+ * Receiver of the outcome of a {@link BulkLookup}. Methods are called from
+ * worker threads, but never concurrently for the same run, so implementations
+ * need not be threadsafe.
+ * <p>
+ * When a run records completed batches in a {@link Checkpoint}, an
+ * implementation buffering its output should also implement
+ * {@link java.io.Flushable}, and make everything received so far durable in
+ * {@link java.io.Flushable#flush()}. It is called before each batch is
+ * recorded as completed.
+ */
+public interface ResultHandler {
+
+	/**
+	 * Called for each {@link Result}, as soon as its batch completes.
+	 * 
+	 * @param result
+	 *            frozen {@link Result}, not {@code null}
+	 * @throws IOException
+	 *             to abort the run, for example when results can no longer be
+	 *             stored
+	 */
+	void onResult(Result result) throws IOException;
+
+	/**
+	 * Called for each batch of iTunes ids with ids that returned no result, as
+	 * found by {@link Correlation}, after its results were passed to
+	 * {@link #onResult(Result)}. Not called for other kinds of ids, as results
+	 * do not include them.
+	 * 
+	 * @param ids
+	 *            unmodifiable {@link List} of ids without result, not
+	 *            {@code null} or empty
+	 * @throws IOException
+	 *             to abort the run
+	 */
+	void onMissing(List<String> ids) throws IOException;
+
+	/**
+	 * Called for each batch that could not be looked up. The run continues
+	 * with the next batches.
+	 * 
+	 * @param ids
+	 *            unmodifiable {@link List} of the ids in the failed batch, not
+	 *            {@code null}
+	 * @param cause
+	 *            {@link Exception} that made the batch fail, not {@code null}
+	 */
+	void onFailure(List<String> ids, Exception cause);
+
+}
@@ -0,0 +1,181 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import be.ceau.itunesapi.request.Fingerprint;
+
+/**
+ * Static helper turning links into cache keys.
+ */
+final class CacheKey {
+
+	private static final Set<String> LOOKUP_KEYS = new HashSet<>(Arrays.asList("id", "amgArtistId", "amgAlbumId", "amgVideoId", "upc", "isbn"));
+
+	private CacheKey() {
+	}
+
+	/**
+	 * Canonical form of the given link. Scheme and host are lowercased and
+	 * query parameters are sorted by name, keeping the relative order of
+	 * parameters sharing a name. Links requesting the same resource with
+	 * parameters in a different order map to the same key.
+	 * 
+	 * @param link
+	 *            a full link, including scheme, not {@code null}
+	 * @return canonical form of link, never {@code null}
+	 */
+	static String of(String link) {
+		int fragment = link.indexOf('#');
+		if (fragment >= 0) {
+			link = link.substring(0, fragment);
+		}
+		int query = link.indexOf('?');
+		String base = query < 0 ? link : link.substring(0, query);
+		int authority = base.indexOf("://");
+		if (authority > 0) {
+			int path = base.indexOf('/', authority + 3);
+			int end = path < 0 ? base.length() : path;
+			base = base.substring(0, end).toLowerCase(Locale.ROOT) + base.substring(end);
+		}
+		if (query < 0 || query == link.length() - 1) {
+			return base;
+		}
+		List<String> parameters = new ArrayList<>();
+		for (String parameter : link.substring(query + 1).split("&")) {
+			if (!parameter.isEmpty()) {
+				parameters.add(parameter);
+			}
+		}
+		// stable sort on name only, values of repeated names keep their order
+		Collections.sort(parameters, new Comparator<String>() {
+			@Override
+			public int compare(String a, String b) {
+				return name(a).compareTo(name(b));
+			}
+		});
+		StringBuilder sb = new StringBuilder(link.length()).append(base).append('?');
+		for (int i = 0; i < parameters.size(); i++) {
+			if (i > 0) {
+				sb.append('&');
+			}
+			sb.append(parameters.get(i));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Split the canonical key of a Lookup request for several items of one
+	 * kind into the keys of the requests for each single item, with all other
+	 * parameters unchanged.
+	 * 
+	 * @param key
+	 *            canonical key, not {@code null}
+	 * @return keys of the single item requests, or an empty {@link List} if key
+	 *         is not a Lookup request for several items of one kind
+	 */
+	static List<String> split(String key) {
+		int query = key.indexOf('?');
+		if (query < 0 || !key.substring(0, query).endsWith("/lookup")) {
+			return Collections.emptyList();
+		}
+		String[] parameters = key.substring(query + 1).split("&");
+		int index = -1;
+		for (int i = 0; i < parameters.length; i++) {
+			if (LOOKUP_KEYS.contains(name(parameters[i]))) {
+				if (index >= 0) {
+					return Collections.emptyList();
+				}
+				index = i;
+			}
+		}
+		if (index < 0) {
+			return Collections.emptyList();
+		}
+		String name = name(parameters[index]);
+		if (name.length() == parameters[index].length()) {
+			return Collections.emptyList();
+		}
+		String[] values = parameters[index].substring(name.length() + 1).split("%2C|%2c|,");
+		if (values.length < 2) {
+			return Collections.emptyList();
+		}
+		List<String> keys = new ArrayList<>(values.length);
+		for (String value : values) {
+			parameters[index] = name + "=" + value;
+			StringBuilder sb = new StringBuilder(key.length()).append(key, 0, query + 1);
+			for (int i = 0; i < parameters.length; i++) {
+				if (i > 0) {
+					sb.append('&');
+				}
+				sb.append(parameters[i]);
+			}
+			keys.add(sb.toString());
+		}
+		return keys;
+	}
+
+	/**
+	 * iTunes ids of a Lookup request for several items by {@code id}, in the
+	 * order of the keys returned by {@link #split(String)}.
+	 * 
+	 * @param key
+	 *            canonical key, not {@code null}
+	 * @return requested iTunes ids, or an empty {@link List} if key is not a
+	 *         Lookup request for several items by {@code id}
+	 */
+	static List<String> ids(String key) {
+		List<String> keys = split(key);
+		List<String> ids = new ArrayList<>(keys.size());
+		for (String k : keys) {
+			String id = null;
+			for (String parameter : k.substring(k.indexOf('?') + 1).split("&")) {
+				if (parameter.startsWith("id=")) {
+					id = parameter.substring(3);
+				}
+			}
+			if (id == null) {
+				return Collections.emptyList();
+			}
+			ids.add(id);
+		}
+		return ids;
+	}
+
+	/**
+	 * @param key
+	 *            key, not {@code null}
+	 * @return 64-bit fingerprint of key
+	 * @see Fingerprint#of(String)
+	 */
+	static long hash(String key) {
+		return Fingerprint.of(key);
+	}
+
+	private static String name(String parameter) {
+		int eq = parameter.indexOf('=');
+		return eq < 0 ? parameter : parameter.substring(0, eq);
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.cache;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import be.ceau.itunesapi.http.Endpoint;
+
+/**
+ * Static helper registering {@link CacheStatistics} with the platform
+ * {@link MBeanServer}. Each {@link Endpoint} of a cache is registered under
+ * object name
+ * {@code be.ceau.itunesapi:type=CacheStatistics,cache=<name>,endpoint=<endpoint>},
+ * for example:
+ * 
+ * <pre>
+ * CacheMBeans.register("raw", cachingConnector.getStatistics());
+ * </pre>
+ */
+public final class CacheMBeans {
+
+	private static final String DOMAIN = "be.ceau.itunesapi";
+
+	private CacheMBeans() {
+	}
+
+	/**
+	 * Register the given statistics, replacing any registered earlier under
+	 * the same name.
+	 * 
+	 * @param name
+	 *            name of the cache, not {@code null}
+	 * @param statistics
+	 *            {@link Map} of {@link CacheStatistics} by {@link Endpoint},
+	 *            as returned by the cache, not {@code null}
+	 * @throws IllegalArgumentException
+	 *             if any argument {@code null}
+	 * @throws IllegalStateException
+	 *             if registration fails
+	 */
+	public static void register(String name, Map<Endpoint, CacheStatistics> statistics) {
+		if (name == null) {
+			throw new IllegalArgumentException("name can not be null");
+		}
+		if (statistics == null) {
+			throw new IllegalArgumentException("statistics can not be null");
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			for (Map.Entry<Endpoint, CacheStatistics> entry : statistics.entrySet()) {
+				ObjectName objectName = name(name, entry.getKey().name().toLowerCase(Locale.ROOT));
+				if (server.isRegistered(objectName)) {
+					server.unregisterMBean(objectName);
+				}
+				server.registerMBean(entry.getValue(), objectName);
+			}
+		} catch (JMException e) {
+			throw new IllegalStateException("could not register statistics of cache " + name, e);
+		}
+	}
+
+	/**
+	 * Remove all statistics registered under the given name.
+	 * 
+	 * @param name
+	 *            name of the cache, not {@code null}
+	 * @throws IllegalArgumentException
+	 *             if argument {@code null}
+	 * @throws IllegalStateException
+	 *             if removal fails
+	 */
+	public static void unregister(String name) {
+		if (name == null) {
+			throw new IllegalArgumentException("name can not be null");
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			for (ObjectName objectName : server.queryNames(name(name, "*"), null)) {
+				server.unregisterMBean(objectName);
+			}
+		} catch (JMException e) {
+			throw new IllegalStateException("could not unregister statistics of cache " + name, e);
+		}
+	}
+
+	private static ObjectName name(String cache, String endpoint) throws MalformedObjectNameException {
+		return new ObjectName(DOMAIN + ":type=CacheStatistics,cache=" + ObjectName.quote(cache) + ",endpoint=" + endpoint);
+	}
+
+}
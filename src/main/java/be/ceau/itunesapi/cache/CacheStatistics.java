@@ -0,0 +1,187 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.cache;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import be.ceau.itunesapi.http.Endpoint;
+
+/**
+ * Live counters of a cache for a single {@link Endpoint}. Values change as the
+ * cache is used, read them again for an update.
+ * <p>
+ * Instances are threadsafe.
+ */
+public final class CacheStatistics implements CacheStatisticsMXBean {
+
+	private final Endpoint endpoint;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong loads = new AtomicLong();
+	private final AtomicLong loadNanos = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong expirations = new AtomicLong();
+	private final AtomicLong invalidations = new AtomicLong();
+	private final AtomicLong entries = new AtomicLong();
+	private final AtomicLong bytes = new AtomicLong();
+
+	private CacheStatistics(Endpoint endpoint) {
+		this.endpoint = endpoint;
+	}
+
+	/**
+	 * @return unmodifiable {@link Map} holding new statistics for every
+	 *         {@link Endpoint}
+	 */
+	static Map<Endpoint, CacheStatistics> create() {
+		Map<Endpoint, CacheStatistics> map = new EnumMap<>(Endpoint.class);
+		for (Endpoint endpoint : Endpoint.values()) {
+			map.put(endpoint, new CacheStatistics(endpoint));
+		}
+		return Collections.unmodifiableMap(map);
+	}
+
+	void hit() {
+		hits.incrementAndGet();
+	}
+
+	void hits(int count) {
+		hits.addAndGet(count);
+	}
+
+	void miss() {
+		misses.incrementAndGet();
+	}
+
+	void misses(int count) {
+		misses.addAndGet(count);
+	}
+
+	/**
+	 * @param start
+	 *            {@link System#nanoTime()} when loading started
+	 */
+	void loaded(long start) {
+		loads.incrementAndGet();
+		loadNanos.addAndGet(System.nanoTime() - start);
+	}
+
+	void added(long size) {
+		entries.incrementAndGet();
+		bytes.addAndGet(size);
+	}
+
+	void evicted(long size) {
+		evictions.incrementAndGet();
+		removed(size);
+	}
+
+	void expired(long size) {
+		expirations.incrementAndGet();
+		removed(size);
+	}
+
+	void invalidated(long size) {
+		invalidations.incrementAndGet();
+		removed(size);
+	}
+
+	/**
+	 * Entry replaced or otherwise removed, without counting a cause.
+	 */
+	void removed(long size) {
+		entries.decrementAndGet();
+		bytes.addAndGet(-size);
+	}
+
+	@Override
+	public Endpoint getEndpoint() {
+		return endpoint;
+	}
+
+	@Override
+	public long getHits() {
+		return hits.get();
+	}
+
+	@Override
+	public long getMisses() {
+		return misses.get();
+	}
+
+	@Override
+	public double getHitRate() {
+		long hits = this.hits.get();
+		long requests = hits + misses.get();
+		return requests == 0L ? 1.0 : (double) hits / requests;
+	}
+
+	@Override
+	public double getMissRate() {
+		long misses = this.misses.get();
+		long requests = misses + hits.get();
+		return requests == 0L ? 0.0 : (double) misses / requests;
+	}
+
+	@Override
+	public long getLoads() {
+		return loads.get();
+	}
+
+	@Override
+	public double getAverageLoadMillis() {
+		long loads = this.loads.get();
+		return loads == 0L ? 0.0 : (double) loadNanos.get() / loads / TimeUnit.MILLISECONDS.toNanos(1L);
+	}
+
+	@Override
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	@Override
+	public long getExpirations() {
+		return expirations.get();
+	}
+
+	@Override
+	public long getInvalidations() {
+		return invalidations.get();
+	}
+
+	@Override
+	public long getEntries() {
+		return entries.get();
+	}
+
+	@Override
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStatistics [endpoint=" + endpoint + ", hits=" + hits + ", misses=" + misses + ", loads=" + loads
+				+ ", averageLoadMillis=" + getAverageLoadMillis() + ", evictions=" + evictions + ", expirations=" + expirations
+				+ ", invalidations=" + invalidations + ", entries=" + entries + ", bytes=" + bytes + "]";
+	}
+
+}
@@ -0,0 +1,92 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.cache;
+
+import be.ceau.itunesapi.http.Endpoint;
+
+/**
+ * Management interface of {@link CacheStatistics}, exposing the statistics of
+ * one {@link Endpoint} of a cache through JMX.
+ * 
+ * @see CacheMBeans
+ */
+public interface CacheStatisticsMXBean {
+
+	/**
+	 * @return {@link Endpoint} these statistics cover, never {@code null}
+	 */
+	Endpoint getEndpoint();
+
+	/**
+	 * @return number of requests answered from the cache
+	 */
+	long getHits();
+
+	/**
+	 * @return number of requests not answered from the cache
+	 */
+	long getMisses();
+
+	/**
+	 * @return fraction of requests answered from the cache, 1.0 if there were
+	 *         no requests
+	 */
+	double getHitRate();
+
+	/**
+	 * @return fraction of requests not answered from the cache, 0.0 if there
+	 *         were no requests
+	 */
+	double getMissRate();
+
+	/**
+	 * @return number of times a response was loaded from upstream
+	 */
+	long getLoads();
+
+	/**
+	 * @return average time in milliseconds spent loading a response, 0.0 if
+	 *         nothing was loaded
+	 */
+	double getAverageLoadMillis();
+
+	/**
+	 * @return number of entries removed to stay within the size limit
+	 */
+	long getEvictions();
+
+	/**
+	 * @return number of entries removed because their time to live passed
+	 */
+	long getExpirations();
+
+	/**
+	 * @return number of entries removed explicitly
+	 */
+	long getInvalidations();
+
+	/**
+	 * @return number of entries currently cached
+	 */
+	long getEntries();
+
+	/**
+	 * @return total size in bytes of the entries currently cached, 0 if the
+	 *         cache does not hold raw responses
+	 */
+	long getBytes();
+
+}
@@ -0,0 +1,639 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import be.ceau.itunesapi.http.Connector;
+import be.ceau.itunesapi.http.Connectors;
+import be.ceau.itunesapi.http.Endpoint;
+import be.ceau.itunesapi.http.ForwardingConnector;
+import be.ceau.itunesapi.http.Revalidation;
+import be.ceau.itunesapi.response.Correlation;
+import be.ceau.itunesapi.response.Response;
+
+/**
+ * {@link Connector} decorator keeping response bodies in memory, so repeated
+ * requests for the same link are answered without a network round trip.
+ * <p>
+ * Entries are keyed by the canonical form of the link, in which query
+ * parameters are sorted by name. Each entry expires a fixed time after it
+ * was stored. When the total size of the cached response bodies exceeds the
+ * configured maximum, least recently used entries are evicted. Responses
+ * larger than that maximum are not cached. Failed requests are never cached.
+ * <p>
+ * An expired response carrying an {@code ETag} or {@code Last-Modified}
+ * validator is kept, and revalidated through a {@link Revalidation} on the
+ * next request for it. When the delegate reports it was not modified, the
+ * cached response is returned and kept for another time to live, so a
+ * rarely changing feed costs a header exchange rather than a download.
+ * <p>
+ * Search and Lookup responses reporting a {@code resultCount} of 0 are kept
+ * for a separate, shorter time to live, so requests for unknown items or
+ * unmatched terms are not repeated at every call, while items that appear
+ * later are found soon enough. When a Lookup request for several items has no
+ * results, each of those items is remembered as not found, so a later Lookup
+ * request for any of them, alone or together, is answered with an empty
+ * response without a request. The same holds for each iTunes id of a Lookup
+ * request by {@code id} that has no result in an otherwise non-empty
+ * response, as matched by {@link Correlation}.
+ * <p>
+ * Optionally, expired responses are served for a grace period while a single
+ * background task per link refreshes them, see
+ * {@link #setStaleWhileRevalidate(long, TimeUnit, Executor)}. This keeps
+ * latency flat for frequently requested links at the cost of serving
+ * responses up to one grace period past their time to live.
+ * <p>
+ * Concurrent misses for the same link each perform a request. Wrap the
+ * delegate in a {@link be.ceau.itunesapi.http.CoalescingConnector} to share
+ * those.
+ * <p>
+ * Instances are threadsafe.
+ */
+public class CachingConnector extends ForwardingConnector {
+
+	private static final Logger logger = LoggerFactory.getLogger(CachingConnector.class);
+
+	/**
+	 * Default maximum of 16 MiB of cached response bodies.
+	 */
+	public static final long DEFAULT_MAX_BYTES = 16L * 1024L * 1024L;
+
+	/**
+	 * Default time to live of 5 minutes.
+	 */
+	public static final long DEFAULT_TTL_SECONDS = 300L;
+
+	/**
+	 * Default time to live of responses without results of 1 minute.
+	 */
+	public static final long DEFAULT_NEGATIVE_TTL_SECONDS = 60L;
+
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes;
+
+	private final ConcurrentMap<String, Boolean> refreshing = new ConcurrentHashMap<>();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong staleHits = new AtomicLong();
+	private final AtomicLong negativeHits = new AtomicLong();
+	private final AtomicLong refreshes = new AtomicLong();
+	private final AtomicLong revalidations = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong expirations = new AtomicLong();
+
+	private final Map<Endpoint, CacheStatistics> statistics = CacheStatistics.create();
+
+	private volatile long maxBytes = DEFAULT_MAX_BYTES;
+	private volatile long ttlNanos = TimeUnit.SECONDS.toNanos(DEFAULT_TTL_SECONDS);
+	private volatile long negativeTtlNanos = TimeUnit.SECONDS.toNanos(DEFAULT_NEGATIVE_TTL_SECONDS);
+	private volatile long staleNanos;
+	private volatile Executor refreshExecutor;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param delegate
+	 *            {@link Connector} to forward requests to, not {@code null}
+	 * @throws IllegalArgumentException
+	 *             if argument {@code null}
+	 */
+	public CachingConnector(Connector delegate) {
+		super(delegate);
+	}
+
+	@Override
+	public InputStream open(String link) throws IOException {
+		String key = CacheKey.of(link);
+		Revalidation outer = Revalidation.current();
+		CacheStatistics stats = statistics.get(Endpoint.of(key));
+		Entry entry = lookup(key);
+		if (entry != null && entry.isFresh()) {
+			hits.incrementAndGet();
+			stats.hit();
+			if (entry.negative) {
+				negativeHits.incrementAndGet();
+			}
+			return answer(outer, entry);
+		}
+		if (entry == null && isKnownEmpty(key)) {
+			hits.incrementAndGet();
+			stats.hit();
+			negativeHits.incrementAndGet();
+			return answer(outer, new Entry(EmptyResponse.BODY, 0L, null, null, true));
+		}
+		if (entry != null && entry.isUsable(staleNanos) && refresh(link, key, entry)) {
+			hits.incrementAndGet();
+			stats.hit();
+			staleHits.incrementAndGet();
+			return answer(outer, entry);
+		}
+		return answer(outer, fetch(link, key, entry, true));
+	}
+
+	/**
+	 * Perform a request for the given link, revalidating the given entry if
+	 * possible, and store the outcome.
+	 */
+	private Entry fetch(String link, String key, Entry entry, boolean foreground) throws IOException {
+		CacheStatistics stats = statistics.get(Endpoint.of(key));
+		Revalidation revalidation = entry == null || !entry.isRevalidatable() ? new Revalidation(null, null) : new Revalidation(entry.etag, entry.lastModified);
+		byte[] body;
+		long start = System.nanoTime();
+		Revalidation previous = revalidation.attach();
+		try {
+			body = Connectors.read(delegate.open(link));
+		} finally {
+			Revalidation.restore(previous);
+		}
+		stats.loaded(start);
+		if (entry != null && revalidation.isNotModified()) {
+			if (foreground) {
+				hits.incrementAndGet();
+				stats.hit();
+			}
+			revalidations.incrementAndGet();
+			String etag = revalidation.getResponseEtag() == null ? entry.etag : revalidation.getResponseEtag();
+			String lastModified = revalidation.getResponseLastModified() == null ? entry.lastModified : revalidation.getResponseLastModified();
+			return store(key, entry.body, etag, lastModified);
+		}
+		if (foreground) {
+			stats.miss();
+		}
+		misses.incrementAndGet();
+		return store(key, body, revalidation.getResponseEtag(), revalidation.getResponseLastModified());
+	}
+
+	/**
+	 * Start a background refresh of the given entry, unless one is already
+	 * running.
+	 * 
+	 * @return {@code false} if no background refresh is configured
+	 */
+	private boolean refresh(final String link, final String key, final Entry entry) {
+		Executor executor = refreshExecutor;
+		if (executor == null) {
+			return false;
+		}
+		if (refreshing.putIfAbsent(key, Boolean.TRUE) == null) {
+			try {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							fetch(link, key, entry, false);
+							refreshes.incrementAndGet();
+						} catch (IOException | RuntimeException e) {
+							logger.debug("background refresh of {} failed", link, e);
+						} finally {
+							refreshing.remove(key);
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				refreshing.remove(key);
+				logger.debug("background refresh of {} rejected", link, e);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Report to the {@link Revalidation} of an enclosing cache, if any.
+	 */
+	private static InputStream answer(Revalidation outer, Entry entry) {
+		if (outer != null) {
+			outer.complete(outer.matches(entry.etag, entry.lastModified), entry.etag, entry.lastModified);
+		}
+		return new ByteArrayInputStream(entry.body);
+	}
+
+	/**
+	 * @return the entry for the given key, possibly expired if it can be
+	 *         revalidated, or {@code null}
+	 */
+	private synchronized Entry lookup(String key) {
+		Entry entry = entries.get(key);
+		if (entry != null && !entry.isUsable(staleNanos) && !entry.isRevalidatable()) {
+			statistics.get(Endpoint.of(key)).expired(remove(key).body.length);
+			expirations.incrementAndGet();
+			return null;
+		}
+		return entry;
+	}
+
+	/**
+	 * @return {@code true} if key is a Lookup request for several items, each
+	 *         of which is known to have no results
+	 */
+	private synchronized boolean isKnownEmpty(String key) {
+		List<String> keys = CacheKey.split(key);
+		if (keys.isEmpty()) {
+			return false;
+		}
+		for (String k : keys) {
+			Entry entry = entries.get(k);
+			if (entry == null || !entry.negative || !entry.isFresh()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private Entry store(String key, byte[] body, String etag, String lastModified) {
+		boolean negative = EmptyResponse.isEmpty(body);
+		// an empty response for several items means each of them is unknown
+		List<String> unknown = negative ? CacheKey.split(key) : unknown(key, body);
+		return store(key, body, etag, lastModified, negative, unknown);
+	}
+
+	private synchronized Entry store(String key, byte[] body, String etag, String lastModified, boolean negative, List<String> unknown) {
+		long now = System.nanoTime();
+		long expires = now + (negative ? negativeTtlNanos : ttlNanos);
+		Entry entry = new Entry(body, expires, etag, lastModified, negative);
+		long max = maxBytes;
+		if (body.length > max) {
+			return entry;
+		}
+		put(key, entry);
+		for (String k : unknown) {
+			put(k, new Entry(EmptyResponse.BODY, now + negativeTtlNanos, null, null, true));
+		}
+		trim(max);
+		return entry;
+	}
+
+	/**
+	 * @return keys of the single item requests for the iTunes ids without
+	 *         results in the given non-empty response body to a Lookup request
+	 *         for several items by {@code id}, possibly empty
+	 */
+	private static List<String> unknown(String key, byte[] body) {
+		List<String> ids = CacheKey.ids(key);
+		if (ids.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Response response;
+		try {
+			response = Response.READER.readValue(body);
+		} catch (IOException e) {
+			return Collections.emptyList();
+		}
+		if (response.getResults() == null || response.getResults().isEmpty()) {
+			return Collections.emptyList();
+		}
+		Set<String> missing = new HashSet<>(Correlation.of(ids, response).getMissing());
+		List<String> keys = CacheKey.split(key);
+		List<String> unknown = new ArrayList<>(missing.size());
+		for (int i = 0; i < ids.size(); i++) {
+			if (missing.contains(ids.get(i))) {
+				unknown.add(keys.get(i));
+			}
+		}
+		return unknown;
+	}
+
+	private void put(String key, Entry entry) {
+		CacheStatistics stats = statistics.get(Endpoint.of(key));
+		Entry replaced = remove(key);
+		if (replaced != null) {
+			stats.removed(replaced.body.length);
+		}
+		entries.put(key, entry);
+		bytes += entry.body.length;
+		stats.added(entry.body.length);
+	}
+
+	private void trim(long max) {
+		Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+		while (bytes > max && iterator.hasNext()) {
+			Map.Entry<String, Entry> evicted = iterator.next();
+			int length = evicted.getValue().body.length;
+			bytes -= length;
+			iterator.remove();
+			evictions.incrementAndGet();
+			statistics.get(Endpoint.of(evicted.getKey())).evicted(length);
+		}
+	}
+
+	/**
+	 * @return the removed entry, or {@code null}
+	 */
+	private Entry remove(String key) {
+		Entry removed = entries.remove(key);
+		if (removed != null) {
+			bytes -= removed.body.length;
+		}
+		return removed;
+	}
+
+	/**
+	 * Remove the cached response for the given link, if any.
+	 * 
+	 * @param link
+	 *            a full link, including scheme, not {@code null}
+	 */
+	public synchronized void invalidate(String link) {
+		String key = CacheKey.of(link);
+		Entry removed = remove(key);
+		if (removed != null) {
+			statistics.get(Endpoint.of(key)).invalidated(removed.body.length);
+		}
+	}
+
+	/**
+	 * Remove all cached responses.
+	 */
+	public synchronized void clear() {
+		for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+			statistics.get(Endpoint.of(entry.getKey())).invalidated(entry.getValue().body.length);
+		}
+		entries.clear();
+		bytes = 0L;
+	}
+
+	/**
+	 * @return maximum total size in bytes of cached response bodies
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Default value is {@link #DEFAULT_MAX_BYTES}
+	 * 
+	 * @param maxBytes
+	 *            maximum total size in bytes of cached response bodies, at
+	 *            least 0
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if maxBytes is negative
+	 */
+	public CachingConnector setMaxBytes(long maxBytes) {
+		if (maxBytes < 0) {
+			throw new IllegalArgumentException("maxBytes can not be negative");
+		}
+		this.maxBytes = maxBytes;
+		synchronized (this) {
+			trim(maxBytes);
+		}
+		return this;
+	}
+
+	/**
+	 * @param unit
+	 *            {@link TimeUnit} of the returned value, not {@code null}
+	 * @return time a response is kept after it was received
+	 */
+	public long getTtl(TimeUnit unit) {
+		return unit.convert(ttlNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Default value is {@link #DEFAULT_TTL_SECONDS} seconds. Applies to
+	 * responses received after the change.
+	 * 
+	 * @param ttl
+	 *            time a response is kept after it was received, at least 0
+	 * @param unit
+	 *            {@link TimeUnit} of ttl, not {@code null}
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if ttl is negative
+	 */
+	public CachingConnector setTtl(long ttl, TimeUnit unit) {
+		if (ttl < 0) {
+			throw new IllegalArgumentException("ttl can not be negative");
+		}
+		this.ttlNanos = unit.toNanos(ttl);
+		return this;
+	}
+
+	/**
+	 * @param unit
+	 *            {@link TimeUnit} of the returned value, not {@code null}
+	 * @return time a response without results is kept after it was received
+	 */
+	public long getNegativeTtl(TimeUnit unit) {
+		return unit.convert(negativeTtlNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Default value is {@link #DEFAULT_NEGATIVE_TTL_SECONDS} seconds. Applies
+	 * to responses received after the change.
+	 * 
+	 * @param negativeTtl
+	 *            time a response without results is kept after it was
+	 *            received, at least 0
+	 * @param unit
+	 *            {@link TimeUnit} of negativeTtl, not {@code null}
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if negativeTtl is negative
+	 */
+	public CachingConnector setNegativeTtl(long negativeTtl, TimeUnit unit) {
+		if (negativeTtl < 0) {
+			throw new IllegalArgumentException("negativeTtl can not be negative");
+		}
+		this.negativeTtlNanos = unit.toNanos(negativeTtl);
+		return this;
+	}
+
+	/**
+	 * @param unit
+	 *            {@link TimeUnit} of the returned value, not {@code null}
+	 * @return time an expired response is still served while it is refreshed
+	 *         in the background
+	 */
+	public long getStaleWhileRevalidate(TimeUnit unit) {
+		return unit.convert(staleNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Serve expired responses for a while longer, refreshing them in the
+	 * background. A request for a response that expired less than
+	 * {@code window} ago is answered with the expired response, and a single
+	 * background task is started to request it again. Default is not to serve
+	 * expired responses.
+	 * 
+	 * @param window
+	 *            time after expiry during which a response is still served, 0
+	 *            to disable
+	 * @param unit
+	 *            {@link TimeUnit} of window, not {@code null}
+	 * @param executor
+	 *            {@link Executor} to refresh responses on, not {@code null}
+	 *            unless window is 0
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if window is negative, or executor {@code null} while window
+	 *             is not 0
+	 */
+	public CachingConnector setStaleWhileRevalidate(long window, TimeUnit unit, Executor executor) {
+		if (window < 0) {
+			throw new IllegalArgumentException("window can not be negative");
+		}
+		if (window > 0 && executor == null) {
+			throw new IllegalArgumentException("executor can not be null");
+		}
+		this.refreshExecutor = window == 0 ? null : executor;
+		this.staleNanos = unit.toNanos(window);
+		return this;
+	}
+
+	/**
+	 * @return number of requests answered from the cache, including those
+	 *         revalidated and those answered with a stale response
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return number of requests answered with a cached response without
+	 *         results
+	 */
+	public long getNegativeHits() {
+		return negativeHits.get();
+	}
+
+	/**
+	 * @return number of requests answered with a stale response while it was
+	 *         refreshed in the background
+	 */
+	public long getStaleHits() {
+		return staleHits.get();
+	}
+
+	/**
+	 * @return number of times the delegate confirmed a cached response was
+	 *         not modified
+	 */
+	public long getRevalidations() {
+		return revalidations.get();
+	}
+
+	/**
+	 * @return number of full responses received from the delegate
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return number of completed background refreshes
+	 */
+	public long getRefreshes() {
+		return refreshes.get();
+	}
+
+	/**
+	 * @return number of entries removed to stay within the maximum size
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * @return number of entries removed because their time to live passed
+	 */
+	public long getExpirations() {
+		return expirations.get();
+	}
+
+	/**
+	 * @param endpoint
+	 *            {@link Endpoint}, not {@code null}
+	 * @return live {@link CacheStatistics} of requests for the given
+	 *         {@link Endpoint}
+	 */
+	public CacheStatistics getStatistics(Endpoint endpoint) {
+		return statistics.get(endpoint);
+	}
+
+	/**
+	 * @return unmodifiable {@link Map} of live {@link CacheStatistics} by
+	 *         {@link Endpoint}, suitable for {@link CacheMBeans#register}
+	 */
+	public Map<Endpoint, CacheStatistics> getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * @return number of cached responses
+	 */
+	public synchronized int getSize() {
+		return entries.size();
+	}
+
+	/**
+	 * @return total size in bytes of cached response bodies
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	private static final class Entry {
+
+		private final byte[] body;
+		private final long expires;
+		private final String etag;
+		private final String lastModified;
+		private final boolean negative;
+
+		private Entry(byte[] body, long expires, String etag, String lastModified, boolean negative) {
+			this.body = body;
+			this.expires = expires;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.negative = negative;
+		}
+
+		private boolean isFresh() {
+			return expires - System.nanoTime() > 0;
+		}
+
+		private boolean isUsable(long staleNanos) {
+			return expires + staleNanos - System.nanoTime() > 0;
+		}
+
+		private boolean isRevalidatable() {
+			return etag != null || lastModified != null;
+		}
+
+	}
+
+}
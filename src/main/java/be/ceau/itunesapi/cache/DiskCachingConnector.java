@@ -0,0 +1,568 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import be.ceau.itunesapi.http.Connector;
+import be.ceau.itunesapi.http.Connectors;
+import be.ceau.itunesapi.http.Endpoint;
+import be.ceau.itunesapi.http.ForwardingConnector;
+import be.ceau.itunesapi.http.Revalidation;
+
+/**
+ * {@link Connector} decorator keeping response bodies on disk, so they survive
+ * a restart of the application.
+ * <p>
+ * Responses are appended to memory-mapped segment files in a directory of
+ * their own. An index from the 64-bit hash of the canonical link to the
+ * location of the latest record for it is kept in memory, and rebuilt by
+ * scanning the segments when an instance is created. Each entry expires a
+ * fixed time after it was stored, measured by the wall clock so the time to
+ * live also spans restarts. Search and Lookup responses reporting a
+ * {@code resultCount} of 0 have a separate, shorter time to live.
+ * <p>
+ * An expired response carrying an {@code ETag} or {@code Last-Modified}
+ * validator is revalidated through a {@link Revalidation} on the next request
+ * for it, until the segments are compacted. When the delegate reports it was
+ * not modified, the stored response is returned and written again with a new
+ * expiry time.
+ * <p>
+ * Replaced, invalidated and expired records stay in their segment until the
+ * segments are compacted, copying live records to new segments. Compaction
+ * runs when a new segment is needed and at least half of the stored bytes are
+ * no longer live, or explicitly through {@link #compact()}. When the maximum
+ * number of segments is reached after compacting, the oldest segment is
+ * dropped.
+ * <p>
+ * A record not written completely before a crash is detected by its checksum
+ * and ignored. Only one instance should use a directory at any time.
+ * Instances are threadsafe. Call {@link #close()} to write pending changes to
+ * disk.
+ */
+public class DiskCachingConnector extends ForwardingConnector implements Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(DiskCachingConnector.class);
+
+	/**
+	 * Default segment size of 16 MiB.
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+	/**
+	 * Default maximum of 16 segments.
+	 */
+	public static final int DEFAULT_MAX_SEGMENTS = 16;
+
+	/**
+	 * Default time to live of 24 hours.
+	 */
+	public static final long DEFAULT_TTL_SECONDS = 24L * 60L * 60L;
+
+	/**
+	 * Default time to live of responses without results of 1 hour.
+	 */
+	public static final long DEFAULT_NEGATIVE_TTL_SECONDS = 60L * 60L;
+
+	private static final String SUFFIX = ".segment";
+
+	private final Path directory;
+	private final int segmentSize;
+	private final int maxSegments;
+
+	private final TreeMap<Long, Segment> segments = new TreeMap<>();
+	private final Map<Long, Location> index = new HashMap<>();
+	private long liveBytes;
+	private boolean closed;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong revalidations = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong compactions = new AtomicLong();
+
+	private final Map<Endpoint, CacheStatistics> statistics = CacheStatistics.create();
+
+	private volatile long ttlMillis = TimeUnit.SECONDS.toMillis(DEFAULT_TTL_SECONDS);
+	private volatile long negativeTtlMillis = TimeUnit.SECONDS.toMillis(DEFAULT_NEGATIVE_TTL_SECONDS);
+
+	/**
+	 * Constructor using {@link #DEFAULT_SEGMENT_SIZE} and
+	 * {@link #DEFAULT_MAX_SEGMENTS}.
+	 * 
+	 * @param delegate
+	 *            {@link Connector} to forward requests to, not {@code null}
+	 * @param directory
+	 *            {@link Path} of the directory holding the segment files, not
+	 *            {@code null}, created if missing
+	 * @throws IOException
+	 *             if the directory or its segment files can not be opened
+	 * @throws IllegalArgumentException
+	 *             if any argument {@code null}
+	 */
+	public DiskCachingConnector(Connector delegate, Path directory) throws IOException {
+		this(delegate, directory, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SEGMENTS);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param delegate
+	 *            {@link Connector} to forward requests to, not {@code null}
+	 * @param directory
+	 *            {@link Path} of the directory holding the segment files, not
+	 *            {@code null}, created if missing
+	 * @param segmentSize
+	 *            size in bytes of each segment file, responses larger than
+	 *            this are not cached, at least 1024
+	 * @param maxSegments
+	 *            maximum number of segment files, at least 2
+	 * @throws IOException
+	 *             if the directory or its segment files can not be opened
+	 * @throws IllegalArgumentException
+	 *             if delegate or directory {@code null}, or segmentSize or
+	 *             maxSegments too small
+	 */
+	public DiskCachingConnector(Connector delegate, Path directory, int segmentSize, int maxSegments) throws IOException {
+		super(delegate);
+		if (directory == null) {
+			throw new IllegalArgumentException("directory can not be null");
+		}
+		if (segmentSize < 1024) {
+			throw new IllegalArgumentException("segmentSize must be at least 1024");
+		}
+		if (maxSegments < 2) {
+			throw new IllegalArgumentException("maxSegments must be at least 2");
+		}
+		this.directory = Files.createDirectories(directory);
+		this.segmentSize = segmentSize;
+		this.maxSegments = maxSegments;
+		load();
+	}
+
+	private void load() throws IOException {
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+			for (Path path : stream) {
+				String name = path.getFileName().toString();
+				try {
+					long id = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+					segments.put(id, Segment.open(id, path, segmentSize));
+				} catch (NumberFormatException e) {
+					logger.warn("ignoring {} in {}", name, directory);
+				}
+			}
+		}
+		for (final Segment segment : segments.values()) {
+			segment.scan(new Segment.Visitor() {
+				@Override
+				public void visit(int offset, int length, long hash, long expires) {
+					drop(hash);
+					if (expires != 0L) {
+						index.put(hash, new Location(segment, offset, length, expires));
+						liveBytes += length;
+					}
+				}
+			});
+		}
+		logger.debug("opened {} segments with {} entries in {}", segments.size(), index.size(), directory);
+	}
+
+	@Override
+	public InputStream open(String link) throws IOException {
+		String key = CacheKey.of(link);
+		long hash = CacheKey.hash(key);
+		Revalidation outer = Revalidation.current();
+		CacheStatistics stats = statistics.get(Endpoint.of(key));
+		Location location = locate(hash);
+		Segment.Record record = null;
+		if (location != null) {
+			// records are never modified once written, so they can be read without the lock
+			record = new Segment.Record(location.segment.read(location.offset, location.length));
+			if (!record.key.equals(key)) {
+				record = null;
+			} else if (location.isFresh()) {
+				hits.incrementAndGet();
+				stats.hit();
+				return answer(outer, record);
+			} else if (record.etag == null && record.lastModified == null) {
+				forget(hash, location);
+				record = null;
+			}
+		}
+		Revalidation revalidation = record == null ? new Revalidation(null, null) : new Revalidation(record.etag, record.lastModified);
+		byte[] body;
+		long start = System.nanoTime();
+		Revalidation previous = revalidation.attach();
+		try {
+			body = Connectors.read(delegate.open(link));
+		} finally {
+			Revalidation.restore(previous);
+		}
+		stats.loaded(start);
+		if (record != null && revalidation.isNotModified()) {
+			hits.incrementAndGet();
+			stats.hit();
+			revalidations.incrementAndGet();
+			String etag = revalidation.getResponseEtag() == null ? record.etag : revalidation.getResponseEtag();
+			String lastModified = revalidation.getResponseLastModified() == null ? record.lastModified : revalidation.getResponseLastModified();
+			record = store(hash, key, etag, lastModified, record.body);
+		} else {
+			misses.incrementAndGet();
+			stats.miss();
+			record = store(hash, key, revalidation.getResponseEtag(), revalidation.getResponseLastModified(), body);
+		}
+		return answer(outer, record);
+	}
+
+	/**
+	 * Report to the {@link Revalidation} of an enclosing cache, if any.
+	 */
+	private static InputStream answer(Revalidation outer, Segment.Record record) {
+		if (outer != null) {
+			outer.complete(outer.matches(record.etag, record.lastModified), record.etag, record.lastModified);
+		}
+		return new ByteArrayInputStream(record.body);
+	}
+
+	private synchronized Location locate(long hash) {
+		return index.get(hash);
+	}
+
+	private synchronized void forget(long hash, Location location) {
+		if (index.get(hash) == location) {
+			drop(hash);
+		}
+	}
+
+	/**
+	 * Store the given response, if possible. Failing to write it to disk does
+	 * not fail the request, the response is then only not cached.
+	 */
+	private synchronized Segment.Record store(long hash, String key, String etag, String lastModified, byte[] body) {
+		long expires = System.currentTimeMillis() + (EmptyResponse.isEmpty(body) ? negativeTtlMillis : ttlMillis);
+		byte[] record = Segment.record(hash, expires, key, etag, lastModified, body);
+		if (!closed && record.length <= segmentSize) {
+			try {
+				Location location = append(record, expires);
+				drop(hash);
+				index.put(hash, location);
+				liveBytes += record.length;
+			} catch (IOException e) {
+				logger.warn("failed to store response for {} in {}", key, directory, e);
+				// a stale record for this key must not be answered afterwards
+				drop(hash);
+			}
+		}
+		return new Segment.Record(record);
+	}
+
+	private Location append(byte[] record, long expires) throws IOException {
+		Segment segment = segments.isEmpty() ? null : segments.lastEntry().getValue();
+		int offset = segment == null ? -1 : segment.append(record);
+		if (offset < 0) {
+			if (2 * liveBytes < storedBytes()) {
+				compact();
+			}
+			segment = next();
+			offset = segment.append(record);
+		}
+		return new Location(segment, offset, record.length, expires);
+	}
+
+	private Segment next() throws IOException {
+		while (segments.size() >= maxSegments) {
+			Segment oldest = segments.pollFirstEntry().getValue();
+			Iterator<Location> iterator = index.values().iterator();
+			while (iterator.hasNext()) {
+				Location location = iterator.next();
+				if (location.segment == oldest) {
+					liveBytes -= location.length;
+					iterator.remove();
+				}
+			}
+			oldest.delete();
+		}
+		long id = segments.isEmpty() ? 1L : segments.lastKey() + 1L;
+		Segment segment = Segment.open(id, directory.resolve(String.format("%016d%s", id, SUFFIX)), segmentSize);
+		segments.put(id, segment);
+		return segment;
+	}
+
+	/**
+	 * Copy all live records to new segments, and delete the old segments.
+	 * 
+	 * @throws IOException
+	 *             if a segment can not be created or deleted
+	 */
+	public synchronized void compact() throws IOException {
+		if (closed) {
+			return;
+		}
+		List<Segment> old = new ArrayList<>(segments.values());
+		long now = System.currentTimeMillis();
+		Segment target = null;
+		Map<Long, Location> compacted = new HashMap<>();
+		long bytes = 0L;
+		for (Map.Entry<Long, Location> entry : index.entrySet()) {
+			Location location = entry.getValue();
+			if (location.expires <= now) {
+				continue;
+			}
+			byte[] record = location.segment.read(location.offset, location.length);
+			int offset = target == null ? -1 : target.append(record);
+			if (offset < 0) {
+				long id = segments.lastKey() + 1L;
+				target = Segment.open(id, directory.resolve(String.format("%016d%s", id, SUFFIX)), segmentSize);
+				segments.put(id, target);
+				offset = target.append(record);
+			}
+			compacted.put(entry.getKey(), new Location(target, offset, location.length, location.expires));
+			bytes += location.length;
+		}
+		if (target != null) {
+			target.force();
+		}
+		for (Segment segment : old) {
+			segments.remove(segment.id());
+			segment.delete();
+		}
+		index.clear();
+		index.putAll(compacted);
+		liveBytes = bytes;
+		compactions.incrementAndGet();
+		logger.debug("compacted {} segments into {} in {}", old.size(), segments.size(), directory);
+	}
+
+	/**
+	 * Remove the cached response for the given link, if any.
+	 * 
+	 * @param link
+	 *            a full link, including scheme, not {@code null}
+	 * @throws IOException
+	 *             if the removal can not be recorded
+	 */
+	public synchronized void invalidate(String link) throws IOException {
+		String key = CacheKey.of(link);
+		long hash = CacheKey.hash(key);
+		if (!closed && index.containsKey(hash)) {
+			append(Segment.record(hash, 0L, key, null, null, new byte[0]), 0L);
+			drop(hash);
+		}
+	}
+
+	private void drop(long hash) {
+		Location removed = index.remove(hash);
+		if (removed != null) {
+			liveBytes -= removed.length;
+		}
+	}
+
+	private long storedBytes() {
+		long stored = 0L;
+		for (Segment segment : segments.values()) {
+			stored += segment.size();
+		}
+		return stored;
+	}
+
+	/**
+	 * Write all changes to disk and close the segment files. Cached responses
+	 * already indexed remain readable, but nothing new is stored afterwards.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		closed = true;
+		for (Segment segment : segments.values()) {
+			segment.force();
+			segment.close();
+		}
+	}
+
+	/**
+	 * @param unit
+	 *            {@link TimeUnit} of the returned value, not {@code null}
+	 * @return time a response is kept after it was received
+	 */
+	public long getTtl(TimeUnit unit) {
+		return unit.convert(ttlMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Default value is {@link #DEFAULT_TTL_SECONDS} seconds. Applies to
+	 * responses received after the change.
+	 * 
+	 * @param ttl
+	 *            time a response is kept after it was received, at least 0
+	 * @param unit
+	 *            {@link TimeUnit} of ttl, not {@code null}
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if ttl is negative
+	 */
+	public DiskCachingConnector setTtl(long ttl, TimeUnit unit) {
+		if (ttl < 0) {
+			throw new IllegalArgumentException("ttl can not be negative");
+		}
+		this.ttlMillis = unit.toMillis(ttl);
+		return this;
+	}
+
+	/**
+	 * @param unit
+	 *            {@link TimeUnit} of the returned value, not {@code null}
+	 * @return time a response without results is kept after it was received
+	 */
+	public long getNegativeTtl(TimeUnit unit) {
+		return unit.convert(negativeTtlMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Default value is {@link #DEFAULT_NEGATIVE_TTL_SECONDS} seconds. Applies
+	 * to responses received after the change.
+	 * 
+	 * @param negativeTtl
+	 *            time a response without results is kept after it was
+	 *            received, at least 0
+	 * @param unit
+	 *            {@link TimeUnit} of negativeTtl, not {@code null}
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if negativeTtl is negative
+	 */
+	public DiskCachingConnector setNegativeTtl(long negativeTtl, TimeUnit unit) {
+		if (negativeTtl < 0) {
+			throw new IllegalArgumentException("negativeTtl can not be negative");
+		}
+		this.negativeTtlMillis = unit.toMillis(negativeTtl);
+		return this;
+	}
+
+	/**
+	 * @return {@link Path} of the directory holding the segment files
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @return number of requests answered from disk, including those
+	 *         revalidated
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return number of requests answered from disk after the delegate
+	 *         confirmed the stored response was not modified
+	 */
+	public long getRevalidations() {
+		return revalidations.get();
+	}
+
+	/**
+	 * @return number of requests answered with a full response from the
+	 *         delegate
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Entries are not tracked per {@link Endpoint}, so the returned statistics
+	 * count requests only. See {@link #getSize()} and {@link #getLiveBytes()}
+	 * for the totals.
+	 * 
+	 * @return unmodifiable {@link Map} of live {@link CacheStatistics} by
+	 *         {@link Endpoint}, suitable for {@link CacheMBeans#register}
+	 */
+	public Map<Endpoint, CacheStatistics> getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * @return number of compactions performed
+	 */
+	public long getCompactions() {
+		return compactions.get();
+	}
+
+	/**
+	 * @return number of cached responses, including expired ones not yet
+	 *         removed
+	 */
+	public synchronized int getSize() {
+		return index.size();
+	}
+
+	/**
+	 * @return number of segment files
+	 */
+	public synchronized int getSegments() {
+		return segments.size();
+	}
+
+	/**
+	 * @return total size in bytes of the records in all segments, live or not
+	 */
+	public synchronized long getStoredBytes() {
+		return storedBytes();
+	}
+
+	/**
+	 * @return total size in bytes of the live records
+	 */
+	public synchronized long getLiveBytes() {
+		return liveBytes;
+	}
+
+	private static final class Location {
+
+		private final Segment segment;
+		private final int offset;
+		private final int length;
+		private final long expires;
+
+		private Location(Segment segment, int offset, int length, long expires) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+			this.expires = expires;
+		}
+
+		private boolean isFresh() {
+			return expires > System.currentTimeMillis();
+		}
+
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Static helpers recognizing Search and Lookup responses without results.
+ */
+final class EmptyResponse {
+
+	/**
+	 * Body of a response without results, as returned by the Search and Lookup
+	 * APIs.
+	 */
+	static final byte[] BODY = "{\"resultCount\":0,\"results\":[]}".getBytes(StandardCharsets.UTF_8);
+
+	private static final JsonFactory FACTORY = new JsonFactory();
+
+	private EmptyResponse() {
+	}
+
+	/**
+	 * Check whether the given response body is a JSON object with a top level
+	 * {@code resultCount} of 0. Only the top level of the object is scanned,
+	 * nothing is bound.
+	 * 
+	 * @param body
+	 *            response body, not {@code null}
+	 * @return {@code true} if body reports 0 results
+	 */
+	static boolean isEmpty(byte[] body) {
+		try (JsonParser parser = FACTORY.createParser(body)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return false;
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if ("resultCount".equals(name)) {
+					return value == JsonToken.VALUE_NUMBER_INT && parser.getLongValue() == 0L;
+				}
+				parser.skipChildren();
+			}
+			return false;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+}
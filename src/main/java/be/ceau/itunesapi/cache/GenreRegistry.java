@@ -0,0 +1,335 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import be.ceau.itunesapi.GenreIdsAppendix;
+import be.ceau.itunesapi.http.Connector;
+import be.ceau.itunesapi.http.URLConnector;
+import be.ceau.itunesapi.response.genreidsappendix.Genre;
+import be.ceau.itunesapi.response.genreidsappendix.GenreIdsResponse;
+
+/**
+ * Holder of a single, frozen {@link GenreIdsResponse}, shared by all callers
+ * and refreshed in the background.
+ * <p>
+ * The genre tree is loaded on the first call to {@link #get()}, unless a
+ * snapshot was given to {@link #seed(InputStream)} before. From then on, it is
+ * requested again at a fixed interval, and the new tree replaces the old one
+ * in a single step, so callers see either the old or the new tree, never a
+ * mix. A failed refresh is logged and leaves the current tree in place. A
+ * seeded tree is refreshed right away, in the background.
+ * <p>
+ * {@link #getDefault()} returns a registry shared by the whole process. It is
+ * seeded from the classpath resource {@value #SNAPSHOT_RESOURCE} if present,
+ * and refreshed daily.
+ * <p>
+ * Instances are threadsafe.
+ */
+public class GenreRegistry implements Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(GenreRegistry.class);
+
+	/**
+	 * Default refresh interval of 24 hours.
+	 */
+	public static final long DEFAULT_REFRESH_HOURS = 24L;
+
+	/**
+	 * Classpath resource {@link #getDefault()} is seeded from, if present.
+	 */
+	public static final String SNAPSHOT_RESOURCE = "be/ceau/itunesapi/genres.json";
+
+	private static final class DefaultHolder {
+
+		private static final GenreRegistry INSTANCE = createDefault();
+
+	}
+
+	private final GenreIdsAppendix appendix = new GenreIdsAppendix();
+	private final Connector connector;
+	private final ScheduledExecutorService scheduler;
+	private final boolean ownsScheduler;
+	private final long refreshNanos;
+
+	private final Object lock = new Object();
+	private volatile Snapshot snapshot;
+	private ScheduledFuture<?> schedule;
+	private boolean closed;
+
+	private final AtomicLong refreshes = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+
+	/**
+	 * Constructor, refreshing on a daemon thread of its own.
+	 * 
+	 * @param connector
+	 *            {@link Connector} to request the genre tree with, not
+	 *            {@code null}
+	 * @param refreshInterval
+	 *            time between refreshes, greater than 0
+	 * @param unit
+	 *            {@link TimeUnit} of refreshInterval, not {@code null}
+	 * @throws IllegalArgumentException
+	 *             if connector {@code null} or refreshInterval not positive
+	 */
+	public GenreRegistry(Connector connector, long refreshInterval, TimeUnit unit) {
+		this(connector, Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "itunes-genre-registry");
+				thread.setDaemon(true);
+				return thread;
+			}
+		}), true, refreshInterval, unit);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param connector
+	 *            {@link Connector} to request the genre tree with, not
+	 *            {@code null}
+	 * @param scheduler
+	 *            {@link ScheduledExecutorService} to refresh on, not
+	 *            {@code null}, not shut down by {@link #close()}
+	 * @param refreshInterval
+	 *            time between refreshes, greater than 0
+	 * @param unit
+	 *            {@link TimeUnit} of refreshInterval, not {@code null}
+	 * @throws IllegalArgumentException
+	 *             if connector or scheduler {@code null}, or refreshInterval
+	 *             not positive
+	 */
+	public GenreRegistry(Connector connector, ScheduledExecutorService scheduler, long refreshInterval, TimeUnit unit) {
+		this(connector, scheduler, false, refreshInterval, unit);
+	}
+
+	private GenreRegistry(Connector connector, ScheduledExecutorService scheduler, boolean ownsScheduler, long refreshInterval, TimeUnit unit) {
+		if (connector == null) {
+			throw new IllegalArgumentException("connector can not be null");
+		}
+		if (scheduler == null) {
+			throw new IllegalArgumentException("scheduler can not be null");
+		}
+		if (refreshInterval <= 0) {
+			throw new IllegalArgumentException("refreshInterval must be greater than 0");
+		}
+		this.connector = connector;
+		this.scheduler = scheduler;
+		this.ownsScheduler = ownsScheduler;
+		this.refreshNanos = unit.toNanos(refreshInterval);
+	}
+
+	/**
+	 * @return {@link GenreRegistry} shared by the whole process, never
+	 *         {@code null}
+	 */
+	public static GenreRegistry getDefault() {
+		return DefaultHolder.INSTANCE;
+	}
+
+	private static GenreRegistry createDefault() {
+		GenreRegistry registry = new GenreRegistry(URLConnector.INSTANCE, DEFAULT_REFRESH_HOURS, TimeUnit.HOURS);
+		ClassLoader loader = GenreRegistry.class.getClassLoader();
+		try (InputStream in = loader == null ? null : loader.getResourceAsStream(SNAPSHOT_RESOURCE)) {
+			if (in != null) {
+				registry.seed(in);
+			}
+		} catch (IOException e) {
+			logger.warn("ignoring unreadable genre snapshot {}", SNAPSHOT_RESOURCE, e);
+		}
+		return registry;
+	}
+
+	/**
+	 * Use the given genre tree until it is first refreshed, unless a tree was
+	 * already loaded. Starts refreshing in the background right away.
+	 * 
+	 * @param json
+	 *            {@link InputStream} over a response of the Genre IDs Appendix
+	 *            API, not {@code null}, not closed by this method
+	 * @return {@code this} instance for method chaining
+	 * @throws IOException
+	 *             if json can not be read or parsed
+	 */
+	public GenreRegistry seed(InputStream json) throws IOException {
+		Snapshot seeded = new Snapshot(GenreIdsResponse.parse(json), true);
+		synchronized (lock) {
+			if (snapshot == null) {
+				snapshot = seeded;
+			}
+			start(0L);
+		}
+		return this;
+	}
+
+	/**
+	 * @return the current, frozen {@link GenreIdsResponse}, loaded first if
+	 *         needed, never {@code null}
+	 * @throws RuntimeException
+	 *             wrapping any {@link IOException} thrown loading the genre
+	 *             tree for the first time
+	 */
+	public GenreIdsResponse get() {
+		return current().response;
+	}
+
+	/**
+	 * Find a genre anywhere in the genre tree.
+	 * 
+	 * @param id
+	 *            genre id
+	 * @return frozen {@link Genre} with the given id, or {@code null}
+	 * @throws RuntimeException
+	 *             wrapping any {@link IOException} thrown loading the genre
+	 *             tree for the first time
+	 */
+	public Genre getGenre(int id) {
+		return current().index.get(id);
+	}
+
+	private Snapshot current() {
+		Snapshot current = snapshot;
+		if (current == null) {
+			synchronized (lock) {
+				current = snapshot;
+				if (current == null) {
+					current = load();
+					snapshot = current;
+				}
+				start(refreshNanos);
+			}
+		}
+		return current;
+	}
+
+	private Snapshot load() {
+		return new Snapshot(appendix.execute(connector), false);
+	}
+
+	private void start(long initialDelay) {
+		if (schedule == null && !closed) {
+			schedule = scheduler.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					refresh();
+				}
+			}, initialDelay, refreshNanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Request the genre tree now, replacing the current one on success.
+	 * 
+	 * @return {@code true} if the genre tree was replaced
+	 */
+	public boolean refresh() {
+		try {
+			snapshot = load();
+			refreshes.incrementAndGet();
+			return true;
+		} catch (RuntimeException e) {
+			failures.incrementAndGet();
+			logger.warn("refreshing genre tree failed, keeping current tree", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Stop refreshing. The current genre tree remains available.
+	 */
+	@Override
+	public void close() {
+		synchronized (lock) {
+			closed = true;
+			if (schedule != null) {
+				schedule.cancel(false);
+			}
+		}
+		if (ownsScheduler) {
+			scheduler.shutdown();
+		}
+	}
+
+	/**
+	 * @return {@code true} if the current genre tree came from a snapshot
+	 *         given to {@link #seed(InputStream)} and was not refreshed since
+	 */
+	public boolean isSeeded() {
+		Snapshot current = snapshot;
+		return current != null && current.seeded;
+	}
+
+	/**
+	 * @return number of successful refreshes
+	 */
+	public long getRefreshes() {
+		return refreshes.get();
+	}
+
+	/**
+	 * @return number of failed refreshes
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+
+	/**
+	 * Frozen genre tree with an index of all genres by id.
+	 */
+	private static final class Snapshot {
+
+		private final GenreIdsResponse response;
+		private final Map<Integer, Genre> index;
+		private final boolean seeded;
+
+		private Snapshot(GenreIdsResponse response, boolean seeded) {
+			this.response = response.freeze();
+			Map<Integer, Genre> index = new HashMap<>();
+			add(index, response.getGenres());
+			this.index = Collections.unmodifiableMap(index);
+			this.seeded = seeded;
+		}
+
+		private static void add(Map<Integer, Genre> index, Map<Integer, Genre> genres) {
+			if (genres == null) {
+				return;
+			}
+			for (Map.Entry<Integer, Genre> entry : genres.entrySet()) {
+				index.put(entry.getKey(), entry.getValue());
+				add(index, entry.getValue().getSubgenres());
+			}
+		}
+
+	}
+
+}
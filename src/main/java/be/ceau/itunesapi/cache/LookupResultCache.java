@@ -0,0 +1,374 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import be.ceau.itunesapi.Lookup;
+import be.ceau.itunesapi.http.Connector;
+import be.ceau.itunesapi.http.Endpoint;
+import be.ceau.itunesapi.request.Country;
+import be.ceau.itunesapi.response.Correlation;
+import be.ceau.itunesapi.response.Response;
+import be.ceau.itunesapi.response.Result;
+
+/**
+ * Cache of lookup {@link Result} instances by iTunes id, so overlapping
+ * lookups only request the ids not seen before.
+ * <p>
+ * A {@link Lookup} by iTunes id, without entity, limit or sort, is answered
+ * from the cached results of its ids. The ids that are not cached are looked
+ * up in as few requests as {@link Lookup#split()} allows, and the
+ * {@link Response} is assembled from cached and fresh results, in the
+ * iteration order of {@link Lookup#getIds()}.
+ * Ids the iTunes API returned nothing for are remembered as such, for a
+ * shorter time. Any other {@link Lookup} is executed as is, without caching.
+ * <p>
+ * Each fresh result is matched to the id it was requested by through its
+ * track, collection or artist id, see {@link Correlation}. Results are cached
+ * per {@link Country}, and are frozen before they are stored: see
+ * {@link Response#freeze()}. Returned responses are frozen as well.
+ * <p>
+ * Instances are threadsafe.
+ */
+public class LookupResultCache {
+
+	/**
+	 * Default maximum of 10000 cached ids.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+	/**
+	 * Default time to live of 5 minutes.
+	 */
+	public static final long DEFAULT_TTL_SECONDS = 300L;
+
+	/**
+	 * Default time to live of 1 minute for ids without result.
+	 */
+	public static final long DEFAULT_NEGATIVE_TTL_SECONDS = 60L;
+
+	private final Connector connector;
+
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	private final Map<Endpoint, CacheStatistics> statistics = CacheStatistics.create();
+	private final CacheStatistics stats = statistics.get(Endpoint.LOOKUP);
+
+	private volatile int maxEntries = DEFAULT_MAX_ENTRIES;
+	private volatile long ttlNanos = TimeUnit.SECONDS.toNanos(DEFAULT_TTL_SECONDS);
+	private volatile long negativeTtlNanos = TimeUnit.SECONDS.toNanos(DEFAULT_NEGATIVE_TTL_SECONDS);
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param connector
+	 *            {@link Connector} to perform requests with, not {@code null}
+	 * @throws IllegalArgumentException
+	 *             if argument {@code null}
+	 */
+	public LookupResultCache(Connector connector) {
+		if (connector == null) {
+			throw new IllegalArgumentException("connector can not be null");
+		}
+		this.connector = connector;
+	}
+
+	/**
+	 * Execute the given {@link Lookup}, requesting only the ids of which no
+	 * result is cached.
+	 * 
+	 * @param lookup
+	 *            {@link Lookup}, not {@code null}
+	 * @return frozen {@link Response}
+	 * @throws RuntimeException
+	 *             wrapping any {@link java.io.IOException} thrown performing
+	 *             the request or parsing the response
+	 * @see Lookup#execute(Connector)
+	 */
+	public Response execute(Lookup lookup) {
+		if (!isCacheable(lookup)) {
+			requests.incrementAndGet();
+			stats.miss();
+			long start = System.nanoTime();
+			Response response = lookup.execute(connector).freeze();
+			stats.loaded(start);
+			return response;
+		}
+
+		String scope = lookup.getCountry() == null ? "" : lookup.getCountry().getIso();
+		Map<String, Entry> cached = new HashMap<>();
+		List<String> missing = new ArrayList<>();
+		synchronized (this) {
+			long now = System.nanoTime();
+			for (String id : lookup.getIds()) {
+				String key = scope + ':' + id;
+				Entry entry = entries.get(key);
+				if (entry != null && entry.expires - now > 0) {
+					cached.put(id, entry);
+				} else {
+					if (entry != null) {
+						entries.remove(key);
+						stats.expired(0L);
+					}
+					missing.add(id);
+				}
+			}
+		}
+		hits.addAndGet(cached.size());
+		misses.addAndGet(missing.size());
+		stats.hits(cached.size());
+		stats.misses(missing.size());
+
+		List<Result> uncorrelated = new ArrayList<>();
+		if (!missing.isEmpty()) {
+			Lookup fetch = new Lookup()
+					.setIds(missing)
+					.setCountry(lookup.getCountry());
+			requests.addAndGet(fetch.split().size());
+			long start = System.nanoTime();
+			Response fresh = fetch.executeSplit(connector).freeze();
+			stats.loaded(start);
+
+			Correlation correlation = Correlation.of(missing, fresh);
+			uncorrelated.addAll(correlation.getUncorrelated());
+			Map<String, Result> found = new HashMap<>();
+			for (String id : missing) {
+				List<Result> results = correlation.getResults(id);
+				if (!results.isEmpty()) {
+					found.put(id, results.get(0));
+					uncorrelated.addAll(results.subList(1, results.size()));
+				}
+			}
+
+			synchronized (this) {
+				long now = System.nanoTime();
+				for (String id : missing) {
+					Result result = found.get(id);
+					Entry entry = new Entry(result, now + (result == null ? negativeTtlNanos : ttlNanos));
+					if (entries.put(scope + ':' + id, entry) != null) {
+						stats.removed(0L);
+					}
+					stats.added(0L);
+					cached.put(id, entry);
+				}
+				trim(maxEntries);
+			}
+		}
+
+		List<Result> results = new ArrayList<>();
+		for (String id : lookup.getIds()) {
+			Result result = cached.get(id).result;
+			if (result != null) {
+				results.add(result);
+			}
+		}
+		results.addAll(uncorrelated);
+
+		Response response = new Response();
+		response.setResultCount(results.size());
+		response.setResults(results);
+		return response.freeze();
+	}
+
+	/**
+	 * Only a plain lookup by iTunes id returns at most one result per id.
+	 */
+	private static boolean isCacheable(Lookup lookup) {
+		return !lookup.getIds().isEmpty()
+				&& lookup.getAmgArtistIds().isEmpty()
+				&& lookup.getAmgAlbumIds().isEmpty()
+				&& lookup.getAmgVideoIds().isEmpty()
+				&& lookup.getUpcs().isEmpty()
+				&& lookup.getIsbns().isEmpty()
+				&& lookup.getEntity() == null
+				&& lookup.getLimit() == 0
+				&& lookup.getSort() == null;
+	}
+
+	private void trim(int max) {
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (entries.size() > max) {
+			iterator.next();
+			iterator.remove();
+			evictions.incrementAndGet();
+			stats.evicted(0L);
+		}
+	}
+
+	/**
+	 * Remove all cached results.
+	 */
+	public synchronized void clear() {
+		for (int i = entries.size(); i > 0; i--) {
+			stats.invalidated(0L);
+		}
+		entries.clear();
+	}
+
+	/**
+	 * @return maximum number of cached ids
+	 */
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * Default value is {@link #DEFAULT_MAX_ENTRIES}
+	 * 
+	 * @param maxEntries
+	 *            maximum number of cached ids, at least 0
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if maxEntries is negative
+	 */
+	public LookupResultCache setMaxEntries(int maxEntries) {
+		if (maxEntries < 0) {
+			throw new IllegalArgumentException("maxEntries can not be negative");
+		}
+		this.maxEntries = maxEntries;
+		synchronized (this) {
+			trim(maxEntries);
+		}
+		return this;
+	}
+
+	/**
+	 * @param unit
+	 *            {@link TimeUnit} of the returned value, not {@code null}
+	 * @return time a result is kept after it was received
+	 */
+	public long getTtl(TimeUnit unit) {
+		return unit.convert(ttlNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Default value is {@link #DEFAULT_TTL_SECONDS} seconds. Applies to
+	 * results received after the change.
+	 * 
+	 * @param ttl
+	 *            time a result is kept after it was received, at least 0
+	 * @param unit
+	 *            {@link TimeUnit} of ttl, not {@code null}
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if ttl is negative
+	 */
+	public LookupResultCache setTtl(long ttl, TimeUnit unit) {
+		if (ttl < 0) {
+			throw new IllegalArgumentException("ttl can not be negative");
+		}
+		this.ttlNanos = unit.toNanos(ttl);
+		return this;
+	}
+
+	/**
+	 * @param unit
+	 *            {@link TimeUnit} of the returned value, not {@code null}
+	 * @return time an id without result is remembered
+	 */
+	public long getNegativeTtl(TimeUnit unit) {
+		return unit.convert(negativeTtlNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Default value is {@link #DEFAULT_NEGATIVE_TTL_SECONDS} seconds.
+	 * 
+	 * @param negativeTtl
+	 *            time an id without result is remembered, at least 0
+	 * @param unit
+	 *            {@link TimeUnit} of negativeTtl, not {@code null}
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if negativeTtl is negative
+	 */
+	public LookupResultCache setNegativeTtl(long negativeTtl, TimeUnit unit) {
+		if (negativeTtl < 0) {
+			throw new IllegalArgumentException("negativeTtl can not be negative");
+		}
+		this.negativeTtlNanos = unit.toNanos(negativeTtl);
+		return this;
+	}
+
+	/**
+	 * @return number of ids answered from the cache
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return number of ids looked up with the iTunes API
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return number of requests performed
+	 */
+	public long getRequests() {
+		return requests.get();
+	}
+
+	/**
+	 * @return number of ids removed to stay within the maximum number
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * @return unmodifiable {@link Map} of live {@link CacheStatistics} by
+	 *         {@link Endpoint}, counting ids rather than requests, suitable for
+	 *         {@link CacheMBeans#register}
+	 */
+	public Map<Endpoint, CacheStatistics> getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * @return number of cached ids, including ids without result
+	 */
+	public synchronized int getSize() {
+		return entries.size();
+	}
+
+	private static final class Entry {
+
+		private final Result result;
+		private final long expires;
+
+		private Entry(Result result, long expires) {
+			this.result = result;
+			this.expires = expires;
+		}
+
+	}
+
+}
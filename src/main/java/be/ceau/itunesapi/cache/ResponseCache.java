@@ -0,0 +1,335 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import be.ceau.itunesapi.FeedGenerator;
+import be.ceau.itunesapi.Lookup;
+import be.ceau.itunesapi.Search;
+import be.ceau.itunesapi.http.Connector;
+import be.ceau.itunesapi.http.Endpoint;
+import be.ceau.itunesapi.request.Fingerprint;
+import be.ceau.itunesapi.response.Response;
+import be.ceau.itunesapi.response.feedgenerator.Feed;
+
+/**
+ * Cache of parsed {@link Response} and {@link Feed} instances, so a repeated
+ * request is answered without performing it, and without parsing its
+ * response again.
+ * <p>
+ * Cached instances are frozen before they are stored, and the same instance is
+ * returned to every caller until it expires. Their setters throw
+ * {@link UnsupportedOperationException} and their collections are
+ * unmodifiable. Copy what needs changing.
+ * <p>
+ * Entries are keyed by the 64-bit fingerprint of the request link, see
+ * {@link Fingerprint}, and expire a fixed time after they were stored. Each
+ * entry keeps its link, and a hit compares it to the requested link, so a
+ * collision between fingerprints is a miss rather than a wrong response. A hit
+ * still builds the request link, but does not parse or copy anything. When
+ * the maximum number of entries is exceeded, least recently used entries are
+ * evicted. To also cache the raw responses, or keep them on disk, pass a
+ * {@link CachingConnector} or {@link DiskCachingConnector} as
+ * {@link Connector}.
+ * <p>
+ * Instances are threadsafe.
+ */
+public class ResponseCache {
+
+	/**
+	 * Default maximum of 1000 entries.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+	/**
+	 * Default time to live of 5 minutes.
+	 */
+	public static final long DEFAULT_TTL_SECONDS = 300L;
+
+	private final Connector connector;
+
+	private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	private final Map<Endpoint, CacheStatistics> statistics = CacheStatistics.create();
+
+	private volatile int maxEntries = DEFAULT_MAX_ENTRIES;
+	private volatile long ttlNanos = TimeUnit.SECONDS.toNanos(DEFAULT_TTL_SECONDS);
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param connector
+	 *            {@link Connector} to perform requests with, not {@code null}
+	 * @throws IllegalArgumentException
+	 *             if argument {@code null}
+	 */
+	public ResponseCache(Connector connector) {
+		if (connector == null) {
+			throw new IllegalArgumentException("connector can not be null");
+		}
+		this.connector = connector;
+	}
+
+	/**
+	 * Execute the given {@link Search}, unless its response is cached.
+	 * 
+	 * @param search
+	 *            {@link Search}, not {@code null}
+	 * @return frozen {@link Response}, shared with other callers
+	 * @throws RuntimeException
+	 *             wrapping any {@link java.io.IOException} thrown performing
+	 *             the request or parsing the response
+	 * @see Search#execute(Connector)
+	 */
+	public Response execute(Search search) {
+		String link = search.build();
+		long key = Fingerprint.of(link);
+		Response response = lookup(key, link, Endpoint.SEARCH, Response.class);
+		if (response == null) {
+			long start = System.nanoTime();
+			response = search.execute(connector).freeze();
+			statistics.get(Endpoint.SEARCH).loaded(start);
+			store(key, link, Endpoint.SEARCH, response);
+		}
+		return response;
+	}
+
+	/**
+	 * Execute the given {@link Lookup}, unless its response is cached.
+	 * 
+	 * @param lookup
+	 *            {@link Lookup}, not {@code null}
+	 * @return frozen {@link Response}, shared with other callers
+	 * @throws RuntimeException
+	 *             wrapping any {@link java.io.IOException} thrown performing
+	 *             the request or parsing the response
+	 * @see Lookup#execute(Connector)
+	 */
+	public Response execute(Lookup lookup) {
+		String link = lookup.build();
+		long key = Fingerprint.of(link);
+		Response response = lookup(key, link, Endpoint.LOOKUP, Response.class);
+		if (response == null) {
+			long start = System.nanoTime();
+			response = lookup.execute(connector).freeze();
+			statistics.get(Endpoint.LOOKUP).loaded(start);
+			store(key, link, Endpoint.LOOKUP, response);
+		}
+		return response;
+	}
+
+	/**
+	 * Execute the given {@link FeedGenerator}, unless its response is cached.
+	 * 
+	 * @param feedGenerator
+	 *            {@link FeedGenerator}, not {@code null}
+	 * @return frozen {@link Feed}, shared with other callers
+	 * @throws RuntimeException
+	 *             wrapping any {@link java.io.IOException} thrown performing
+	 *             the request or parsing the response
+	 * @see FeedGenerator#execute(Connector)
+	 */
+	public Feed execute(FeedGenerator feedGenerator) {
+		String link = feedGenerator.getUrl();
+		long key = Fingerprint.of(link);
+		Feed feed = lookup(key, link, Endpoint.FEED, Feed.class);
+		if (feed == null) {
+			long start = System.nanoTime();
+			feed = feedGenerator.execute(connector).freeze();
+			statistics.get(Endpoint.FEED).loaded(start);
+			store(key, link, Endpoint.FEED, feed);
+		}
+		return feed;
+	}
+
+	private synchronized <T> T lookup(long key, String link, Endpoint endpoint, Class<T> type) {
+		CacheStatistics stats = statistics.get(endpoint);
+		Entry entry = entries.get(key);
+		if (entry == null || !entry.link.equals(link) || !type.isInstance(entry.value)) {
+			// a different link with the same fingerprint is replaced on store
+			misses.incrementAndGet();
+			stats.miss();
+			return null;
+		}
+		if (entry.expires - System.nanoTime() <= 0) {
+			entries.remove(key);
+			stats.expired(0L);
+			misses.incrementAndGet();
+			stats.miss();
+			return null;
+		}
+		hits.incrementAndGet();
+		stats.hit();
+		return type.cast(entry.value);
+	}
+
+	private synchronized void store(long key, String link, Endpoint endpoint, Object value) {
+		Entry replaced = entries.put(key, new Entry(link, value, endpoint, System.nanoTime() + ttlNanos));
+		if (replaced != null) {
+			statistics.get(replaced.endpoint).removed(0L);
+		}
+		statistics.get(endpoint).added(0L);
+		trim(maxEntries);
+	}
+
+	private void trim(int max) {
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (entries.size() > max) {
+			Entry evicted = iterator.next();
+			iterator.remove();
+			evictions.incrementAndGet();
+			statistics.get(evicted.endpoint).evicted(0L);
+		}
+	}
+
+	/**
+	 * Remove all cached responses.
+	 */
+	public synchronized void clear() {
+		for (Entry entry : entries.values()) {
+			statistics.get(entry.endpoint).invalidated(0L);
+		}
+		entries.clear();
+	}
+
+	/**
+	 * @return maximum number of cached responses
+	 */
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * Default value is {@link #DEFAULT_MAX_ENTRIES}
+	 * 
+	 * @param maxEntries
+	 *            maximum number of cached responses, at least 0
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if maxEntries is negative
+	 */
+	public ResponseCache setMaxEntries(int maxEntries) {
+		if (maxEntries < 0) {
+			throw new IllegalArgumentException("maxEntries can not be negative");
+		}
+		this.maxEntries = maxEntries;
+		synchronized (this) {
+			trim(maxEntries);
+		}
+		return this;
+	}
+
+	/**
+	 * @param unit
+	 *            {@link TimeUnit} of the returned value, not {@code null}
+	 * @return time a response is kept after it was received
+	 */
+	public long getTtl(TimeUnit unit) {
+		return unit.convert(ttlNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Default value is {@link #DEFAULT_TTL_SECONDS} seconds. Applies to
+	 * responses received after the change.
+	 * 
+	 * @param ttl
+	 *            time a response is kept after it was received, at least 0
+	 * @param unit
+	 *            {@link TimeUnit} of ttl, not {@code null}
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if ttl is negative
+	 */
+	public ResponseCache setTtl(long ttl, TimeUnit unit) {
+		if (ttl < 0) {
+			throw new IllegalArgumentException("ttl can not be negative");
+		}
+		this.ttlNanos = unit.toNanos(ttl);
+		return this;
+	}
+
+	/**
+	 * @return number of requests answered from the cache
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return number of requests performed
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return number of entries removed to stay within the maximum number
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * @param endpoint
+	 *            {@link Endpoint}, not {@code null}
+	 * @return live {@link CacheStatistics} of requests for the given
+	 *         {@link Endpoint}, without a size in bytes
+	 */
+	public CacheStatistics getStatistics(Endpoint endpoint) {
+		return statistics.get(endpoint);
+	}
+
+	/**
+	 * @return unmodifiable {@link Map} of live {@link CacheStatistics} by
+	 *         {@link Endpoint}, suitable for {@link CacheMBeans#register}
+	 */
+	public Map<Endpoint, CacheStatistics> getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * @return number of cached responses
+	 */
+	public synchronized int getSize() {
+		return entries.size();
+	}
+
+	private static final class Entry {
+
+		private final String link;
+		private final Object value;
+		private final Endpoint endpoint;
+		private final long expires;
+
+		private Entry(String link, Object value, Endpoint endpoint, long expires) {
+			this.link = link;
+			this.value = value;
+			this.endpoint = endpoint;
+			this.expires = expires;
+		}
+
+	}
+
+}
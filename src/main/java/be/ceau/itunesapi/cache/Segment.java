@@ -0,0 +1,298 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of cache records, memory-mapped at a fixed capacity.
+ * <p>
+ * Each record consists of a 40 byte header followed by the UTF-8 encoded key,
+ * {@code ETag} and {@code Last-Modified} validators, and the response body.
+ * The header holds a marker, a CRC32 checksum of the rest of the record, the
+ * key hash, the expiry time in milliseconds since the epoch, and the lengths
+ * of key, validators and body. An absent validator has length -1. A record
+ * with expiry time 0
+ * removes the entry for its key. The first position not holding a valid
+ * record marks the end of the segment, so a record only partially written
+ * before a crash is overwritten by the next append.
+ * <p>
+ * Instances are not threadsafe, except that records can be read while
+ * another thread appends.
+ */
+final class Segment implements Closeable {
+
+	static final int HEADER = 40;
+
+	private static final int MARKER = 0x69545331;
+
+	/**
+	 * Callback for {@link Segment#scan(Visitor)}.
+	 */
+	interface Visitor {
+
+		void visit(int offset, int length, long hash, long expires);
+
+	}
+
+	private final long id;
+	private final Path path;
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private int position;
+
+	private Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+		this.id = id;
+		this.path = path;
+		this.channel = channel;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Open or create the segment file at the given path.
+	 * 
+	 * @param id
+	 *            sequence number of the segment
+	 * @param path
+	 *            {@link Path} of the segment file, not {@code null}
+	 * @param capacity
+	 *            size in bytes of a new segment file
+	 * @return {@link Segment}, positioned at the end of its last valid record
+	 * @throws IOException
+	 *             if the file can not be opened or mapped
+	 */
+	static Segment open(long id, Path path, int capacity) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			long size = Math.max(channel.size(), capacity);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (int) Math.min(size, Integer.MAX_VALUE));
+			return new Segment(id, path, channel, buffer);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Encode a record.
+	 * 
+	 * @param hash
+	 *            hash of key
+	 * @param expires
+	 *            expiry time in milliseconds since the epoch, 0 to remove key
+	 * @param key
+	 *            key, not {@code null}
+	 * @param etag
+	 *            {@code ETag} validator, or {@code null}
+	 * @param lastModified
+	 *            {@code Last-Modified} validator, or {@code null}
+	 * @param body
+	 *            body, not {@code null}
+	 * @return the encoded record
+	 */
+	static byte[] record(long hash, long expires, String key, String etag, String lastModified, byte[] body) {
+		byte[] k = key.getBytes(StandardCharsets.UTF_8);
+		byte[] e = etag == null ? null : etag.getBytes(StandardCharsets.UTF_8);
+		byte[] m = lastModified == null ? null : lastModified.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer record = ByteBuffer.allocate(HEADER + k.length + length(e) + length(m) + body.length);
+		record.putInt(MARKER).putInt(0).putLong(hash).putLong(expires);
+		record.putInt(k.length).putInt(e == null ? -1 : e.length).putInt(m == null ? -1 : m.length).putInt(body.length);
+		record.put(k);
+		if (e != null) {
+			record.put(e);
+		}
+		if (m != null) {
+			record.put(m);
+		}
+		record.put(body);
+		CRC32 crc = new CRC32();
+		crc.update(record.array(), 8, record.capacity() - 8);
+		record.putInt(4, (int) crc.getValue());
+		return record.array();
+	}
+
+	private static int length(byte[] bytes) {
+		return bytes == null ? 0 : bytes.length;
+	}
+
+	/**
+	 * Decoded record.
+	 */
+	static final class Record {
+
+		final String key;
+		final String etag;
+		final String lastModified;
+		final byte[] body;
+
+		/**
+		 * @param record
+		 *            record created with
+		 *            {@link Segment#record(long, long, String, String, String, byte[])}
+		 */
+		Record(byte[] record) {
+			ByteBuffer buffer = ByteBuffer.wrap(record);
+			int keyLength = buffer.getInt(24);
+			int etagLength = buffer.getInt(28);
+			int lastModifiedLength = buffer.getInt(32);
+			int offset = HEADER;
+			this.key = new String(record, offset, keyLength, StandardCharsets.UTF_8);
+			offset += keyLength;
+			this.etag = etagLength < 0 ? null : new String(record, offset, etagLength, StandardCharsets.UTF_8);
+			offset += Math.max(0, etagLength);
+			this.lastModified = lastModifiedLength < 0 ? null : new String(record, offset, lastModifiedLength, StandardCharsets.UTF_8);
+			offset += Math.max(0, lastModifiedLength);
+			this.body = Arrays.copyOfRange(record, offset, record.length);
+		}
+
+	}
+
+	/**
+	 * Visit each valid record from the start of the segment, setting the
+	 * append position after the last one.
+	 * 
+	 * @param visitor
+	 *            {@link Visitor}, not {@code null}
+	 */
+	void scan(Visitor visitor) {
+		ByteBuffer view = buffer.duplicate();
+		int offset = 0;
+		CRC32 crc = new CRC32();
+		byte[] bytes = new byte[8192];
+		while (offset + HEADER <= view.capacity() && view.getInt(offset) == MARKER) {
+			int checksum = view.getInt(offset + 4);
+			long hash = view.getLong(offset + 8);
+			long expires = view.getLong(offset + 16);
+			int keyLength = view.getInt(offset + 24);
+			int etagLength = view.getInt(offset + 28);
+			int lastModifiedLength = view.getInt(offset + 32);
+			int bodyLength = view.getInt(offset + 36);
+			if (keyLength < 0 || etagLength < -1 || lastModifiedLength < -1 || bodyLength < 0) {
+				break;
+			}
+			long total = (long) HEADER + keyLength + Math.max(0, etagLength) + Math.max(0, lastModifiedLength) + bodyLength;
+			if (offset + total > view.capacity()) {
+				break;
+			}
+			int length = (int) total;
+			crc.reset();
+			view.position(offset + 8);
+			for (int remaining = length - 8; remaining > 0;) {
+				int n = Math.min(remaining, bytes.length);
+				view.get(bytes, 0, n);
+				crc.update(bytes, 0, n);
+				remaining -= n;
+			}
+			if ((int) crc.getValue() != checksum) {
+				break;
+			}
+			visitor.visit(offset, length, hash, expires);
+			offset += length;
+		}
+		position = offset;
+	}
+
+	/**
+	 * Append a record, if it fits.
+	 * 
+	 * @param record
+	 *            record created with
+	 *            {@link #record(long, long, String, String, String, byte[])}
+	 * @return offset of the record, or -1 if the segment has no room for it
+	 */
+	int append(byte[] record) {
+		if (record.length > buffer.capacity() - position) {
+			return -1;
+		}
+		ByteBuffer view = buffer.duplicate();
+		view.position(position);
+		view.put(record);
+		if (view.remaining() >= 4) {
+			// invalidate whatever a previous run left beyond the new end
+			view.putInt(view.position(), 0);
+		}
+		int offset = position;
+		position += record.length;
+		return offset;
+	}
+
+	/**
+	 * @param offset
+	 *            offset of the record
+	 * @param length
+	 *            total length of the record
+	 * @return copy of the record
+	 */
+	byte[] read(int offset, int length) {
+		ByteBuffer view = buffer.duplicate();
+		view.position(offset);
+		byte[] record = new byte[length];
+		view.get(record);
+		return record;
+	}
+
+	/**
+	 * @return number of bytes holding records
+	 */
+	int size() {
+		return position;
+	}
+
+	/**
+	 * @return number of bytes this segment can hold
+	 */
+	int capacity() {
+		return buffer.capacity();
+	}
+
+	long id() {
+		return id;
+	}
+
+	/**
+	 * Write changes to disk.
+	 */
+	void force() {
+		buffer.force();
+	}
+
+	/**
+	 * Close this segment and delete its file.
+	 * 
+	 * @throws IOException
+	 *             if the file can not be deleted
+	 */
+	void delete() throws IOException {
+		close();
+		Files.deleteIfExists(path);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+}
@@ -0,0 +1,42 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Interface wrapping asynchronous HTTP connection logic. Whether a thread is
+ * held while waiting on the network depends on the implementation:
+ * {@link ExecutorAsyncConnector} blocks one thread per request in flight, while
+ * an implementation building on an asynchronous HTTP client library need not.
+ * 
+ * @see ExecutorAsyncConnector
+ */
+public interface AsyncConnector {
+
+	/**
+	 * Start an HTTP request. Return a future completing with the full response
+	 * body.
+	 * 
+	 * @param link
+	 *            a full link, including scheme
+	 * @return {@link CompletableFuture} completing with the server response
+	 *         body, or completing exceptionally with the {@link java.io.IOException}
+	 *         that occurred with the connection, never {@code null}
+	 */
+	public CompletableFuture<byte[]> getAsync(String link);
+
+}
@@ -0,0 +1,165 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Threadsafe circuit breaker state machine.
+ * <p>
+ * While {@link State#CLOSED}, all calls are permitted. After
+ * {@code failureThreshold} consecutive failures, the breaker opens. While
+ * {@link State#OPEN}, all calls are refused. Once {@code openDuration} has
+ * passed, the breaker goes {@link State#HALF_OPEN} and permits up to
+ * {@code trialCalls} calls at the same time. When that many trial calls have
+ * succeeded, the breaker closes again, a single failing trial call opens it
+ * again.
+ */
+public class CircuitBreaker {
+
+	/**
+	 * State of a {@link CircuitBreaker}
+	 */
+	public enum State {
+		CLOSED,
+		OPEN,
+		HALF_OPEN;
+	}
+
+	private final int failureThreshold;
+	private final long openDurationNanos;
+	private final int trialCalls;
+
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private long openedAt;
+	private int trialsInFlight;
+	private int trialSuccesses;
+	private long rejected;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param failureThreshold
+	 *            number of consecutive failures opening the breaker, at least 1
+	 * @param openDuration
+	 *            time the breaker stays open before permitting trial calls, at
+	 *            least 0
+	 * @param unit
+	 *            {@link TimeUnit} of openDuration, not {@code null}
+	 * @param trialCalls
+	 *            number of successful trial calls closing the breaker, at least 1
+	 * @throws IllegalArgumentException
+	 *             if an argument is out of range
+	 */
+	public CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit, int trialCalls) {
+		if (failureThreshold < 1) {
+			throw new IllegalArgumentException("failureThreshold must be at least 1");
+		}
+		if (openDuration < 0) {
+			throw new IllegalArgumentException("openDuration can not be negative");
+		}
+		if (trialCalls < 1) {
+			throw new IllegalArgumentException("trialCalls must be at least 1");
+		}
+		this.failureThreshold = failureThreshold;
+		this.openDurationNanos = unit.toNanos(openDuration);
+		this.trialCalls = trialCalls;
+	}
+
+	/**
+	 * Ask permission for a call. Every permitted call must be followed by
+	 * exactly one call to {@link #onSuccess()} or {@link #onFailure()}.
+	 * 
+	 * @return {@code true} if the call may be made
+	 */
+	public synchronized boolean tryAcquire() {
+		if (state == State.OPEN) {
+			if (System.nanoTime() - openedAt < openDurationNanos) {
+				rejected++;
+				return false;
+			}
+			state = State.HALF_OPEN;
+			trialsInFlight = 0;
+			trialSuccesses = 0;
+		}
+		if (state == State.HALF_OPEN) {
+			if (trialsInFlight >= trialCalls - trialSuccesses) {
+				rejected++;
+				return false;
+			}
+			trialsInFlight++;
+		}
+		return true;
+	}
+
+	/**
+	 * Record a successful call.
+	 */
+	public synchronized void onSuccess() {
+		if (state == State.HALF_OPEN) {
+			trialsInFlight = Math.max(0, trialsInFlight - 1);
+			if (++trialSuccesses >= trialCalls) {
+				state = State.CLOSED;
+			}
+		}
+		if (state == State.CLOSED) {
+			consecutiveFailures = 0;
+		}
+	}
+
+	/**
+	 * Record a failed call.
+	 */
+	public synchronized void onFailure() {
+		switch (state) {
+		case HALF_OPEN:
+			open();
+			break;
+		case CLOSED:
+			if (++consecutiveFailures >= failureThreshold) {
+				open();
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void open() {
+		state = State.OPEN;
+		openedAt = System.nanoTime();
+		consecutiveFailures = 0;
+	}
+
+	/**
+	 * @return current {@link State}, never {@code null}
+	 */
+	public synchronized State getState() {
+		if (state == State.OPEN && System.nanoTime() - openedAt >= openDurationNanos) {
+			return State.HALF_OPEN;
+		}
+		return state;
+	}
+
+	/**
+	 * @return number of calls refused so far
+	 */
+	public synchronized long getRejected() {
+		return rejected;
+	}
+
+}
@@ -0,0 +1,229 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link Connector} decorator failing fast while an iTunes API is unhealthy.
+ * <p>
+ * Each {@link Endpoint} has its own {@link CircuitBreaker}, so a failing Feed
+ * Generator API does not block Lookup requests. Throttling, server errors,
+ * timeouts and network failures, as classified by
+ * {@link FailureType#of(IOException)}, count as failures. While a breaker is
+ * open, requests to its {@link Endpoint} throw {@link CircuitOpenException}
+ * without reaching the network.
+ * <p>
+ * A request counts as successful once its response body has been read to the
+ * end without error.
+ * <p>
+ * Instances are threadsafe.
+ */
+public class CircuitBreakerConnector extends ForwardingConnector {
+
+	private final Map<Endpoint, CircuitBreaker> breakers = new EnumMap<>(Endpoint.class);
+
+	/**
+	 * Constructor opening a breaker after 5 consecutive failures, for 30
+	 * seconds, then closing it after 1 successful trial request.
+	 * 
+	 * @param delegate
+	 *            {@link Connector} to forward requests to, not {@code null}
+	 * @throws IllegalArgumentException
+	 *             if argument {@code null}
+	 */
+	public CircuitBreakerConnector(Connector delegate) {
+		this(delegate, 5, 30, TimeUnit.SECONDS, 1);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param delegate
+	 *            {@link Connector} to forward requests to, not {@code null}
+	 * @param failureThreshold
+	 *            number of consecutive failures opening a breaker, at least 1
+	 * @param openDuration
+	 *            time a breaker stays open before permitting trial requests, at
+	 *            least 0
+	 * @param unit
+	 *            {@link TimeUnit} of openDuration, not {@code null}
+	 * @param trialRequests
+	 *            number of successful trial requests closing a breaker, at least
+	 *            1
+	 * @throws IllegalArgumentException
+	 *             if an argument is {@code null} or out of range
+	 */
+	public CircuitBreakerConnector(Connector delegate, int failureThreshold, long openDuration, TimeUnit unit, int trialRequests) {
+		super(delegate);
+		for (Endpoint endpoint : Endpoint.values()) {
+			breakers.put(endpoint, new CircuitBreaker(failureThreshold, openDuration, unit, trialRequests));
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @throws CircuitOpenException
+	 *             if the {@link CircuitBreaker} for the {@link Endpoint} of the
+	 *             given link is open
+	 */
+	@Override
+	public InputStream open(String link) throws IOException {
+		Endpoint endpoint = Endpoint.of(link);
+		CircuitBreaker breaker = breakers.get(endpoint);
+		if (!breaker.tryAcquire()) {
+			throw new CircuitOpenException(endpoint, link);
+		}
+		try {
+			return new MonitoredInputStream(delegate.open(link), breaker);
+		} catch (IOException e) {
+			record(breaker, e);
+			throw e;
+		} catch (RuntimeException e) {
+			breaker.onFailure();
+			throw e;
+		}
+	}
+
+	private static void record(CircuitBreaker breaker, IOException e) {
+		switch (FailureType.of(e)) {
+		case CLIENT_ERROR:
+		case REJECTED:
+			breaker.onSuccess();
+			break;
+		default:
+			breaker.onFailure();
+			break;
+		}
+	}
+
+	/**
+	 * @param endpoint
+	 *            {@link Endpoint}, not {@code null}
+	 * @return {@link CircuitBreaker} guarding the given {@link Endpoint}
+	 */
+	public CircuitBreaker getCircuitBreaker(Endpoint endpoint) {
+		return breakers.get(endpoint);
+	}
+
+	/**
+	 * Response body reporting the outcome of the request to a
+	 * {@link CircuitBreaker} once: as soon as its end is reached or reading it
+	 * fails, or when it is closed, whichever comes first. A half-open trial is
+	 * so released without waiting for the caller to close the body.
+	 */
+	private static class MonitoredInputStream extends FilterInputStream {
+
+		private final CircuitBreaker breaker;
+		private final AtomicBoolean reported = new AtomicBoolean();
+
+		MonitoredInputStream(InputStream in, CircuitBreaker breaker) {
+			super(in);
+			this.breaker = breaker;
+		}
+
+		@Override
+		public int read() throws IOException {
+			try {
+				int b = super.read();
+				if (b == -1) {
+					success();
+				}
+				return b;
+			} catch (IOException e) {
+				failure(e);
+				throw e;
+			} catch (RuntimeException e) {
+				failure();
+				throw e;
+			}
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			try {
+				int n = super.read(b, off, len);
+				if (n == -1) {
+					success();
+				}
+				return n;
+			} catch (IOException e) {
+				failure(e);
+				throw e;
+			} catch (RuntimeException e) {
+				failure();
+				throw e;
+			}
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			try {
+				return super.skip(n);
+			} catch (IOException e) {
+				failure(e);
+				throw e;
+			} catch (RuntimeException e) {
+				failure();
+				throw e;
+			}
+		}
+
+		@Override
+		public int available() throws IOException {
+			try {
+				return super.available();
+			} catch (IOException e) {
+				failure(e);
+				throw e;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			// a body closed before its end was not needed in full
+			success();
+			super.close();
+		}
+
+		private void success() {
+			if (reported.compareAndSet(false, true)) {
+				breaker.onSuccess();
+			}
+		}
+
+		private void failure(IOException e) {
+			if (reported.compareAndSet(false, true)) {
+				record(breaker, e);
+			}
+		}
+
+		private void failure() {
+			if (reported.compareAndSet(false, true)) {
+				breaker.onFailure();
+			}
+		}
+
+	}
+
+}
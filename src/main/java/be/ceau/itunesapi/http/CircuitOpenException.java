@@ -0,0 +1,50 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.IOException;
+
+/**
+ * {@link IOException} thrown by {@link CircuitBreakerConnector} when it refuses
+ * to make a request because its {@link CircuitBreaker} is open.
+ */
+public class CircuitOpenException extends IOException {
+
+	private static final long serialVersionUID = 1760745600003L;
+
+	private final Endpoint endpoint;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param endpoint
+	 *            {@link Endpoint} of the refused request
+	 * @param link
+	 *            the refused link
+	 */
+	public CircuitOpenException(Endpoint endpoint, String link) {
+		super("circuit breaker for " + endpoint + " is open, refused " + link);
+		this.endpoint = endpoint;
+	}
+
+	/**
+	 * @return {@link Endpoint} of the refused request
+	 */
+	public Endpoint getEndpoint() {
+		return endpoint;
+	}
+
+}
@@ -0,0 +1,213 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Connector} decorator letting concurrent requests for the same link
+ * share a single request.
+ * <p>
+ * A request is performed for the first caller of a link, reading the response
+ * body into memory. Callers asking for the same link before that completes
+ * wait for it, and receive the same body, or the same failure. Links are
+ * compared exactly as given, without canonicalization: links differing only
+ * in the order of their parameters are requested separately. Bodies are
+ * shared as bytes, so each caller still parses its own copy.
+ * <p>
+ * The shared request does not run under the {@link Deadline} of any caller,
+ * so a caller with little time left does not fail the others. Given an
+ * {@link Executor}, the shared request runs on it, and every caller stops
+ * waiting when its own {@link Deadline} passes. Without one, the shared request
+ * runs on the thread of the first caller, which waits for it to complete
+ * regardless of its {@link Deadline}.
+ * <p>
+ * Conditional requests made for a {@link Revalidation} are never shared. The
+ * validators of a shared response are reported to the {@link Revalidation}
+ * of each caller.
+ * <p>
+ * Instances are threadsafe.
+ */
+public class CoalescingConnector extends ForwardingConnector {
+
+	private final Executor executor;
+
+	private final ConcurrentMap<String, Shared> inFlight = new ConcurrentHashMap<>();
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+
+	/**
+	 * Constructor, performing shared requests on the thread of their first
+	 * caller.
+	 * 
+	 * @param delegate
+	 *            {@link Connector} to forward requests to, not {@code null}
+	 * @throws IllegalArgumentException
+	 *             if argument {@code null}
+	 */
+	public CoalescingConnector(Connector delegate) {
+		super(delegate);
+		this.executor = null;
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param delegate
+	 *            {@link Connector} to forward requests to, not {@code null}
+	 * @param executor
+	 *            {@link Executor} to perform shared requests on, not
+	 *            {@code null}
+	 * @throws IllegalArgumentException
+	 *             if any argument {@code null}
+	 */
+	public CoalescingConnector(Connector delegate, Executor executor) {
+		super(delegate);
+		if (executor == null) {
+			throw new IllegalArgumentException("executor can not be null");
+		}
+		this.executor = executor;
+	}
+
+	@Override
+	public InputStream open(final String link) throws IOException {
+		requests.incrementAndGet();
+		Revalidation revalidation = Revalidation.current();
+		if (revalidation != null && revalidation.isConditional()) {
+			// the body of a conditional request is only meaningful to its caller
+			return delegate.open(link);
+		}
+		Shared shared = new Shared(link);
+		Shared existing = inFlight.putIfAbsent(link, shared);
+		if (existing == null) {
+			if (executor == null) {
+				shared.run();
+			} else {
+				try {
+					executor.execute(shared);
+				} catch (RejectedExecutionException e) {
+					shared.run();
+				}
+			}
+		} else {
+			coalesced.incrementAndGet();
+			shared = existing;
+		}
+		byte[] body = await(shared.task);
+		if (revalidation != null && shared.validators.isCompleted()) {
+			revalidation.complete(false, shared.validators.getResponseEtag(), shared.validators.getResponseLastModified());
+		}
+		return new ByteArrayInputStream(body);
+	}
+
+	/**
+	 * Request shared by all callers of a link, performed without
+	 * {@link Deadline}.
+	 */
+	private final class Shared implements Runnable {
+
+		private final String link;
+		private final Revalidation validators = new Revalidation(null, null);
+		private final FutureTask<byte[]> task;
+
+		private Shared(final String link) {
+			this.link = link;
+			this.task = new FutureTask<>(new Callable<byte[]>() {
+				@Override
+				public byte[] call() throws IOException {
+					return Connectors.read(delegate.open(link));
+				}
+			});
+		}
+
+		@Override
+		public void run() {
+			Deadline previous = Deadline.current();
+			Deadline.restore(null);
+			Revalidation previousRevalidation = validators.attach();
+			try {
+				task.run();
+			} finally {
+				inFlight.remove(link, this);
+				Revalidation.restore(previousRevalidation);
+				Deadline.restore(previous);
+			}
+		}
+
+	}
+
+	private static byte[] await(FutureTask<byte[]> task) throws IOException {
+		Deadline deadline = Deadline.current();
+		try {
+			if (deadline == null) {
+				return task.get();
+			}
+			return task.get(deadline.remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			throw new DeadlineExceededException();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for a shared request");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * @return number of requests received
+	 */
+	public long getRequests() {
+		return requests.get();
+	}
+
+	/**
+	 * @return number of requests that shared the request of another caller
+	 */
+	public long getCoalesced() {
+		return coalesced.get();
+	}
+
+	/**
+	 * @return number of distinct links currently being requested
+	 */
+	public int getInFlight() {
+		return inFlight.size();
+	}
+
+}
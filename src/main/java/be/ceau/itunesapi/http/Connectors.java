@@ -0,0 +1,107 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Static helpers for working with {@link Connector} implementations.
+ */
+public final class Connectors {
+
+	private Connectors() {
+	}
+
+	/**
+	 * Perform an HTTP request using the given {@link Connector}, returning the
+	 * response body as {@link InputStream}. A {@link StreamConnector} streams
+	 * the body directly, any other {@link Connector} has its {@link String}
+	 * response encoded as UTF-8.
+	 * 
+	 * @param connector
+	 *            {@link Connector} implementation, not {@code null}
+	 * @param link
+	 *            a full link, including scheme
+	 * @return server response body as {@link InputStream}, never {@code null}
+	 * @throws IOException
+	 *             as thrown by the {@link Connector}
+	 */
+	public static InputStream open(Connector connector, String link) throws IOException {
+		if (connector instanceof StreamConnector) {
+			return ((StreamConnector) connector).open(link);
+		}
+		return new ByteArrayInputStream(connector.get(link).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Adapt the given {@link Connector} to the {@link StreamConnector}
+	 * interface.
+	 * 
+	 * @param connector
+	 *            {@link Connector} implementation, not {@code null}
+	 * @return the argument if it is a {@link StreamConnector}, otherwise a
+	 *         {@link StreamConnector} delegating to it
+	 * @throws IllegalArgumentException
+	 *             if argument {@code null}
+	 */
+	public static StreamConnector stream(final Connector connector) {
+		if (connector == null) {
+			throw new IllegalArgumentException("connector can not be null");
+		}
+		if (connector instanceof StreamConnector) {
+			return (StreamConnector) connector;
+		}
+		return new StreamConnector() {
+
+			@Override
+			public String get(String link) throws IOException {
+				return connector.get(link);
+			}
+
+			@Override
+			public InputStream open(String link) throws IOException {
+				return Connectors.open(connector, link);
+			}
+
+		};
+	}
+
+	/**
+	 * Read the given stream to the end, then close it.
+	 * 
+	 * @param in
+	 *            {@link InputStream}, not {@code null}
+	 * @return all remaining bytes, never {@code null}
+	 * @throws IOException
+	 *             as thrown by the stream
+	 */
+	public static byte[] read(InputStream in) throws IOException {
+		try (InputStream is = in) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = is.read(buffer)) != -1) {
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		}
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time by which a request must have completed.
+ * <p>
+ * A {@link Deadline} is attached to the thread performing a request, by the
+ * {@code execute} methods accepting one, or by calling {@link #attach()}.
+ * Connectors in this package read it through {@link #current()}: they shorten
+ * their timeouts to the remaining time, stop retrying or waiting once it has
+ * passed, and carry it over to the threads they hand work to.
+ * <p>
+ * Instances are immutable.
+ */
+public final class Deadline {
+
+	private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+	private final long nanoTime;
+
+	private Deadline(long nanoTime) {
+		this.nanoTime = nanoTime;
+	}
+
+	/**
+	 * @param duration
+	 *            time from now, at least 0
+	 * @param unit
+	 *            {@link TimeUnit} of duration, not {@code null}
+	 * @return new {@link Deadline} the given time from now
+	 * @throws IllegalArgumentException
+	 *             if duration is negative
+	 */
+	public static Deadline after(long duration, TimeUnit unit) {
+		if (duration < 0) {
+			throw new IllegalArgumentException("duration can not be negative");
+		}
+		return new Deadline(System.nanoTime() + unit.toNanos(duration));
+	}
+
+	/**
+	 * @return the {@link Deadline} attached to the current thread, or
+	 *         {@code null}
+	 */
+	public static Deadline current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Attach this {@link Deadline} to the current thread. If an earlier
+	 * {@link Deadline} is already attached, it stays in effect. Always restore
+	 * the previous state afterwards:
+	 * 
+	 * <pre>
+	 * Deadline previous = deadline.attach();
+	 * try {
+	 * 	...
+	 * } finally {
+	 * 	Deadline.restore(previous);
+	 * }
+	 * </pre>
+	 * 
+	 * @return the {@link Deadline} previously attached, or {@code null}
+	 */
+	public Deadline attach() {
+		Deadline previous = CURRENT.get();
+		if (previous == null || nanoTime - previous.nanoTime < 0) {
+			CURRENT.set(this);
+		}
+		return previous;
+	}
+
+	/**
+	 * @param previous
+	 *            value returned by {@link #attach()}, can be {@code null}
+	 */
+	public static void restore(Deadline previous) {
+		if (previous == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(previous);
+		}
+	}
+
+	/**
+	 * @param unit
+	 *            {@link TimeUnit} of the returned value, not {@code null}
+	 * @return time left until this {@link Deadline}, 0 if it has passed
+	 */
+	public long remaining(TimeUnit unit) {
+		return unit.convert(Math.max(0, nanoTime - System.nanoTime()), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @return {@code true} if this {@link Deadline} has passed
+	 */
+	public boolean isExpired() {
+		return nanoTime - System.nanoTime() <= 0;
+	}
+
+	/**
+	 * @throws DeadlineExceededException
+	 *             if this {@link Deadline} has passed
+	 */
+	public void check() throws DeadlineExceededException {
+		if (isExpired()) {
+			throw new DeadlineExceededException();
+		}
+	}
+
+	/**
+	 * @param timeoutMillis
+	 *            a timeout in milliseconds, 0 meaning infinite
+	 * @return the given timeout, shortened to the time left until the
+	 *         {@link Deadline} attached to the current thread, if any
+	 * @throws DeadlineExceededException
+	 *             if the {@link Deadline} attached to the current thread has
+	 *             passed
+	 */
+	static int timeout(int timeoutMillis) throws DeadlineExceededException {
+		Deadline deadline = current();
+		if (deadline == null) {
+			return timeoutMillis;
+		}
+		long remaining = deadline.remaining(TimeUnit.MILLISECONDS);
+		if (remaining <= 0) {
+			throw new DeadlineExceededException();
+		}
+		if (timeoutMillis == 0 || remaining < timeoutMillis) {
+			return (int) Math.min(Integer.MAX_VALUE, remaining);
+		}
+		return timeoutMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "Deadline [remaining=" + remaining(TimeUnit.MILLISECONDS) + "ms]";
+	}
+
+}
@@ -0,0 +1,255 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link FilterInputStream} refusing to read once a {@link Deadline} has
+ * passed.
+ * <p>
+ * The read timeout of a connection is fixed when it is opened, so a read that
+ * starts later may block past the {@link Deadline}. Reads are performed
+ * directly as long as the read timeout ends before the {@link Deadline}, or
+ * as far as bytes have already arrived. Otherwise the rest of the body is read
+ * at once on one of {@value #MAX_READERS} shared helper threads, and the
+ * caller stops waiting for it when the {@link Deadline} passes. An abandoned
+ * helper is released by the read timeout, and then closes the stream.
+ * <p>
+ * Closing the stream or disconnecting the connection from another thread does
+ * not help: both wait for a blocked read to return.
+ */
+class DeadlineInputStream extends FilterInputStream {
+
+	/**
+	 * Maximum number of helper threads reading bodies
+	 */
+	static final int MAX_READERS = 16;
+
+	private static final class Holder {
+
+		private static final ThreadPoolExecutor READERS = new ThreadPoolExecutor(MAX_READERS, MAX_READERS,
+				60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "itunes-deadline-reader");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+
+		static {
+			READERS.allowCoreThreadTimeOut(true);
+		}
+
+	}
+
+	private final Deadline deadline;
+	private final long readTimeoutMillis;
+
+	// guards the fields below, shared with the helper thread
+	private final Object lock = new Object();
+	private boolean started;
+	private boolean finished;
+	// set once the caller stopped waiting for the helper thread
+	private boolean expired;
+	// set if the helper thread still reads, and closes the stream when done
+	private boolean abandoned;
+
+	// rest of the body, once read by a helper thread
+	private InputStream drained;
+
+	/**
+	 * @param in
+	 *            {@link InputStream} to read from
+	 * @param deadline
+	 *            {@link Deadline}, not {@code null}
+	 * @param readTimeoutMillis
+	 *            read timeout of the underlying connection in milliseconds,
+	 *            bounding how long an abandoned read holds a helper thread
+	 * @throws IllegalArgumentException
+	 *             if readTimeoutMillis is not positive
+	 */
+	DeadlineInputStream(InputStream in, Deadline deadline, int readTimeoutMillis) {
+		super(in);
+		if (readTimeoutMillis <= 0) {
+			throw new IllegalArgumentException("readTimeoutMillis must be positive");
+		}
+		this.deadline = deadline;
+		this.readTimeoutMillis = readTimeoutMillis;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (drained == null && readable(1) == 0) {
+			drain();
+		}
+		return drained == null ? in.read() : drained.read();
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (drained == null) {
+			int n = readable(len);
+			if (n > 0) {
+				return in.read(b, off, n);
+			}
+			drain();
+		}
+		return drained.read(b, off, len);
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		if (n <= 0) {
+			return 0;
+		}
+		if (drained == null) {
+			int k = readable((int) Math.min(n, Integer.MAX_VALUE));
+			if (k > 0) {
+				return in.skip(k);
+			}
+			drain();
+		}
+		return drained.skip(n);
+	}
+
+	/**
+	 * @return number of bytes, at most len, that can be read directly without
+	 *         blocking past the {@link Deadline}
+	 */
+	private int readable(int len) throws IOException {
+		if (isExpired()) {
+			throw new DeadlineExceededException();
+		}
+		deadline.check();
+		if (readTimeoutMillis <= deadline.remaining(TimeUnit.MILLISECONDS)) {
+			return len;
+		}
+		return Math.min(len, in.available());
+	}
+
+	/**
+	 * Read the rest of the body on a helper thread, waiting until the
+	 * {@link Deadline} at most.
+	 */
+	private void drain() throws IOException {
+		Future<byte[]> future = Holder.READERS.submit(new Callable<byte[]>() {
+			@Override
+			public byte[] call() throws IOException {
+				synchronized (lock) {
+					if (expired) {
+						return null;
+					}
+					started = true;
+				}
+				try {
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					byte[] buffer = new byte[8192];
+					int n;
+					while ((n = in.read(buffer)) >= 0) {
+						out.write(buffer, 0, n);
+					}
+					return out.toByteArray();
+				} finally {
+					synchronized (lock) {
+						finished = true;
+						if (abandoned) {
+							in.close();
+						}
+					}
+				}
+			}
+		});
+		try {
+			drained = new ByteArrayInputStream(future.get(deadline.remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS));
+		} catch (TimeoutException e) {
+			abandon(future);
+			throw new DeadlineExceededException();
+		} catch (InterruptedException e) {
+			abandon(future);
+			Thread.currentThread().interrupt();
+			throw new DeadlineExceededException();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private void abandon(Future<byte[]> future) {
+		future.cancel(false);
+		synchronized (lock) {
+			expired = true;
+			abandoned = started && !finished;
+		}
+	}
+
+	private boolean isExpired() {
+		synchronized (lock) {
+			return expired;
+		}
+	}
+
+	@Override
+	public int available() throws IOException {
+		if (drained != null) {
+			return drained.available();
+		}
+		return isExpired() ? 0 : in.available();
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (lock) {
+			if (abandoned) {
+				return;
+			}
+			if (expired) {
+				// closing reads what is left of the body, which may block
+				Holder.READERS.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							in.close();
+						} catch (IOException e) {
+							// connection will not be reused
+						}
+					}
+				});
+				return;
+			}
+		}
+		super.close();
+	}
+
+}
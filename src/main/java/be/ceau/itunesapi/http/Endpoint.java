@@ -0,0 +1,85 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Locale;
+
+/**
+ * The iTunes API a link belongs to.
+ */
+public enum Endpoint {
+
+	/**
+	 * Search API, {@code https://itunes.apple.com/search}
+	 */
+	SEARCH,
+
+	/**
+	 * Lookup API, {@code https://itunes.apple.com/lookup}
+	 */
+	LOOKUP,
+
+	/**
+	 * Feed Generator API, {@code https://rss.itunes.apple.com}
+	 */
+	FEED,
+
+	/**
+	 * Genre IDs Appendix API,
+	 * {@code https://itunes.apple.com/WebObjects/MZStoreServices.woa/ws/genres}
+	 */
+	GENRES,
+
+	/**
+	 * Any other link
+	 */
+	OTHER;
+
+	/**
+	 * @param link
+	 *            a full link, including scheme, can be {@code null}
+	 * @return matching {@link Endpoint}, never {@code null}
+	 */
+	public static Endpoint of(String link) {
+		if (link == null) {
+			return OTHER;
+		}
+		URL url;
+		try {
+			url = new URL(link);
+		} catch (MalformedURLException e) {
+			return OTHER;
+		}
+		String host = url.getHost().toLowerCase(Locale.ENGLISH);
+		String path = url.getPath();
+		if (host.startsWith("rss.")) {
+			return FEED;
+		}
+		if (path.startsWith("/search")) {
+			return SEARCH;
+		}
+		if (path.startsWith("/lookup")) {
+			return LOOKUP;
+		}
+		if (path.endsWith("/ws/genres")) {
+			return GENRES;
+		}
+		return OTHER;
+	}
+
+}
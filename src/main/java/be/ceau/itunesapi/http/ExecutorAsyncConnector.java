@@ -0,0 +1,78 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Blocking adapter exposing a {@link Connector} as an {@link AsyncConnector}
+ * by running it on an {@link Executor}. This does not make requests
+ * non-blocking: each request in flight occupies one thread of that
+ * {@link Executor} for its full duration, so the {@link Executor} bounds the
+ * number of concurrent requests. It only frees the calling thread.
+ * <p>
+ * The {@link Deadline} and {@link Revalidation} attached to the thread calling
+ * {@link #getAsync(String)} are attached to the thread performing the request.
+ */
+public class ExecutorAsyncConnector implements AsyncConnector {
+
+	private final StreamConnector connector;
+	private final Executor executor;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param connector
+	 *            {@link Connector} to perform requests with, not {@code null}
+	 * @param executor
+	 *            {@link Executor} to perform requests on, not {@code null}
+	 * @throws IllegalArgumentException
+	 *             if an argument is {@code null}
+	 */
+	public ExecutorAsyncConnector(Connector connector, Executor executor) {
+		if (executor == null) {
+			throw new IllegalArgumentException("executor can not be null");
+		}
+		this.connector = Connectors.stream(connector);
+		this.executor = executor;
+	}
+
+	@Override
+	public CompletableFuture<byte[]> getAsync(final String link) {
+		final Deadline deadline = Deadline.current();
+		final Revalidation revalidation = Revalidation.current();
+		return CompletableFuture.supplyAsync(new Supplier<byte[]>() {
+			@Override
+			public byte[] get() {
+				Deadline previous = deadline == null ? Deadline.current() : deadline.attach();
+				Revalidation previousRevalidation = revalidation == null ? Revalidation.current() : revalidation.attach();
+				try {
+					return Connectors.read(connector.open(link));
+				} catch (IOException e) {
+					throw new CompletionException(e);
+				} finally {
+					Revalidation.restore(previousRevalidation);
+					Deadline.restore(previous);
+				}
+			}
+		}, executor);
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+
+/**
+ * Classification of the {@link IOException} thrown by a {@link Connector}.
+ */
+public enum FailureType {
+
+	/**
+	 * The server refused the request because too many requests were made. Apple
+	 * answers with HTTP status 403 when its rate limit is exceeded.
+	 */
+	THROTTLED(true),
+
+	/**
+	 * The server responded with an HTTP 5xx status.
+	 */
+	SERVER_ERROR(true),
+
+	/**
+	 * Connecting or reading took too long.
+	 */
+	TIMEOUT(true),
+
+	/**
+	 * The connection could not be made or was lost.
+	 */
+	NETWORK(true),
+
+	/**
+	 * The request is invalid, repeating it will not help.
+	 */
+	CLIENT_ERROR(false),
+
+	/**
+	 * The request was not made, because a {@link CircuitBreaker} refused it.
+	 */
+	REJECTED(false);
+
+	private final boolean retryable;
+
+	private FailureType(boolean retryable) {
+		this.retryable = retryable;
+	}
+
+	/**
+	 * @return {@code true} if repeating the request may succeed
+	 */
+	public boolean isRetryable() {
+		return retryable;
+	}
+
+	/**
+	 * @param e
+	 *            {@link IOException} thrown by a {@link Connector}, not
+	 *            {@code null}
+	 * @return matching {@link FailureType}, never {@code null}
+	 */
+	public static FailureType of(IOException e) {
+		if (e instanceof HttpStatusException) {
+			int status = ((HttpStatusException) e).getStatus();
+			if (status == 403 || status == 429) {
+				return THROTTLED;
+			}
+			if (status >= 500) {
+				return SERVER_ERROR;
+			}
+			return CLIENT_ERROR;
+		}
+		if (e instanceof CircuitOpenException) {
+			return REJECTED;
+		}
+		if (e instanceof SocketTimeoutException || e instanceof DeadlineExceededException) {
+			return TIMEOUT;
+		}
+		if (e instanceof MalformedURLException) {
+			return CLIENT_ERROR;
+		}
+		return NETWORK;
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Base class for {@link Connector} implementations decorating another
+ * {@link Connector}. By default, every request is forwarded to the delegate.
+ * Subclasses override {@link #open(String)} to add behavior, {@link #get(String)}
+ * is implemented on top of it.
+ */
+public abstract class ForwardingConnector implements StreamConnector {
+
+	/**
+	 * The decorated {@link Connector}, never {@code null}
+	 */
+	protected final StreamConnector delegate;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param delegate
+	 *            {@link Connector} to forward requests to, not {@code null}
+	 * @throws IllegalArgumentException
+	 *             if argument {@code null}
+	 */
+	protected ForwardingConnector(Connector delegate) {
+		this.delegate = Connectors.stream(delegate);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Reads the {@link InputStream} returned by {@link #open(String)} as UTF-8.
+	 */
+	@Override
+	public String get(String link) throws IOException {
+		return new String(Connectors.read(open(link)), StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public InputStream open(String link) throws IOException {
+		return delegate.open(link);
+	}
+
+}
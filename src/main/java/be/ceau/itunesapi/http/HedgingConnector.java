@@ -0,0 +1,394 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link Connector} decorator reducing tail latency by hedging slow requests.
+ * <p>
+ * Each request is performed on the given {@link Executor}. If it has not
+ * completed after a delay, a second, identical request is started, and the
+ * response of whichever completes first is returned. The other request is
+ * cancelled, closing its response body so its transfer is aborted. The delay is the {@code percentile} of recently observed
+ * latencies, so only the slowest requests are hedged. No request is hedged
+ * until {@value #MIN_SAMPLES} latencies have been observed.
+ * <p>
+ * Hedges are drawn from a {@link RetryBudget}, which caps the number of extra
+ * requests at a fraction of regular requests. When combined with a
+ * {@link RateLimitingConnector}, let this class decorate it, so that hedges
+ * take their share of the rate limit.
+ * <p>
+ * The {@link Deadline} attached to the calling thread is attached to the
+ * threads performing its requests, and waiting for a response stops when it
+ * passes. Each request gets a copy of the {@link Revalidation} attached to the
+ * calling thread, and only the outcome of the request whose response is
+ * returned is reported to it.
+ * <p>
+ * All requests made by the Connector implementations in this library are
+ * idempotent GET requests. Instances are threadsafe.
+ */
+public class HedgingConnector extends ForwardingConnector {
+
+	private static final Logger logger = LoggerFactory.getLogger(HedgingConnector.class);
+
+	/**
+	 * Number of latencies to observe before hedging
+	 */
+	public static final int MIN_SAMPLES = 20;
+
+	private static final int WINDOW = 256;
+
+	private final Executor executor;
+
+	private final long[] latencies = new long[WINDOW];
+	private long samples;
+
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong hedged = new AtomicLong();
+	private final AtomicLong hedgeWins = new AtomicLong();
+
+	private volatile double percentile = 0.95;
+	private volatile long minDelayNanos = TimeUnit.MILLISECONDS.toNanos(10);
+	private volatile RetryBudget budget = new RetryBudget(0.05, 10);
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param delegate
+	 *            {@link Connector} to forward requests to, not {@code null}
+	 * @param executor
+	 *            {@link Executor} to perform requests on, not {@code null}
+	 * @throws IllegalArgumentException
+	 *             if an argument is {@code null}
+	 */
+	public HedgingConnector(Connector delegate, Executor executor) {
+		super(delegate);
+		if (executor == null) {
+			throw new IllegalArgumentException("executor can not be null");
+		}
+		this.executor = executor;
+	}
+
+	@Override
+	public InputStream open(final String link) throws IOException {
+		requests.incrementAndGet();
+		budget.onRequest();
+		final long start = System.nanoTime();
+		Deadline deadline = Deadline.current();
+		Revalidation revalidation = Revalidation.current();
+		CompletionService<byte[]> completion = new ExecutorCompletionService<>(executor);
+		Attempt primaryAttempt = new Attempt(link, deadline, revalidation);
+		Future<byte[]> primary = completion.submit(primaryAttempt);
+		Attempt hedgeAttempt = null;
+		Future<byte[]> hedge = null;
+		try {
+			long delay = delay();
+			Future<byte[]> first = delay < 0 ? null : completion.poll(delay, TimeUnit.NANOSECONDS);
+			if (first == null && delay >= 0 && budget.tryRetry()) {
+				hedged.incrementAndGet();
+				hedgeAttempt = new Attempt(link, deadline, revalidation);
+				hedge = completion.submit(hedgeAttempt);
+			}
+			if (first == null) {
+				first = take(completion, deadline);
+			}
+			IOException failure;
+			try {
+				byte[] body = result(first);
+				record(System.nanoTime() - start);
+				if (first == hedge) {
+					hedgeWins.incrementAndGet();
+					hedgeAttempt.report(revalidation);
+				} else {
+					primaryAttempt.report(revalidation);
+				}
+				return new ByteArrayInputStream(body);
+			} catch (IOException e) {
+				if (hedge == null) {
+					throw e;
+				}
+				failure = e;
+			}
+			try {
+				byte[] body = result(take(completion, deadline));
+				record(System.nanoTime() - start);
+				(first == hedge ? primaryAttempt : hedgeAttempt).report(revalidation);
+				return new ByteArrayInputStream(body);
+			} catch (IOException e) {
+				throw failure;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for a response");
+		} finally {
+			primaryAttempt.cancel(primary);
+			if (hedge != null) {
+				hedgeAttempt.cancel(hedge);
+			}
+		}
+	}
+
+	/**
+	 * A single request, with a {@link Revalidation} of its own, so only the
+	 * outcome of the request whose response is returned reaches the caller.
+	 */
+	private final class Attempt implements Callable<byte[]> {
+
+		private final String link;
+		private final Deadline deadline;
+		private final Revalidation revalidation;
+
+		private volatile InputStream body;
+		private volatile boolean cancelled;
+
+		private Attempt(String link, Deadline deadline, Revalidation caller) {
+			this.link = link;
+			this.deadline = deadline;
+			this.revalidation = caller == null ? null : new Revalidation(caller.getEtag(), caller.getLastModified());
+		}
+
+		@Override
+		public byte[] call() throws IOException {
+			Deadline previous = deadline == null ? Deadline.current() : deadline.attach();
+			Revalidation previousRevalidation = revalidation == null ? Revalidation.current() : revalidation.attach();
+			try {
+				body = delegate.open(link);
+				return Connectors.read(new FilterInputStream(body) {
+					@Override
+					public int read(byte[] b, int off, int len) throws IOException {
+						if (cancelled) {
+							throw new InterruptedIOException("request cancelled");
+						}
+						return super.read(b, off, len);
+					}
+				});
+			} finally {
+				Revalidation.restore(previousRevalidation);
+				Deadline.restore(previous);
+			}
+		}
+
+		/**
+		 * Cancel this request if it has not completed. Interrupting the thread
+		 * performing it does not stop a blocking read, so its response body is
+		 * closed as well. As closing may block until that read returns, it is
+		 * done on the {@link Executor}.
+		 */
+		private void cancel(Future<byte[]> future) {
+			if (future.isDone()) {
+				return;
+			}
+			cancelled = true;
+			future.cancel(true);
+			final InputStream stream = body;
+			if (stream == null) {
+				return;
+			}
+			try {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							stream.close();
+						} catch (IOException e) {
+							logger.debug("closing cancelled request for {} failed", link, e);
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				// the read stops at its next chunk
+			}
+		}
+
+		/**
+		 * Copy the outcome of this request to the given {@link Revalidation}
+		 */
+		private void report(Revalidation caller) {
+			if (caller != null && revalidation.isCompleted()) {
+				caller.complete(revalidation.isNotModified(), revalidation.getResponseEtag(), revalidation.getResponseLastModified());
+			}
+		}
+
+	}
+
+	private static Future<byte[]> take(CompletionService<byte[]> completion, Deadline deadline)
+			throws InterruptedException, DeadlineExceededException {
+		if (deadline == null) {
+			return completion.take();
+		}
+		Future<byte[]> future = completion.poll(deadline.remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+		if (future == null) {
+			throw new DeadlineExceededException();
+		}
+		return future;
+	}
+
+	private static byte[] result(Future<byte[]> future) throws IOException, InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	private synchronized void record(long latency) {
+		latencies[(int) (samples++ % WINDOW)] = latency;
+	}
+
+	/**
+	 * @return nanoseconds to wait before hedging, or -1 to not hedge
+	 */
+	private long delay() {
+		long[] window;
+		synchronized (this) {
+			if (samples < MIN_SAMPLES) {
+				return -1;
+			}
+			window = Arrays.copyOf(latencies, (int) Math.min(samples, WINDOW));
+		}
+		Arrays.sort(window);
+		int index = (int) Math.ceil(percentile * window.length) - 1;
+		return Math.max(minDelayNanos, window[Math.max(0, Math.min(window.length - 1, index))]);
+	}
+
+	/**
+	 * @return the percentile of observed latencies after which a request is
+	 *         hedged
+	 */
+	public double getPercentile() {
+		return percentile;
+	}
+
+	/**
+	 * Default value is {@code 0.95}
+	 * 
+	 * @param percentile
+	 *            percentile of observed latencies after which a request is
+	 *            hedged, between 0 (exclusive) and 1 (inclusive)
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if percentile is out of range
+	 */
+	public HedgingConnector setPercentile(double percentile) {
+		if (!(percentile > 0 && percentile <= 1)) {
+			throw new IllegalArgumentException("percentile must be greater than 0 and at most 1");
+		}
+		this.percentile = percentile;
+		return this;
+	}
+
+	/**
+	 * @param unit
+	 *            {@link TimeUnit} of the returned value, not {@code null}
+	 * @return minimum delay before a request is hedged
+	 */
+	public long getMinDelay(TimeUnit unit) {
+		return unit.convert(minDelayNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Default value is 10 milliseconds
+	 * 
+	 * @param minDelay
+	 *            minimum delay before a request is hedged, at least 0
+	 * @param unit
+	 *            {@link TimeUnit} of minDelay, not {@code null}
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if minDelay is negative
+	 */
+	public HedgingConnector setMinDelay(long minDelay, TimeUnit unit) {
+		if (minDelay < 0) {
+			throw new IllegalArgumentException("minDelay can not be negative");
+		}
+		this.minDelayNanos = unit.toNanos(minDelay);
+		return this;
+	}
+
+	/**
+	 * @return {@link RetryBudget} hedges are drawn from, never {@code null}
+	 */
+	public RetryBudget getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Default value allows 1 hedge per 20 requests, plus 10
+	 * 
+	 * @param budget
+	 *            {@link RetryBudget} to draw hedges from, not {@code null}
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if argument {@code null}
+	 */
+	public HedgingConnector setBudget(RetryBudget budget) {
+		if (budget == null) {
+			throw new IllegalArgumentException("budget can not be null");
+		}
+		this.budget = budget;
+		return this;
+	}
+
+	/**
+	 * @return number of requests received
+	 */
+	public long getRequests() {
+		return requests.get();
+	}
+
+	/**
+	 * @return number of hedges started
+	 */
+	public long getHedged() {
+		return hedged.get();
+	}
+
+	/**
+	 * @return number of hedges that completed before the original request
+	 */
+	public long getHedgeWins() {
+		return hedgeWins.get();
+	}
+
+}
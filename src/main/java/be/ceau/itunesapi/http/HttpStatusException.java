@@ -0,0 +1,105 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link IOException} thrown when the server responds with an HTTP error
+ * status.
+ */
+public class HttpStatusException extends IOException {
+
+	private static final long serialVersionUID = 1760745600002L;
+
+	private final int status;
+	private final String link;
+	private final String retryAfter;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param status
+	 *            HTTP status code
+	 * @param link
+	 *            the requested link
+	 * @param retryAfter
+	 *            value of the Retry-After response header, or {@code null}
+	 */
+	public HttpStatusException(int status, String link, String retryAfter) {
+		super("Server returned HTTP response code: " + status + " for URL: " + link);
+		this.status = status;
+		this.link = link;
+		this.retryAfter = retryAfter;
+	}
+
+	/**
+	 * @return HTTP status code
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return the requested link
+	 */
+	public String getLink() {
+		return link;
+	}
+
+	/**
+	 * @return raw value of the Retry-After response header, or {@code null}
+	 */
+	public String getRetryAfter() {
+		return retryAfter;
+	}
+
+	/**
+	 * Interpret the Retry-After response header, given either as a number of
+	 * seconds or as an HTTP date.
+	 * 
+	 * @param unit
+	 *            {@link TimeUnit} of the returned value, not {@code null}
+	 * @return time to wait before retrying, 0 if that time has passed, or -1 if
+	 *         no valid Retry-After header was sent
+	 */
+	public long getRetryAfter(TimeUnit unit) {
+		if (retryAfter == null) {
+			return -1;
+		}
+		String value = retryAfter.trim();
+		try {
+			return unit.convert(Math.max(0, Long.parseLong(value)), TimeUnit.SECONDS);
+		} catch (NumberFormatException e) {
+			// not a number of seconds
+		}
+		SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		try {
+			Date date = format.parse(value);
+			return unit.convert(Math.max(0, date.getTime() - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+		} catch (ParseException e) {
+			return -1;
+		}
+	}
+
+}
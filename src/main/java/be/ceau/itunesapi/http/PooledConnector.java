@@ -0,0 +1,152 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link URLConnector} that keeps a bounded pool of persistent connections.
+ * <p>
+ * The JDK returns an HTTP connection to its keep-alive cache once the response
+ * body has been read to the end and closed. This {@link Connector} limits the
+ * number of requests in flight to {@link #getMaxConnections()}, so that every
+ * connection it opens can be returned to that cache and reused by the next
+ * request, instead of paying a new TCP and TLS handshake each time. Callers
+ * beyond the limit wait, in arrival order, for a connection to come free, or
+ * until the {@link Deadline} attached to the current thread passes.
+ * <p>
+ * The number of idle connections the JDK keeps per host is set by system
+ * property {@code http.maxConnections}, which defaults to 5. Set it to at
+ * least the pool size used here.
+ * <p>
+ * Instances are threadsafe and meant to be shared.
+ */
+public class PooledConnector extends URLConnector {
+
+	private static final long serialVersionUID = 1760745600000L;
+
+	/**
+	 * Default pool size, matching the default size of the JDK keep-alive cache.
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS = 5;
+
+	private final int maxConnections;
+	private final Semaphore permits;
+
+	/**
+	 * Constructor for a pool of {@value #DEFAULT_MAX_CONNECTIONS} connections.
+	 */
+	public PooledConnector() {
+		this(DEFAULT_MAX_CONNECTIONS);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param maxConnections
+	 *            maximum number of connections in use at the same time, at
+	 *            least 1
+	 * @throws IllegalArgumentException
+	 *             if maxConnections is less than 1
+	 */
+	public PooledConnector(int maxConnections) {
+		if (maxConnections < 1) {
+			throw new IllegalArgumentException("maxConnections must be at least 1");
+		}
+		this.maxConnections = maxConnections;
+		this.permits = new Semaphore(maxConnections, true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The connection stays checked out of the pool until the returned stream is
+	 * closed.
+	 * 
+	 * @throws InterruptedIOException
+	 *             if interrupted while waiting for a free connection
+	 */
+	@Override
+	public InputStream open(String link) throws IOException {
+		acquire();
+		try {
+			return new PooledInputStream(super.open(link));
+		} catch (IOException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	private void acquire() throws InterruptedIOException {
+		Deadline deadline = Deadline.current();
+		try {
+			if (deadline == null) {
+				permits.acquire();
+			} else if (!permits.tryAcquire(deadline.remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)) {
+				throw new DeadlineExceededException();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for a connection");
+		}
+	}
+
+	/**
+	 * @return maximum number of connections in use at the same time
+	 */
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * @return number of connections currently available without waiting
+	 */
+	public int getAvailableConnections() {
+		return permits.availablePermits();
+	}
+
+	/**
+	 * Response body returning its connection to the pool on close.
+	 */
+	private class PooledInputStream extends FilterInputStream {
+
+		private boolean closed;
+
+		PooledInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				super.close();
+			} finally {
+				permits.release();
+			}
+		}
+
+	}
+
+}
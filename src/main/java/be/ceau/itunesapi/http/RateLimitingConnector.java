@@ -0,0 +1,153 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Connector} decorator pacing requests with a {@link TokenBucket} per
+ * host, so that for example {@code itunes.apple.com} and
+ * {@code rss.itunes.apple.com} are limited independently.
+ * <p>
+ * Apple limits the Search and Lookup APIs to approximately 20 calls per minute
+ * per IP address, and answers requests beyond that limit with HTTP status 403.
+ * The defaults of this class stay within that limit.
+ * <p>
+ * Instances are threadsafe. Share a single instance between all threads
+ * making requests, as the limit applies to all of them together.
+ */
+public class RateLimitingConnector extends ForwardingConnector {
+
+	/**
+	 * Default sustained rate of 20 requests per minute.
+	 */
+	public static final double DEFAULT_PERMITS_PER_SECOND = 20d / 60d;
+
+	/**
+	 * Default burst of 1 request.
+	 */
+	public static final int DEFAULT_BURST = 1;
+
+	private final double permitsPerSecond;
+	private final int burst;
+	private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructor using {@link #DEFAULT_PERMITS_PER_SECOND} and
+	 * {@link #DEFAULT_BURST}.
+	 * 
+	 * @param delegate
+	 *            {@link Connector} to forward requests to, not {@code null}
+	 * @throws IllegalArgumentException
+	 *             if argument {@code null}
+	 */
+	public RateLimitingConnector(Connector delegate) {
+		this(delegate, DEFAULT_PERMITS_PER_SECOND, DEFAULT_BURST);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param delegate
+	 *            {@link Connector} to forward requests to, not {@code null}
+	 * @param permitsPerSecond
+	 *            sustained number of requests per second for each host, greater
+	 *            than 0
+	 * @param burst
+	 *            number of requests to each host that can be made at once after
+	 *            a quiet period, at least 1
+	 * @throws IllegalArgumentException
+	 *             if an argument is {@code null} or out of range
+	 */
+	public RateLimitingConnector(Connector delegate, double permitsPerSecond, int burst) {
+		super(delegate);
+		if (!(permitsPerSecond > 0)) {
+			throw new IllegalArgumentException("permitsPerSecond must be greater than 0");
+		}
+		if (burst < 1) {
+			throw new IllegalArgumentException("burst must be at least 1");
+		}
+		this.permitsPerSecond = permitsPerSecond;
+		this.burst = burst;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Waits for a permit for the host of the given link before forwarding the
+	 * request.
+	 * 
+	 * @throws java.io.InterruptedIOException
+	 *             if interrupted while waiting for a permit
+	 * @throws DeadlineExceededException
+	 *             if no permit becomes available before the {@link Deadline}
+	 *             attached to the current thread
+	 */
+	@Override
+	public InputStream open(String link) throws IOException {
+		TokenBucket bucket = bucket(link);
+		Deadline deadline = Deadline.current();
+		if (deadline == null) {
+			bucket.acquire();
+		} else if (!bucket.tryAcquire(deadline.remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)) {
+			throw new DeadlineExceededException();
+		}
+		return delegate.open(link);
+	}
+
+	private TokenBucket bucket(String link) throws MalformedURLException {
+		String host = new URL(link).getHost().toLowerCase(Locale.ENGLISH);
+		TokenBucket bucket = buckets.get(host);
+		if (bucket == null) {
+			TokenBucket created = new TokenBucket(permitsPerSecond, burst);
+			bucket = buckets.putIfAbsent(host, created);
+			if (bucket == null) {
+				bucket = created;
+			}
+		}
+		return bucket;
+	}
+
+	/**
+	 * @return unmodifiable view of the {@link TokenBucket} used for each host
+	 *         requested so far, never {@code null}
+	 */
+	public Map<String, TokenBucket> getBuckets() {
+		return Collections.unmodifiableMap(buckets);
+	}
+
+	/**
+	 * @return snapshot of the time callers spent waiting for a permit, over all
+	 *         hosts
+	 */
+	public WaitStatistics getStatistics() {
+		WaitStatistics statistics = new WaitStatistics(0, 0, 0, 0);
+		for (TokenBucket bucket : buckets.values()) {
+			statistics = statistics.plus(bucket.getStatistics());
+		}
+		return statistics;
+	}
+
+}
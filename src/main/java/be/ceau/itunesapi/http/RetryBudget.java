@@ -0,0 +1,113 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Threadsafe budget limiting retries to a fraction of regular requests.
+ * <p>
+ * Every request adds {@code ratio} to the balance, every retry takes 1 from it.
+ * The balance starts at, and never exceeds, {@code reserve}. Over time, the
+ * number of retries is thus bounded by {@code ratio} times the number of
+ * requests, plus {@code reserve}. Share one instance between
+ * {@link RetryingConnector} instances to apply a single budget to all of them.
+ */
+public class RetryBudget {
+
+	private static final long SCALE = 1000;
+
+	private final double ratio;
+	private final int reserve;
+	private final long deposit;
+	private final long max;
+	private final AtomicLong balance;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param ratio
+	 *            retries allowed per request, at least 0
+	 * @param reserve
+	 *            retries allowed regardless of the number of requests, at least
+	 *            1
+	 * @throws IllegalArgumentException
+	 *             if an argument is out of range
+	 */
+	public RetryBudget(double ratio, int reserve) {
+		if (!(ratio >= 0)) {
+			throw new IllegalArgumentException("ratio can not be negative");
+		}
+		if (reserve < 1) {
+			throw new IllegalArgumentException("reserve must be at least 1");
+		}
+		this.ratio = ratio;
+		this.reserve = reserve;
+		this.deposit = Math.round(ratio * SCALE);
+		this.max = reserve * SCALE;
+		this.balance = new AtomicLong(max);
+	}
+
+	/**
+	 * Record a request, adding {@code ratio} to the balance.
+	 */
+	public void onRequest() {
+		long current;
+		long next;
+		do {
+			current = balance.get();
+			next = Math.min(max, current + deposit);
+		} while (current != next && !balance.compareAndSet(current, next));
+	}
+
+	/**
+	 * Take one retry from the balance, if available.
+	 * 
+	 * @return {@code true} if a retry may be made
+	 */
+	public boolean tryRetry() {
+		long current;
+		do {
+			current = balance.get();
+			if (current < SCALE) {
+				return false;
+			}
+		} while (!balance.compareAndSet(current, current - SCALE));
+		return true;
+	}
+
+	/**
+	 * @return retries allowed per request
+	 */
+	public double getRatio() {
+		return ratio;
+	}
+
+	/**
+	 * @return retries allowed regardless of the number of requests
+	 */
+	public int getReserve() {
+		return reserve;
+	}
+
+	/**
+	 * @return number of retries currently available
+	 */
+	public double getBalance() {
+		return balance.get() / (double) SCALE;
+	}
+
+}
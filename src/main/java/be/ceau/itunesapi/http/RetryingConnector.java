@@ -0,0 +1,242 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link Connector} decorator repeating failed requests.
+ * <p>
+ * Failures are classified with {@link FailureType#of(IOException)}. Only
+ * retryable failures are repeated, after an exponentially growing delay with
+ * full jitter: before retry {@code n}, a random delay between 0 and
+ * {@code baseDelay * 2^(n-1)}, capped at {@code maxDelay}. When the server
+ * sends a Retry-After header, the delay is at least that long. If the server
+ * asks for a longer wait than {@code maxDelay}, the failure is not retried.
+ * <p>
+ * Retries are drawn from a {@link RetryBudget}, so that retries stay a
+ * fraction of the regular requests even when the server is failing.
+ * <p>
+ * The response body is read completely before it is returned, so failures
+ * reading the body are retried too. No retry is made that would start after
+ * the {@link Deadline} attached to the current thread.
+ * <p>
+ * Instances are threadsafe.
+ */
+public class RetryingConnector extends ForwardingConnector {
+
+	private static final Logger logger = LoggerFactory.getLogger(RetryingConnector.class);
+
+	private volatile int maxAttempts = 3;
+	private volatile long baseDelayNanos = TimeUnit.SECONDS.toNanos(1);
+	private volatile long maxDelayNanos = TimeUnit.SECONDS.toNanos(30);
+	private volatile RetryBudget budget = new RetryBudget(0.2, 10);
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param delegate
+	 *            {@link Connector} to forward requests to, not {@code null}
+	 * @throws IllegalArgumentException
+	 *             if argument {@code null}
+	 */
+	public RetryingConnector(Connector delegate) {
+		super(delegate);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @throws IOException
+	 *             the failure of the last attempt
+	 */
+	@Override
+	public InputStream open(String link) throws IOException {
+		budget.onRequest();
+		for (int attempt = 1;; attempt++) {
+			try {
+				return new ByteArrayInputStream(Connectors.read(delegate.open(link)));
+			} catch (IOException e) {
+				long delay = delay(e, attempt);
+				if (delay < 0 || !budget.tryRetry()) {
+					throw e;
+				}
+				logger.debug("retrying {} in {} ms after attempt {} failed with {}", link,
+						TimeUnit.NANOSECONDS.toMillis(delay), attempt, e.toString());
+				sleep(delay);
+			}
+		}
+	}
+
+	/**
+	 * @param e
+	 *            failure of the given attempt
+	 * @param attempt
+	 *            number of the failed attempt, starting at 1
+	 * @return nanoseconds to wait before the next attempt, or -1 to give up
+	 */
+	private long delay(IOException e, int attempt) {
+		if (attempt >= maxAttempts) {
+			return -1;
+		}
+		Deadline deadline = Deadline.current();
+		if (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)) {
+			return -1;
+		}
+		if (!FailureType.of(e).isRetryable()) {
+			return -1;
+		}
+		long max = maxDelayNanos;
+		int shift = Math.min(attempt - 1, 62);
+		long backoff = baseDelayNanos > (max >> shift) ? max : baseDelayNanos << shift;
+		long delay = backoff <= 0 ? 0 : ThreadLocalRandom.current().nextLong(backoff + 1);
+		if (e instanceof HttpStatusException) {
+			long retryAfter = ((HttpStatusException) e).getRetryAfter(TimeUnit.NANOSECONDS);
+			if (retryAfter > max) {
+				return -1;
+			}
+			delay = Math.max(delay, retryAfter);
+		}
+		if (deadline != null && delay >= deadline.remaining(TimeUnit.NANOSECONDS)) {
+			return -1;
+		}
+		return delay;
+	}
+
+	private static void sleep(long nanos) throws InterruptedIOException {
+		try {
+			TimeUnit.NANOSECONDS.sleep(nanos);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting to retry");
+		}
+	}
+
+	/**
+	 * @return maximum number of attempts for a single request
+	 */
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * Default value is {@code 3}
+	 * 
+	 * @param maxAttempts
+	 *            maximum number of attempts for a single request, including the
+	 *            first one, at least 1
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if maxAttempts is less than 1
+	 */
+	public RetryingConnector setMaxAttempts(int maxAttempts) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("maxAttempts must be at least 1");
+		}
+		this.maxAttempts = maxAttempts;
+		return this;
+	}
+
+	/**
+	 * @param unit
+	 *            {@link TimeUnit} of the returned value, not {@code null}
+	 * @return upper bound of the delay before the first retry
+	 */
+	public long getBaseDelay(TimeUnit unit) {
+		return unit.convert(baseDelayNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Default value is 1 second
+	 * 
+	 * @param baseDelay
+	 *            upper bound of the delay before the first retry, at least 0
+	 * @param unit
+	 *            {@link TimeUnit} of baseDelay, not {@code null}
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if baseDelay is negative
+	 */
+	public RetryingConnector setBaseDelay(long baseDelay, TimeUnit unit) {
+		if (baseDelay < 0) {
+			throw new IllegalArgumentException("baseDelay can not be negative");
+		}
+		this.baseDelayNanos = unit.toNanos(baseDelay);
+		return this;
+	}
+
+	/**
+	 * @param unit
+	 *            {@link TimeUnit} of the returned value, not {@code null}
+	 * @return maximum delay before any retry
+	 */
+	public long getMaxDelay(TimeUnit unit) {
+		return unit.convert(maxDelayNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Default value is 30 seconds
+	 * 
+	 * @param maxDelay
+	 *            maximum delay before any retry, at least 0
+	 * @param unit
+	 *            {@link TimeUnit} of maxDelay, not {@code null}
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if maxDelay is negative
+	 */
+	public RetryingConnector setMaxDelay(long maxDelay, TimeUnit unit) {
+		if (maxDelay < 0) {
+			throw new IllegalArgumentException("maxDelay can not be negative");
+		}
+		this.maxDelayNanos = unit.toNanos(maxDelay);
+		return this;
+	}
+
+	/**
+	 * @return {@link RetryBudget} retries are drawn from, never {@code null}
+	 */
+	public RetryBudget getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Default value allows 1 retry per 5 requests, plus 10
+	 * 
+	 * @param budget
+	 *            {@link RetryBudget} to draw retries from, not {@code null}
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if argument {@code null}
+	 */
+	public RetryingConnector setBudget(RetryBudget budget) {
+		if (budget == null) {
+			throw new IllegalArgumentException("budget can not be null");
+		}
+		this.budget = budget;
+		return this;
+	}
+
+}
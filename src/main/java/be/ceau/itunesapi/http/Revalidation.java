@@ -0,0 +1,194 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+/**
+ * Conditional request for a response already held by the caller, and the
+ * outcome of that request.
+ * <p>
+ * A cache attaches a {@link Revalidation} to the thread performing a request,
+ * carrying the {@code ETag} and {@code Last-Modified} validators of the
+ * response it holds. A {@link Connector} able to make conditional requests
+ * sends them as {@code If-None-Match} and {@code If-Modified-Since} headers,
+ * and reports the outcome through
+ * {@link #complete(boolean, String, String)}: either the response was not
+ * modified, in which case the returned body is empty and should be ignored,
+ * or a full response was received, along with its validators. A cache
+ * answering from its own store reports the same way, so caches can be
+ * stacked. A {@link Revalidation} without validators only collects the
+ * validators of the response.
+ * <p>
+ * Connectors ignoring an attached {@link Revalidation} remain correct, their
+ * responses are simply treated as full responses without validators.
+ * <p>
+ * Instances are threadsafe.
+ */
+public final class Revalidation {
+
+	private static final ThreadLocal<Revalidation> CURRENT = new ThreadLocal<>();
+
+	private final String etag;
+	private final String lastModified;
+
+	private volatile boolean completed;
+	private volatile boolean notModified;
+	private volatile String responseEtag;
+	private volatile String responseLastModified;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param etag
+	 *            {@code ETag} of the response held, or {@code null}
+	 * @param lastModified
+	 *            {@code Last-Modified} of the response held, or {@code null}
+	 */
+	public Revalidation(String etag, String lastModified) {
+		this.etag = etag;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * @return the {@link Revalidation} attached to the current thread, or
+	 *         {@code null}
+	 */
+	public static Revalidation current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Attach this {@link Revalidation} to the current thread, replacing any
+	 * {@link Revalidation} attached before. Always restore the previous state
+	 * afterwards:
+	 * 
+	 * <pre>
+	 * Revalidation previous = revalidation.attach();
+	 * try {
+	 * 	...
+	 * } finally {
+	 * 	Revalidation.restore(previous);
+	 * }
+	 * </pre>
+	 * 
+	 * @return the {@link Revalidation} previously attached, or {@code null}
+	 */
+	public Revalidation attach() {
+		Revalidation previous = CURRENT.get();
+		CURRENT.set(this);
+		return previous;
+	}
+
+	/**
+	 * @param previous
+	 *            value returned by {@link #attach()}, can be {@code null}
+	 */
+	public static void restore(Revalidation previous) {
+		if (previous == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(previous);
+		}
+	}
+
+	/**
+	 * @return {@code true} if this {@link Revalidation} carries at least one
+	 *         validator
+	 */
+	public boolean isConditional() {
+		return etag != null || lastModified != null;
+	}
+
+	/**
+	 * @param etag
+	 *            {@code ETag} of a response, or {@code null}
+	 * @param lastModified
+	 *            {@code Last-Modified} of a response, or {@code null}
+	 * @return {@code true} if a response with the given validators is the one
+	 *         held by the caller
+	 */
+	public boolean matches(String etag, String lastModified) {
+		if (this.etag != null && etag != null) {
+			return this.etag.equals(etag);
+		}
+		return this.lastModified != null && this.lastModified.equals(lastModified);
+	}
+
+	/**
+	 * Report the outcome of the request.
+	 * 
+	 * @param notModified
+	 *            {@code true} if the response held by the caller is still
+	 *            valid
+	 * @param etag
+	 *            {@code ETag} of the response, or {@code null}
+	 * @param lastModified
+	 *            {@code Last-Modified} of the response, or {@code null}
+	 */
+	public void complete(boolean notModified, String etag, String lastModified) {
+		this.responseEtag = etag;
+		this.responseLastModified = lastModified;
+		this.notModified = notModified;
+		this.completed = true;
+	}
+
+	/**
+	 * @return {@code ETag} sent with the request, or {@code null}
+	 */
+	public String getEtag() {
+		return etag;
+	}
+
+	/**
+	 * @return {@code Last-Modified} sent with the request, or {@code null}
+	 */
+	public String getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * @return {@code true} if an outcome was reported
+	 */
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	/**
+	 * @return {@code true} if the response held by the caller is still valid
+	 */
+	public boolean isNotModified() {
+		return notModified;
+	}
+
+	/**
+	 * @return {@code ETag} of the response, or {@code null}
+	 */
+	public String getResponseEtag() {
+		return responseEtag;
+	}
+
+	/**
+	 * @return {@code Last-Modified} of the response, or {@code null}
+	 */
+	public String getResponseLastModified() {
+		return responseLastModified;
+	}
+
+	@Override
+	public String toString() {
+		return "Revalidation [etag=" + etag + ", lastModified=" + lastModified + ", notModified=" + notModified + "]";
+	}
+
+}
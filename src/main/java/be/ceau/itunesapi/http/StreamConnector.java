@@ -0,0 +1,41 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link Connector} able to hand out the response body as raw bytes, so that
+ * it can be parsed without first being copied into a {@link String}.
+ * 
+ * @see Connectors#open(Connector, String)
+ */
+public interface StreamConnector extends Connector {
+
+	/**
+	 * Perform an HTTP request. Return the response body as {@link InputStream}.
+	 * The caller is responsible for closing the returned stream.
+	 * 
+	 * @param link
+	 *            a full link, including scheme
+	 * @return server response body as {@link InputStream}, never {@code null}
+	 * @throws IOException
+	 *             if a problem occurred with the connection
+	 */
+	public InputStream open(String link) throws IOException;
+
+}
@@ -0,0 +1,169 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Threadsafe token bucket rate limiter.
+ * <p>
+ * The bucket holds up to {@code burst} tokens and refills at a constant rate.
+ * Each call to {@link #acquire()} takes one token. When the bucket is empty,
+ * the caller reserves the next token to be added and waits for it. Tokens are
+ * reserved in arrival order, so waiting callers are served first come, first
+ * served.
+ */
+public class TokenBucket {
+
+	private final double permitsPerSecond;
+	private final int burst;
+	private final long nanosPerPermit;
+	private final ReentrantLock lock = new ReentrantLock(true);
+
+	private final AtomicLong acquisitions = new AtomicLong();
+	private final AtomicLong delayedAcquisitions = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+	/**
+	 * Nanotime at which the bucket is empty, after handing out all reserved
+	 * tokens. Guarded by {@link #lock}.
+	 */
+	private long emptyAt;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param permitsPerSecond
+	 *            sustained rate at which tokens are added, greater than 0
+	 * @param burst
+	 *            maximum number of tokens in the bucket, at least 1
+	 * @throws IllegalArgumentException
+	 *             if an argument is out of range
+	 */
+	public TokenBucket(double permitsPerSecond, int burst) {
+		if (!(permitsPerSecond > 0)) {
+			throw new IllegalArgumentException("permitsPerSecond must be greater than 0");
+		}
+		if (burst < 1) {
+			throw new IllegalArgumentException("burst must be at least 1");
+		}
+		this.permitsPerSecond = permitsPerSecond;
+		this.burst = burst;
+		this.nanosPerPermit = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+		this.emptyAt = System.nanoTime() - burst * nanosPerPermit;
+	}
+
+	/**
+	 * Take one token, waiting for it if the bucket is empty.
+	 * 
+	 * @throws InterruptedIOException
+	 *             if interrupted while waiting, the reserved token is lost
+	 */
+	public void acquire() throws InterruptedIOException {
+		await(reserve(Long.MAX_VALUE));
+	}
+
+	/**
+	 * Take one token if it becomes available within the given timeout, waiting
+	 * for it if the bucket is empty.
+	 * 
+	 * @param timeout
+	 *            maximum time to wait
+	 * @param unit
+	 *            {@link TimeUnit} of timeout, not {@code null}
+	 * @return {@code true} if a token was taken, {@code false} if none was
+	 *         taken because the wait would exceed the timeout
+	 * @throws InterruptedIOException
+	 *             if interrupted while waiting, the reserved token is lost
+	 */
+	public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedIOException {
+		long wait = reserve(unit.toNanos(timeout));
+		if (wait == Long.MIN_VALUE) {
+			return false;
+		}
+		await(wait);
+		return true;
+	}
+
+	private void await(long wait) throws InterruptedIOException {
+		acquisitions.incrementAndGet();
+		if (wait <= 0) {
+			return;
+		}
+		delayedAcquisitions.incrementAndGet();
+		totalWaitNanos.addAndGet(wait);
+		long max;
+		while (wait > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, wait)) {
+			// retry
+		}
+		try {
+			TimeUnit.NANOSECONDS.sleep(wait);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for a permit");
+		}
+	}
+
+	/**
+	 * @param maxWait
+	 *            maximum nanoseconds to wait
+	 * @return nanoseconds to wait for the reserved token, or
+	 *         {@link Long#MIN_VALUE} if no token was reserved because the wait
+	 *         would exceed maxWait
+	 */
+	private long reserve(long maxWait) {
+		lock.lock();
+		try {
+			long now = System.nanoTime();
+			long full = now - burst * nanosPerPermit;
+			long next = (emptyAt - full < 0 ? full : emptyAt) + nanosPerPermit;
+			long wait = next - now;
+			if (wait > maxWait) {
+				return Long.MIN_VALUE;
+			}
+			emptyAt = next;
+			return wait;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return sustained rate at which tokens are added
+	 */
+	public double getPermitsPerSecond() {
+		return permitsPerSecond;
+	}
+
+	/**
+	 * @return maximum number of tokens in the bucket
+	 */
+	public int getBurst() {
+		return burst;
+	}
+
+	/**
+	 * @return snapshot of the time callers spent waiting in {@link #acquire()}
+	 */
+	public WaitStatistics getStatistics() {
+		return new WaitStatistics(acquisitions.get(), delayedAcquisitions.get(), totalWaitNanos.get(), maxWaitNanos.get());
+	}
+
+}
@@ -15,19 +15,41 @@
 */
 package be.ceau.itunesapi.http;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Default {@link Connector} implementation using {@link URLConnection}.
+ * <p>
+ * Unless disabled with {@link #setCompression(boolean)}, requests ask for a
+ * gzip or deflate compressed response, which is decompressed while it is read.
+ * {@link #getBytesReceived()} and {@link #getBytesDecoded()} count the bytes
+ * read from the network and the bytes handed to the caller.
+ * <p>
+ * Connecting times out after 10 seconds and reading after 30 seconds without
+ * data, unless configured otherwise. When a {@link Deadline} is attached to the
+ * calling thread, both are shortened to the time left, and reading the
+ * response body fails with a {@link DeadlineExceededException} once it has
+ * passed, even while a read is blocked. The read timeout still bounds each
+ * step of connecting and receiving the headers separately.
+ * <p>
+ * When a {@link Revalidation} is attached to the calling thread, its
+ * validators are sent as {@code If-None-Match} and {@code If-Modified-Since}
+ * headers, and the outcome is reported to it. A {@code 304 Not Modified}
+ * response has an empty body.
  */
-public class URLConnector implements Connector, Serializable {
+public class URLConnector implements StreamConnector, Serializable {
 
 	private static final long serialVersionUID = 1476515538667L;
 
@@ -36,22 +58,227 @@ public class URLConnector implements Connector, Serializable {
 	 */
 	public static final URLConnector INSTANCE = new URLConnector();
 
+	private static final String ACCEPT_ENCODING = "gzip, deflate";
+
+	private final AtomicLong bytesReceived = new AtomicLong();
+	private final AtomicLong bytesDecoded = new AtomicLong();
+
+	private volatile boolean compression = true;
+	private volatile int connectTimeout = (int) TimeUnit.SECONDS.toMillis(10);
+	private volatile int readTimeout = (int) TimeUnit.SECONDS.toMillis(30);
+
 	/**
 	 * {@inheritDoc}
 	 * 
 	 * @throws MalformedURLException as thrown by {@link URL#URL(String)} 
 	 */
 	public String get(String link) throws IOException {
-		URL url = new URL(link);
-		try (BufferedReader in = new BufferedReader(
-				new InputStreamReader(url.openConnection().getInputStream(), StandardCharsets.UTF_8))) {
-			StringBuilder sb = new StringBuilder();
-			String line;
-			while ((line = in.readLine()) != null) {
-				sb.append(line);
-				sb.append(System.lineSeparator());
+		return new String(Connectors.read(open(link)), StandardCharsets.UTF_8).trim();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @throws MalformedURLException as thrown by {@link URL#URL(String)} 
+	 * @throws DeadlineExceededException if the {@link Deadline} attached to the
+	 *             current thread passes
+	 */
+	@Override
+	public InputStream open(String link) throws IOException {
+		URLConnection connection = new URL(link).openConnection();
+		connection.setConnectTimeout(Deadline.timeout(connectTimeout));
+		connection.setReadTimeout(Deadline.timeout(readTimeout));
+		if (compression) {
+			connection.setRequestProperty("Accept-Encoding", ACCEPT_ENCODING);
+		}
+		Revalidation revalidation = Revalidation.current();
+		if (revalidation != null) {
+			if (revalidation.getEtag() != null) {
+				connection.setRequestProperty("If-None-Match", revalidation.getEtag());
+			}
+			if (revalidation.getLastModified() != null) {
+				connection.setRequestProperty("If-Modified-Since", revalidation.getLastModified());
+			}
+		}
+		InputStream in = new CountingInputStream(body(connection), bytesReceived);
+		if (revalidation != null) {
+			boolean notModified = connection instanceof HttpURLConnection
+					&& ((HttpURLConnection) connection).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED;
+			revalidation.complete(notModified, connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"));
+		}
+		Deadline deadline = Deadline.current();
+		if (deadline != null) {
+			in = new DeadlineInputStream(in, deadline, connection.getReadTimeout());
+		}
+		try {
+			return new CountingInputStream(decode(in, connection.getContentEncoding()), bytesDecoded);
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @param in
+	 *            raw response body
+	 * @param contentEncoding
+	 *            value of the Content-Encoding response header, or {@code null}
+	 * @return stream decoding the response body
+	 * @throws IOException
+	 *             if a gzip header can not be read
+	 */
+	private static InputStream decode(InputStream in, String contentEncoding) throws IOException {
+		if (contentEncoding == null) {
+			return in;
+		}
+		switch (contentEncoding.trim().toLowerCase(Locale.ENGLISH)) {
+		case "gzip":
+		case "x-gzip":
+			return new GZIPInputStream(in, 8192);
+		case "deflate":
+			return new InflaterInputStream(in);
+		default:
+			return in;
+		}
+	}
+
+	/**
+	 * @return {@code true} if requests ask for a compressed response
+	 */
+	public boolean isCompression() {
+		return compression;
+	}
+
+	/**
+	 * Default value is {@code true}
+	 * 
+	 * @param compression
+	 *            {@code true} to ask for a gzip or deflate compressed response
+	 * @return {@code this} instance for method chaining
+	 */
+	public URLConnector setCompression(boolean compression) {
+		this.compression = compression;
+		return this;
+	}
+
+	/**
+	 * @param unit
+	 *            {@link TimeUnit} of the returned value, not {@code null}
+	 * @return time allowed to establish a connection, 0 meaning infinite
+	 */
+	public long getConnectTimeout(TimeUnit unit) {
+		return unit.convert(connectTimeout, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Default value is 10 seconds
+	 * 
+	 * @param connectTimeout
+	 *            time allowed to establish a connection, 0 meaning infinite
+	 * @param unit
+	 *            {@link TimeUnit} of connectTimeout, not {@code null}
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if connectTimeout is negative
+	 */
+	public URLConnector setConnectTimeout(long connectTimeout, TimeUnit unit) {
+		this.connectTimeout = millis(connectTimeout, unit, "connectTimeout");
+		return this;
+	}
+
+	/**
+	 * @param unit
+	 *            {@link TimeUnit} of the returned value, not {@code null}
+	 * @return time allowed to wait for data, 0 meaning infinite
+	 */
+	public long getReadTimeout(TimeUnit unit) {
+		return unit.convert(readTimeout, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Default value is 30 seconds
+	 * 
+	 * @param readTimeout
+	 *            time allowed to wait for data, 0 meaning infinite
+	 * @param unit
+	 *            {@link TimeUnit} of readTimeout, not {@code null}
+	 * @return {@code this} instance for method chaining
+	 * @throws IllegalArgumentException
+	 *             if readTimeout is negative
+	 */
+	public URLConnector setReadTimeout(long readTimeout, TimeUnit unit) {
+		this.readTimeout = millis(readTimeout, unit, "readTimeout");
+		return this;
+	}
+
+	private static int millis(long timeout, TimeUnit unit, String name) {
+		if (timeout < 0) {
+			throw new IllegalArgumentException(name + " can not be negative");
+		}
+		long millis = unit.toMillis(timeout);
+		if (timeout > 0 && millis == 0) {
+			return 1;
+		}
+		return (int) Math.min(Integer.MAX_VALUE, millis);
+	}
+
+	/**
+	 * @return total number of response body bytes read from the network, as
+	 *         sent by the server
+	 */
+	public long getBytesReceived() {
+		return bytesReceived.get();
+	}
+
+	/**
+	 * @return total number of response body bytes after decompression
+	 */
+	public long getBytesDecoded() {
+		return bytesDecoded.get();
+	}
+
+	/**
+	 * Open the response body of the given connection. If the server responds
+	 * with an error, the error body is read and closed before throwing, so the
+	 * underlying connection can be kept alive for the next request.
+	 * 
+	 * @param connection
+	 *            a {@link URLConnection}, not {@code null}
+	 * @return response body {@link InputStream}, never {@code null}
+	 * @throws HttpStatusException
+	 *             if the server responds with an HTTP error status
+	 * @throws IOException
+	 *             as thrown by {@link URLConnection#getInputStream()}
+	 */
+	static InputStream body(URLConnection connection) throws IOException {
+		if (connection instanceof HttpURLConnection) {
+			HttpURLConnection http = (HttpURLConnection) connection;
+			int status;
+			try {
+				status = http.getResponseCode();
+			} catch (IOException e) {
+				discard(http.getErrorStream());
+				throw e;
+			}
+			if (status >= 400) {
+				discard(http.getErrorStream());
+				throw new HttpStatusException(status, http.getURL().toString(), http.getHeaderField("Retry-After"));
+			}
+		}
+		return connection.getInputStream();
+	}
+
+	private static void discard(InputStream in) {
+		if (in == null) {
+			return;
+		}
+		try (InputStream is = in) {
+			byte[] buffer = new byte[4096];
+			while (is.read(buffer) != -1) {
+				// drain
 			}
-			return sb.toString().trim();
+		} catch (IOException e) {
+			// connection will not be reused
 		}
 	}
 
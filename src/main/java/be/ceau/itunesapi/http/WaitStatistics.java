@@ -0,0 +1,114 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable snapshot of the time callers spent waiting for a permit.
+ */
+public class WaitStatistics implements Serializable {
+
+	private static final long serialVersionUID = 1760745600001L;
+
+	private final long acquisitions;
+	private final long delayedAcquisitions;
+	private final long totalWaitNanos;
+	private final long maxWaitNanos;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param acquisitions
+	 *            number of permits handed out
+	 * @param delayedAcquisitions
+	 *            number of permits that were not immediately available
+	 * @param totalWaitNanos
+	 *            total time spent waiting, in nanoseconds
+	 * @param maxWaitNanos
+	 *            longest single wait, in nanoseconds
+	 */
+	public WaitStatistics(long acquisitions, long delayedAcquisitions, long totalWaitNanos, long maxWaitNanos) {
+		this.acquisitions = acquisitions;
+		this.delayedAcquisitions = delayedAcquisitions;
+		this.totalWaitNanos = totalWaitNanos;
+		this.maxWaitNanos = maxWaitNanos;
+	}
+
+	/**
+	 * @param other
+	 *            {@link WaitStatistics}, not {@code null}
+	 * @return new {@link WaitStatistics} combining {@code this} and the argument
+	 */
+	public WaitStatistics plus(WaitStatistics other) {
+		return new WaitStatistics(acquisitions + other.acquisitions,
+				delayedAcquisitions + other.delayedAcquisitions,
+				totalWaitNanos + other.totalWaitNanos,
+				Math.max(maxWaitNanos, other.maxWaitNanos));
+	}
+
+	/**
+	 * @return number of permits handed out
+	 */
+	public long getAcquisitions() {
+		return acquisitions;
+	}
+
+	/**
+	 * @return number of permits that were not immediately available
+	 */
+	public long getDelayedAcquisitions() {
+		return delayedAcquisitions;
+	}
+
+	/**
+	 * @param unit
+	 *            {@link TimeUnit} of the returned value, not {@code null}
+	 * @return total time spent waiting
+	 */
+	public long getTotalWait(TimeUnit unit) {
+		return unit.convert(totalWaitNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param unit
+	 *            {@link TimeUnit} of the returned value, not {@code null}
+	 * @return longest single wait
+	 */
+	public long getMaxWait(TimeUnit unit) {
+		return unit.convert(maxWaitNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param unit
+	 *            {@link TimeUnit} of the returned value, not {@code null}
+	 * @return average wait per permit, or 0 if no permits were handed out
+	 */
+	public long getAverageWait(TimeUnit unit) {
+		if (acquisitions == 0) {
+			return 0;
+		}
+		return unit.convert(totalWaitNanos / acquisitions, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public String toString() {
+		return "WaitStatistics [acquisitions=" + acquisitions + ", delayedAcquisitions=" + delayedAcquisitions
+				+ ", totalWaitNanos=" + totalWaitNanos + ", maxWaitNanos=" + maxWaitNanos + "]";
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.request;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact 64-bit fingerprint of a request, for use as cache or sharding key.
+ */
+public final class Fingerprint {
+
+	private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long PRIME = 0x100000001b3L;
+
+	private Fingerprint() {
+	}
+
+	/**
+	 * Compute the 64-bit FNV-1a hash of the UTF-8 encoding of the given
+	 * {@link String}. The result is stable across processes and versions, but
+	 * not suitable where collisions must be prevented deliberately.
+	 * 
+	 * @param value
+	 *            {@link String} to hash, typically a request link, not
+	 *            {@code null}
+	 * @return 64-bit fingerprint of value
+	 * @throws IllegalArgumentException
+	 *             if argument {@code null}
+	 */
+	public static long of(String value) {
+		if (value == null) {
+			throw new IllegalArgumentException("value can not be null");
+		}
+		long hash = OFFSET_BASIS;
+		for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xff;
+			hash *= PRIME;
+		}
+		return hash;
+	}
+
+}
@@ -0,0 +1,44 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.request.lookup;
+
+/**
+ * Kinds of identifiers an item can be looked up by, each with its own
+ * request parameter.
+ */
+public enum IdType {
+
+	ID("id"),
+	AMG_ARTIST_ID("amgArtistId"),
+	AMG_ALBUM_ID("amgAlbumId"),
+	AMG_VIDEO_ID("amgVideoId"),
+	UPC("upc"),
+	ISBN("isbn");
+
+	private final String parameter;
+
+	private IdType(String parameter) {
+		this.parameter = parameter;
+	}
+
+	/**
+	 * @return name of the request parameter holding ids of this type
+	 */
+	public String getParameter() {
+		return parameter;
+	}
+
+}
@@ -0,0 +1,185 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.response;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Index of the {@link Result} instances of a lookup {@link Response} by the
+ * iTunes id they were requested with, and of the requested ids without any
+ * result.
+ * <p>
+ * Each result is assigned to the first of its track, collection and artist
+ * id that was requested. A track requested along with its album is assigned
+ * to the track, and the album is missing unless the album itself was
+ * returned. With an entity, the related items returned for an id are
+ * assigned to that id through their collection or artist id. Ids are compared
+ * as numbers, so ids that are not numeric never match a result. Other kinds
+ * of ids, such as UPC or ISBN, do not appear in results and can not be
+ * correlated.
+ * <p>
+ * Instances are immutable and threadsafe if the {@link Response} is frozen.
+ */
+public final class Correlation {
+
+	private final List<String> ids;
+	private final int[] slots;
+	private final LongIntMap index;
+	private final List<List<Result>> bySlot;
+	private final List<Result> uncorrelated;
+	private final List<String> missing;
+
+	private Correlation(Collection<String> requested, Response response) {
+		this.ids = new ArrayList<>(requested);
+		this.slots = new int[ids.size()];
+		this.index = new LongIntMap(ids.size());
+		for (int i = 0; i < ids.size(); i++) {
+			long id = parse(ids.get(i));
+			slots[i] = id < 0L ? -1 : index.putIfAbsent(id, i);
+		}
+
+		this.bySlot = new ArrayList<>(Collections.<List<Result>> nCopies(ids.size(), null));
+		List<Result> uncorrelated = new ArrayList<>();
+		for (Result result : response.getResults()) {
+			int slot = locate(result);
+			if (slot < 0) {
+				uncorrelated.add(result);
+			} else {
+				List<Result> list = bySlot.get(slot);
+				if (list == null) {
+					list = new ArrayList<>(1);
+					bySlot.set(slot, list);
+				}
+				list.add(result);
+			}
+		}
+		this.uncorrelated = Collections.unmodifiableList(uncorrelated);
+
+		List<String> missing = new ArrayList<>();
+		for (int i = 0; i < ids.size(); i++) {
+			if (slots[i] < 0 || bySlot.get(slots[i]) == null) {
+				missing.add(ids.get(i));
+			}
+		}
+		this.missing = Collections.unmodifiableList(missing);
+	}
+
+	/**
+	 * Correlate the results of the given {@link Response} with the iTunes ids
+	 * they were requested with.
+	 * 
+	 * @param ids
+	 *            {@link Collection} of requested iTunes ids, not {@code null}
+	 * @param response
+	 *            {@link Response} to a lookup of ids, not {@code null}
+	 * @return new {@link Correlation}, never {@code null}
+	 * @throws IllegalArgumentException
+	 *             if any argument {@code null}
+	 */
+	public static Correlation of(Collection<String> ids, Response response) {
+		if (ids == null) {
+			throw new IllegalArgumentException("ids can not be null");
+		}
+		if (response == null) {
+			throw new IllegalArgumentException("response can not be null");
+		}
+		return new Correlation(ids, response);
+	}
+
+	/**
+	 * @return slot of the requested id result belongs to, or -1
+	 */
+	private int locate(Result result) {
+		int slot = locate(result.getTrackId());
+		if (slot < 0) {
+			slot = locate(result.getCollectionId());
+		}
+		if (slot < 0) {
+			slot = locate(result.getArtistId());
+		}
+		return slot;
+	}
+
+	private int locate(Long id) {
+		return id == null ? -1 : index.get(id);
+	}
+
+	/**
+	 * @return the id as a non-negative number, or -1
+	 */
+	private static long parse(String id) {
+		if (id == null || id.isEmpty() || id.length() > 18) {
+			return -1L;
+		}
+		long value = 0L;
+		for (int i = 0; i < id.length(); i++) {
+			char c = id.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1L;
+			}
+			value = value * 10L + (c - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * @param id
+	 *            a requested iTunes id
+	 * @return unmodifiable {@link List} of the results for the given id,
+	 *         empty if none or if id was not requested, never {@code null}
+	 */
+	public List<Result> getResults(String id) {
+		long value = parse(id);
+		return value < 0L ? Collections.<Result> emptyList() : getResults(value);
+	}
+
+	/**
+	 * @param id
+	 *            a requested iTunes id
+	 * @return unmodifiable {@link List} of the results for the given id,
+	 *         empty if none or if id was not requested, never {@code null}
+	 */
+	public List<Result> getResults(long id) {
+		int slot = index.get(id);
+		List<Result> list = slot < 0 ? null : bySlot.get(slot);
+		return list == null ? Collections.<Result> emptyList() : Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * @return unmodifiable {@link List} of the requested ids without any
+	 *         result, in the order they were given, never {@code null}
+	 */
+	public List<String> getMissing() {
+		return missing;
+	}
+
+	/**
+	 * @return unmodifiable {@link List} of the results that could not be
+	 *         assigned to a requested id, never {@code null}
+	 */
+	public List<Result> getUncorrelated() {
+		return uncorrelated;
+	}
+
+	@Override
+	public String toString() {
+		return "Correlation [requested=" + ids.size() + ", missing=" + missing + ", uncorrelated=" + uncorrelated.size() + "]";
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.response;
+
+import java.util.Arrays;
+
+/**
+ * Minimal open addressing hash map of primitive {@code long} keys to
+ * non-negative {@code int} values, sized once for a known number of keys.
+ * <p>
+ * Instances are not threadsafe.
+ */
+final class LongIntMap {
+
+	private final long[] keys;
+	private final int[] values;
+	private final int mask;
+
+	/**
+	 * @param expected
+	 *            number of keys to hold, at least 0
+	 */
+	LongIntMap(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(2, expected) * 2 - 1) << 1;
+		this.keys = new long[capacity];
+		this.values = new int[capacity];
+		this.mask = capacity - 1;
+		// -1 marks a free slot
+		Arrays.fill(values, -1);
+	}
+
+	/**
+	 * @return value for key, or -1 if absent
+	 */
+	int get(long key) {
+		for (int i = slot(key);; i = (i + 1) & mask) {
+			if (values[i] < 0 || keys[i] == key) {
+				return values[i];
+			}
+		}
+	}
+
+	/**
+	 * Store value for key, unless key is already present.
+	 * 
+	 * @return value now stored for key
+	 */
+	int putIfAbsent(long key, int value) {
+		for (int i = slot(key);; i = (i + 1) & mask) {
+			if (values[i] < 0) {
+				keys[i] = key;
+				values[i] = value;
+				return value;
+			}
+			if (keys[i] == key) {
+				return values[i];
+			}
+		}
+	}
+
+	private int slot(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+
+}
@@ -17,8 +17,10 @@ package be.ceau.itunesapi.response;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
@@ -37,9 +39,11 @@ public class Response implements Serializable {
 	 */
 	public static final ObjectReader READER = new ObjectMapper().readerFor(Response.class);
 
+	private boolean frozen;
+
 	private int resultCount;
 	
-	private final List<Result> results = new ArrayList<>();
+	private List<Result> results = new ArrayList<>();
 
 	/**
 	 * @return the number of results in this {@link Response}
@@ -49,23 +53,60 @@ public class Response implements Serializable {
 	}
 
 	public void setResultCount(int resultCount) {
+		checkMutable();
 		this.resultCount = resultCount;
 	}
 
 	/**
-	 * @return modifiable {@link List} of {@link Result} instances, never {@code null}
+	 * @return {@link List} of {@link Result} instances, modifiable unless
+	 *         frozen, never {@code null}
 	 */
 	public List<Result> getResults() {
 		return results;
 	}
 
 	public void setResults(List<Result> results) {
+		checkMutable();
 		this.results.clear();
 		if (results != null) {
 			this.results.addAll(results);
 		}
 	}
 
+	/**
+	 * Make this {@link Response} and its {@link Result} instances read-only.
+	 * Setters of a frozen instance throw {@link UnsupportedOperationException},
+	 * and {@link #getResults()} returns an unmodifiable {@link List}. Once
+	 * safely published, a frozen instance can be shared between threads.
+	 * 
+	 * @return {@code this} instance
+	 */
+	public Response freeze() {
+		if (!frozen) {
+			for (Result result : results) {
+				result.freeze();
+			}
+			results = Collections.unmodifiableList(results);
+			frozen = true;
+		}
+		return this;
+	}
+
+	/**
+	 * @return {@code true} if this instance was made read-only with
+	 *         {@link #freeze()}
+	 */
+	@JsonIgnore
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void checkMutable() {
+		if (frozen) {
+			throw new UnsupportedOperationException("Response is frozen");
+		}
+	}
+
 	@Override
 	public String toString() {
 		return "Response [resultCount=" + resultCount + ", results=" + results + "]";
@@ -18,9 +18,11 @@ package be.ceau.itunesapi.response;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 /**
@@ -31,6 +33,8 @@ public class Result implements Serializable {
 
 	private static final long serialVersionUID = 1476515572439L;
 
+	private boolean frozen;
+
 	private String wrapperType;
 	private String kind;
 
@@ -96,20 +100,20 @@ public class Result implements Serializable {
 	private String longDescription;
 	private String description;
 
-	private final Set<String> genreIds = new HashSet<>();
-	private final Set<String> genres = new HashSet<>();
+	private Set<String> genreIds = new HashSet<>();
+	private Set<String> genres = new HashSet<>();
 
-	private final Set<String> ipadScreenshotUrls = new HashSet<>();
-	private final Set<String> appletvScreenshotUrls = new HashSet<>();
-	private final Set<String> features = new HashSet<>();
-	private final Set<String> supportedDevices = new HashSet<>();
-	private final Set<String> advisories = new HashSet<>();
-	private final Set<String> screenshotUrls = new HashSet<>();
+	private Set<String> ipadScreenshotUrls = new HashSet<>();
+	private Set<String> appletvScreenshotUrls = new HashSet<>();
+	private Set<String> features = new HashSet<>();
+	private Set<String> supportedDevices = new HashSet<>();
+	private Set<String> advisories = new HashSet<>();
+	private Set<String> screenshotUrls = new HashSet<>();
 
 	private Boolean isGameCenterEnabled;
 	private Integer averageUserRatingForCurrentVersion;
 	
-	private final Set<String> languageCodesISO2A = new HashSet<>();
+	private Set<String> languageCodesISO2A = new HashSet<>();
 
 	private Long fileSizeBytes;
 	private Integer userRatingCountForCurrentVersion;
@@ -134,6 +138,7 @@ public class Result implements Serializable {
 	}
 
 	public void setWrapperType(String wrapperType) {
+		checkMutable();
 		this.wrapperType = wrapperType;
 	}
 
@@ -149,6 +154,7 @@ public class Result implements Serializable {
 	}
 
 	public void setKind(String kind) {
+		checkMutable();
 		this.kind = kind;
 	}
 
@@ -157,6 +163,7 @@ public class Result implements Serializable {
 	}
 
 	public void setArtistId(Long artistId) {
+		checkMutable();
 		this.artistId = artistId;
 	}
 
@@ -165,6 +172,7 @@ public class Result implements Serializable {
 	}
 
 	public void setCollectionId(Long collectionId) {
+		checkMutable();
 		this.collectionId = collectionId;
 	}
 
@@ -173,6 +181,7 @@ public class Result implements Serializable {
 	}
 
 	public void setTrackId(Long trackId) {
+		checkMutable();
 		this.trackId = trackId;
 	}
 
@@ -181,6 +190,7 @@ public class Result implements Serializable {
 	}
 
 	public void setBundleId(String bundleId) {
+		checkMutable();
 		this.bundleId = bundleId;
 	}
 
@@ -194,6 +204,7 @@ public class Result implements Serializable {
 	}
 
 	public void setArtistName(String artistName) {
+		checkMutable();
 		this.artistName = artistName;
 	}
 
@@ -202,6 +213,7 @@ public class Result implements Serializable {
 	}
 
 	public void setCollectionName(String collectionName) {
+		checkMutable();
 		this.collectionName = collectionName;
 	}
 
@@ -216,6 +228,7 @@ public class Result implements Serializable {
 	}
 
 	public void setTrackName(String trackName) {
+		checkMutable();
 		this.trackName = trackName;
 	}
 
@@ -230,6 +243,7 @@ public class Result implements Serializable {
 	}
 
 	public void setCollectionCensoredName(String collectionCensoredName) {
+		checkMutable();
 		this.collectionCensoredName = collectionCensoredName;
 	}
 
@@ -244,6 +258,7 @@ public class Result implements Serializable {
 	}
 
 	public void setTrackCensoredName(String trackCensoredName) {
+		checkMutable();
 		this.trackCensoredName = trackCensoredName;
 	}
 
@@ -257,6 +272,7 @@ public class Result implements Serializable {
 	}
 
 	public void setArtistViewUrl(String artistViewUrl) {
+		checkMutable();
 		this.artistViewUrl = artistViewUrl;
 	}
 
@@ -270,6 +286,7 @@ public class Result implements Serializable {
 	}
 
 	public void setCollectionViewUrl(String collectionViewUrl) {
+		checkMutable();
 		this.collectionViewUrl = collectionViewUrl;
 	}
 
@@ -283,6 +300,7 @@ public class Result implements Serializable {
 	}
 
 	public void setTrackViewUrl(String trackViewUrl) {
+		checkMutable();
 		this.trackViewUrl = trackViewUrl;
 	}
 
@@ -296,6 +314,7 @@ public class Result implements Serializable {
 	}
 
 	public void setFeedUrl(String feedUrl) {
+		checkMutable();
 		this.feedUrl = feedUrl;
 	}
 
@@ -304,6 +323,7 @@ public class Result implements Serializable {
 	}
 
 	public void setPreviewUrl(String previewUrl) {
+		checkMutable();
 		this.previewUrl = previewUrl;
 	}
 
@@ -318,6 +338,7 @@ public class Result implements Serializable {
 	}
 
 	public void setArtworkUrl30(String artworkUrl30) {
+		checkMutable();
 		this.artworkUrl30 = artworkUrl30;
 	}
 
@@ -332,6 +353,7 @@ public class Result implements Serializable {
 	}
 
 	public void setArtworkUrl60(String artworkUrl60) {
+		checkMutable();
 		this.artworkUrl60 = artworkUrl60;
 	}
 
@@ -346,6 +368,7 @@ public class Result implements Serializable {
 	}
 
 	public void setArtworkUrl100(String artworkUrl100) {
+		checkMutable();
 		this.artworkUrl100 = artworkUrl100;
 	}
 
@@ -360,6 +383,7 @@ public class Result implements Serializable {
 	}
 
 	public void setArtworkUrl512(String artworkUrl512) {
+		checkMutable();
 		this.artworkUrl512 = artworkUrl512;
 	}
 
@@ -374,6 +398,7 @@ public class Result implements Serializable {
 	}
 
 	public void setArtworkUrl600(String artworkUrl600) {
+		checkMutable();
 		this.artworkUrl600 = artworkUrl600;
 	}
 
@@ -402,6 +427,7 @@ public class Result implements Serializable {
 	}
 
 	public void setPrice(BigDecimal price) {
+		checkMutable();
 		this.price = price;
 	}
 
@@ -410,6 +436,7 @@ public class Result implements Serializable {
 	}
 
 	public void setCollectionPrice(BigDecimal collectionPrice) {
+		checkMutable();
 		this.collectionPrice = collectionPrice;
 	}
 
@@ -418,6 +445,7 @@ public class Result implements Serializable {
 	}
 
 	public void setTrackPrice(BigDecimal trackPrice) {
+		checkMutable();
 		this.trackPrice = trackPrice;
 	}
 
@@ -426,6 +454,7 @@ public class Result implements Serializable {
 	}
 
 	public void setTrackRentalPrice(BigDecimal trackRentalPrice) {
+		checkMutable();
 		this.trackRentalPrice = trackRentalPrice;
 	}
 
@@ -434,6 +463,7 @@ public class Result implements Serializable {
 	}
 
 	public void setCollectionHdPrice(BigDecimal collectionHdPrice) {
+		checkMutable();
 		this.collectionHdPrice = collectionHdPrice;
 	}
 
@@ -442,6 +472,7 @@ public class Result implements Serializable {
 	}
 
 	public void setTrackHdPrice(BigDecimal trackHdPrice) {
+		checkMutable();
 		this.trackHdPrice = trackHdPrice;
 	}
 
@@ -450,6 +481,7 @@ public class Result implements Serializable {
 	}
 
 	public void setTrackHdRentalPrice(BigDecimal trackHdRentalPrice) {
+		checkMutable();
 		this.trackHdRentalPrice = trackHdRentalPrice;
 	}
 
@@ -458,6 +490,7 @@ public class Result implements Serializable {
 	}
 
 	public void setFormattedPrice(String formattedPrice) {
+		checkMutable();
 		this.formattedPrice = formattedPrice;
 	}
 
@@ -466,6 +499,7 @@ public class Result implements Serializable {
 	}
 
 	public void setReleaseDate(String releaseDate) {
+		checkMutable();
 		this.releaseDate = releaseDate;
 	}
 
@@ -483,6 +517,7 @@ public class Result implements Serializable {
 	}
 
 	public void setCollectionExplicitness(String collectionExplicitness) {
+		checkMutable();
 		this.collectionExplicitness = collectionExplicitness;
 	}
 
@@ -500,6 +535,7 @@ public class Result implements Serializable {
 	}
 
 	public void setTrackExplicitness(String trackExplicitness) {
+		checkMutable();
 		this.trackExplicitness = trackExplicitness;
 	}
 
@@ -508,6 +544,7 @@ public class Result implements Serializable {
 	}
 
 	public void setDiscCount(Integer discCount) {
+		checkMutable();
 		this.discCount = discCount;
 	}
 
@@ -516,6 +553,7 @@ public class Result implements Serializable {
 	}
 
 	public void setDiscNumber(Integer discNumber) {
+		checkMutable();
 		this.discNumber = discNumber;
 	}
 
@@ -524,6 +562,7 @@ public class Result implements Serializable {
 	}
 
 	public void setTrackCount(Integer trackCount) {
+		checkMutable();
 		this.trackCount = trackCount;
 	}
 
@@ -532,6 +571,7 @@ public class Result implements Serializable {
 	}
 
 	public void setTrackNumber(Integer trackNumber) {
+		checkMutable();
 		this.trackNumber = trackNumber;
 	}
 
@@ -540,6 +580,7 @@ public class Result implements Serializable {
 	}
 
 	public void setCopyright(String copyright) {
+		checkMutable();
 		this.copyright = copyright;
 	}
 
@@ -548,6 +589,7 @@ public class Result implements Serializable {
 	}
 
 	public void setTrackTimeMillis(Long trackTimeMillis) {
+		checkMutable();
 		this.trackTimeMillis = trackTimeMillis;
 	}
 
@@ -556,6 +598,7 @@ public class Result implements Serializable {
 	}
 
 	public void setCountry(String country) {
+		checkMutable();
 		this.country = country;
 	}
 
@@ -564,6 +607,7 @@ public class Result implements Serializable {
 	}
 
 	public void setCurrency(String currency) {
+		checkMutable();
 		this.currency = currency;
 	}
 
@@ -572,6 +616,7 @@ public class Result implements Serializable {
 	}
 
 	public void setPrimaryGenreId(String primaryGenreId) {
+		checkMutable();
 		this.primaryGenreId = primaryGenreId;
 	}
 
@@ -580,6 +625,7 @@ public class Result implements Serializable {
 	}
 
 	public void setPrimaryGenreName(String primaryGenreName) {
+		checkMutable();
 		this.primaryGenreName = primaryGenreName;
 	}
 
@@ -588,6 +634,7 @@ public class Result implements Serializable {
 	}
 
 	public void setIsStreamable(Boolean isStreamable) {
+		checkMutable();
 		this.isStreamable = isStreamable;
 	}
 
@@ -596,6 +643,7 @@ public class Result implements Serializable {
 	}
 
 	public void setContentAdvisoryRating(String contentAdvisoryRating) {
+		checkMutable();
 		this.contentAdvisoryRating = contentAdvisoryRating;
 	}
 
@@ -604,6 +652,7 @@ public class Result implements Serializable {
 	}
 
 	public void setShortDescription(String shortDescription) {
+		checkMutable();
 		this.shortDescription = shortDescription;
 	}
 
@@ -612,6 +661,7 @@ public class Result implements Serializable {
 	}
 
 	public void setLongDescription(String longDescription) {
+		checkMutable();
 		this.longDescription = longDescription;
 	}
 
@@ -620,6 +670,7 @@ public class Result implements Serializable {
 	}
 
 	public void setDescription(String description) {
+		checkMutable();
 		this.description = description;
 	}
 
@@ -631,6 +682,7 @@ public class Result implements Serializable {
 	}
 
 	public void setGenreIds(Collection<String> genreIds) {
+		checkMutable();
 		this.genreIds.clear();
 		if (genreIds != null) {
 			this.genreIds.addAll(genreIds);
@@ -645,6 +697,7 @@ public class Result implements Serializable {
 	}
 
 	public void setGenres(Collection<String> genres) {
+		checkMutable();
 		this.genres.clear();
 		if (genres != null) {
 			this.genres.addAll(genres);
@@ -659,6 +712,7 @@ public class Result implements Serializable {
 	}
 
 	public void setIpadScreenshotUrls(Collection<String> ipadScreenshotUrls) {
+		checkMutable();
 		this.ipadScreenshotUrls.clear();
 		if (ipadScreenshotUrls != null) {
 			this.ipadScreenshotUrls.addAll(ipadScreenshotUrls);
@@ -673,6 +727,7 @@ public class Result implements Serializable {
 	}
 
 	public void setAppletvScreenshotUrls(Collection<String> appletvScreenshotUrls) {
+		checkMutable();
 		this.appletvScreenshotUrls.clear();
 		if (appletvScreenshotUrls != null) {
 			this.appletvScreenshotUrls.addAll(appletvScreenshotUrls);
@@ -687,6 +742,7 @@ public class Result implements Serializable {
 	}
 
 	public void setFeatures(Collection<String> features) {
+		checkMutable();
 		this.features.clear();
 		if (features != null) {
 			this.features.addAll(features);
@@ -701,6 +757,7 @@ public class Result implements Serializable {
 	}
 
 	public void setSupportedDevices(Collection<String> supportedDevices) {
+		checkMutable();
 		this.supportedDevices.clear();
 		if (supportedDevices != null) {
 			this.supportedDevices.addAll(supportedDevices);
@@ -715,6 +772,7 @@ public class Result implements Serializable {
 	}
 
 	public void setAdvisories(Collection<String> advisories) {
+		checkMutable();
 		this.advisories.clear();
 		if (advisories != null) {
 			this.advisories.addAll(advisories);
@@ -729,6 +787,7 @@ public class Result implements Serializable {
 	}
 
 	public void setScreenshotUrls(Collection<String> screenshotUrls) {
+		checkMutable();
 		this.screenshotUrls.clear();
 		if (screenshotUrls != null) {
 			this.screenshotUrls.addAll(screenshotUrls);
@@ -740,6 +799,7 @@ public class Result implements Serializable {
 	}
 
 	public void setIsGameCenterEnabled(Boolean isGameCenterEnabled) {
+		checkMutable();
 		this.isGameCenterEnabled = isGameCenterEnabled;
 	}
 
@@ -748,6 +808,7 @@ public class Result implements Serializable {
 	}
 
 	public void setAverageUserRatingForCurrentVersion(Integer averageUserRatingForCurrentVersion) {
+		checkMutable();
 		this.averageUserRatingForCurrentVersion = averageUserRatingForCurrentVersion;
 	}
 
@@ -759,6 +820,7 @@ public class Result implements Serializable {
 	}
 
 	public void setLanguageCodesISO2A(Collection<String> languageCodesISO2A) {
+		checkMutable();
 		this.languageCodesISO2A.clear();
 		if (languageCodesISO2A != null) {
 			this.languageCodesISO2A.addAll(languageCodesISO2A);
@@ -770,6 +832,7 @@ public class Result implements Serializable {
 	}
 
 	public void setFileSizeBytes(Long fileSizeBytes) {
+		checkMutable();
 		this.fileSizeBytes = fileSizeBytes;
 	}
 
@@ -778,6 +841,7 @@ public class Result implements Serializable {
 	}
 
 	public void setUserRatingCountForCurrentVersion(Integer userRatingCountForCurrentVersion) {
+		checkMutable();
 		this.userRatingCountForCurrentVersion = userRatingCountForCurrentVersion;
 	}
 
@@ -786,6 +850,7 @@ public class Result implements Serializable {
 	}
 
 	public void setTrackContentRating(String trackContentRating) {
+		checkMutable();
 		this.trackContentRating = trackContentRating;
 	}
 
@@ -794,6 +859,7 @@ public class Result implements Serializable {
 	}
 
 	public void setVersion(String version) {
+		checkMutable();
 		this.version = version;
 	}
 
@@ -802,6 +868,7 @@ public class Result implements Serializable {
 	}
 
 	public void setIsVppDeviceBasedLicensingEnabled(Boolean isVppDeviceBasedLicensingEnabled) {
+		checkMutable();
 		this.isVppDeviceBasedLicensingEnabled = isVppDeviceBasedLicensingEnabled;
 	}
 
@@ -810,6 +877,7 @@ public class Result implements Serializable {
 	}
 
 	public void setCurrentVersionReleaseDate(String currentVersionReleaseDate) {
+		checkMutable();
 		this.currentVersionReleaseDate = currentVersionReleaseDate;
 	}
 
@@ -818,6 +886,7 @@ public class Result implements Serializable {
 	}
 
 	public void setSellerName(String sellerName) {
+		checkMutable();
 		this.sellerName = sellerName;
 	}
 
@@ -826,6 +895,7 @@ public class Result implements Serializable {
 	}
 
 	public void setMinimumOsVersion(String minimumOsVersion) {
+		checkMutable();
 		this.minimumOsVersion = minimumOsVersion;
 	}
 
@@ -834,6 +904,7 @@ public class Result implements Serializable {
 	}
 
 	public void setAverageUserRating(Integer averageUserRating) {
+		checkMutable();
 		this.averageUserRating = averageUserRating;
 	}
 
@@ -842,9 +913,48 @@ public class Result implements Serializable {
 	}
 
 	public void setUserRatingCount(Integer userRatingCount) {
+		checkMutable();
 		this.userRatingCount = userRatingCount;
 	}
 
+	/**
+	 * Make this {@link Result} read-only. Setters of a frozen instance throw
+	 * {@link UnsupportedOperationException}, and the {@link Set} getters return
+	 * unmodifiable views.
+	 * 
+	 * @return {@code this} instance
+	 */
+	public Result freeze() {
+		if (!frozen) {
+			genreIds = Collections.unmodifiableSet(genreIds);
+			genres = Collections.unmodifiableSet(genres);
+			ipadScreenshotUrls = Collections.unmodifiableSet(ipadScreenshotUrls);
+			appletvScreenshotUrls = Collections.unmodifiableSet(appletvScreenshotUrls);
+			features = Collections.unmodifiableSet(features);
+			supportedDevices = Collections.unmodifiableSet(supportedDevices);
+			advisories = Collections.unmodifiableSet(advisories);
+			screenshotUrls = Collections.unmodifiableSet(screenshotUrls);
+			languageCodesISO2A = Collections.unmodifiableSet(languageCodesISO2A);
+			frozen = true;
+		}
+		return this;
+	}
+
+	/**
+	 * @return {@code true} if this instance was made read-only with
+	 *         {@link #freeze()}
+	 */
+	@JsonIgnore
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void checkMutable() {
+		if (frozen) {
+			throw new UnsupportedOperationException("Result is frozen");
+		}
+	}
+
 	@Override
 	public String toString() {
 		return "Result [wrapperType=" + wrapperType + ", kind=" + kind + ", artistId=" + artistId + ", collectionId="
@@ -17,6 +17,8 @@ package be.ceau.itunesapi.response.feedgenerator;
 
 import java.io.Serializable;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 /**
  * Author of an iTunes {@link Feed}.
  */
@@ -24,6 +26,8 @@ public class Author implements Serializable {
 
 	private static final long serialVersionUID = 1501415280761L;
 
+	private boolean frozen;
+
 	private String name;
 	private String uri;
 
@@ -32,6 +36,7 @@ public class Author implements Serializable {
 	}
 
 	public void setName(String name) {
+		checkMutable();
 		this.name = name;
 	}
 
@@ -40,9 +45,36 @@ public class Author implements Serializable {
 	}
 
 	public void setUri(String uri) {
+		checkMutable();
 		this.uri = uri;
 	}
 
+	/**
+	 * Make this {@link Author} read-only, so that its setters throw
+	 * {@link UnsupportedOperationException}.
+	 * 
+	 * @return {@code this} instance
+	 */
+	public Author freeze() {
+		frozen = true;
+		return this;
+	}
+
+	/**
+	 * @return {@code true} if this instance was made read-only with
+	 *         {@link #freeze()}
+	 */
+	@JsonIgnore
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void checkMutable() {
+		if (frozen) {
+			throw new UnsupportedOperationException("Author is frozen");
+		}
+	}
+
 	@Override
 	public String toString() {
 		return new StringBuilder()
@@ -17,8 +17,10 @@ package be.ceau.itunesapi.response.feedgenerator;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
@@ -37,21 +39,24 @@ public class Feed implements Serializable {
 	 */
 	public static final ObjectReader READER = new ObjectMapper().readerFor(Feed.class);
 
+	private boolean frozen;
+
 	private String title;
 	private String id;
 	private Author author;
-	private final List<Link> links = new ArrayList<>();
+	private List<Link> links = new ArrayList<>();
 	private String copyright;
 	private String country;
 	private String icon;
 	private String updated;
-	private final List<Result> results = new ArrayList<>();
+	private List<Result> results = new ArrayList<>();
 
 	public String getTitle() {
 		return title;
 	}
 
 	public void setTitle(String title) {
+		checkMutable();
 		this.title = title;
 	}
 
@@ -60,6 +65,7 @@ public class Feed implements Serializable {
 	}
 
 	public void setId(String id) {
+		checkMutable();
 		this.id = id;
 	}
 
@@ -68,6 +74,7 @@ public class Feed implements Serializable {
 	}
 
 	public void setAuthor(Author author) {
+		checkMutable();
 		this.author = author;
 	}
 
@@ -76,6 +83,7 @@ public class Feed implements Serializable {
 	}
 
 	public void setCopyright(String copyright) {
+		checkMutable();
 		this.copyright = copyright;
 	}
 
@@ -84,6 +92,7 @@ public class Feed implements Serializable {
 	}
 
 	public void setCountry(String country) {
+		checkMutable();
 		this.country = country;
 	}
 
@@ -92,6 +101,7 @@ public class Feed implements Serializable {
 	}
 
 	public void setIcon(String icon) {
+		checkMutable();
 		this.icon = icon;
 	}
 
@@ -100,32 +110,76 @@ public class Feed implements Serializable {
 	}
 
 	public void setUpdated(String updated) {
+		checkMutable();
 		this.updated = updated;
 	}
 
 	/**
-	 * @return modifiable {@link List} of {@link Result} instances, never
-	 *         {@code null}
+	 * @return {@link List} of {@link Link} instances, modifiable unless
+	 *         frozen, never {@code null}
 	 */
 	public List<Link> getLinks() {
 		return links;
 	}
 
 	/**
-	 * @return modifiable {@link List} of {@link Result} instances, never
-	 *         {@code null}
+	 * @return {@link List} of {@link Result} instances, modifiable unless
+	 *         frozen, never {@code null}
 	 */
 	public List<Result> getResults() {
 		return results;
 	}
 
 	public void setResults(List<Result> results) {
+		checkMutable();
 		this.results.clear();
 		if (results != null) {
 			this.results.addAll(results);
 		}
 	}
 
+	/**
+	 * Make this {@link Feed}, its {@link Author}, {@link Link} and
+	 * {@link Result} instances read-only. Setters of a frozen instance throw
+	 * {@link UnsupportedOperationException}, and the {@link List} getters
+	 * return unmodifiable views. Once safely published, a frozen instance can
+	 * be shared between threads.
+	 * 
+	 * @return {@code this} instance
+	 */
+	public Feed freeze() {
+		if (!frozen) {
+			if (author != null) {
+				author.freeze();
+			}
+			for (Link link : links) {
+				link.freeze();
+			}
+			for (Result result : results) {
+				result.freeze();
+			}
+			links = Collections.unmodifiableList(links);
+			results = Collections.unmodifiableList(results);
+			frozen = true;
+		}
+		return this;
+	}
+
+	/**
+	 * @return {@code true} if this instance was made read-only with
+	 *         {@link #freeze()}
+	 */
+	@JsonIgnore
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void checkMutable() {
+		if (frozen) {
+			throw new UnsupportedOperationException("Feed is frozen");
+		}
+	}
+
 	@Override
 	public String toString() {
 		return new StringBuilder()
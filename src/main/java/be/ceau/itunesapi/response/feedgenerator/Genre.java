@@ -17,6 +17,8 @@ package be.ceau.itunesapi.response.feedgenerator;
 
 import java.io.Serializable;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import be.ceau.itunesapi.response.genreidsappendix.GenreIdsResponse;
 
 /**
@@ -26,6 +28,8 @@ public class Genre implements Serializable {
 
 	private static final long serialVersionUID = 1501610118604L;
 
+	private boolean frozen;
+
 	private String genreId;
 	private String name;
 	private String url;
@@ -35,6 +39,7 @@ public class Genre implements Serializable {
 	}
 
 	public void setGenreId(String genreId) {
+		checkMutable();
 		this.genreId = genreId;
 	}
 
@@ -43,6 +48,7 @@ public class Genre implements Serializable {
 	}
 
 	public void setName(String name) {
+		checkMutable();
 		this.name = name;
 	}
 
@@ -51,9 +57,36 @@ public class Genre implements Serializable {
 	}
 
 	public void setUrl(String url) {
+		checkMutable();
 		this.url = url;
 	}
 
+	/**
+	 * Make this {@link Genre} read-only, so that its setters throw
+	 * {@link UnsupportedOperationException}.
+	 * 
+	 * @return {@code this} instance
+	 */
+	public Genre freeze() {
+		frozen = true;
+		return this;
+	}
+
+	/**
+	 * @return {@code true} if this instance was made read-only with
+	 *         {@link #freeze()}
+	 */
+	@JsonIgnore
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void checkMutable() {
+		if (frozen) {
+			throw new UnsupportedOperationException("Genre is frozen");
+		}
+	}
+
 	@Override
 	public String toString() {
 		return new StringBuilder()
@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.Map.Entry;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationContext;
@@ -36,6 +37,8 @@ public class Link implements Serializable {
 
 	private static final long serialVersionUID = 1501415268127L;
 
+	private boolean frozen;
+
 	public Link() {
 		
 	}
@@ -53,6 +56,7 @@ public class Link implements Serializable {
 	}
 
 	public void setType(String type) {
+		checkMutable();
 		this.type = type;
 	}
 
@@ -61,9 +65,36 @@ public class Link implements Serializable {
 	}
 
 	public void setUri(String uri) {
+		checkMutable();
 		this.uri = uri;
 	}
 
+	/**
+	 * Make this {@link Link} read-only, so that its setters throw
+	 * {@link UnsupportedOperationException}.
+	 * 
+	 * @return {@code this} instance
+	 */
+	public Link freeze() {
+		frozen = true;
+		return this;
+	}
+
+	/**
+	 * @return {@code true} if this instance was made read-only with
+	 *         {@link #freeze()}
+	 */
+	@JsonIgnore
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void checkMutable() {
+		if (frozen) {
+			throw new UnsupportedOperationException("Link is frozen");
+		}
+	}
+
 	@Override
 	public String toString() {
 		return new StringBuilder()
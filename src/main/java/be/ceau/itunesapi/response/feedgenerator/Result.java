@@ -16,8 +16,10 @@
 package be.ceau.itunesapi.response.feedgenerator;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 /**
@@ -28,6 +30,8 @@ public class Result implements Serializable {
 
 	private static final long serialVersionUID = 1476515572439L;
 
+	private boolean frozen;
+
 	private String artistName;
 	private String artworkUrl100;
 	private String copyright;
@@ -43,6 +47,7 @@ public class Result implements Serializable {
 	}
 
 	public void setArtistName(String artistName) {
+		checkMutable();
 		this.artistName = artistName;
 	}
 
@@ -51,6 +56,7 @@ public class Result implements Serializable {
 	}
 
 	public void setArtworkUrl100(String artworkUrl100) {
+		checkMutable();
 		this.artworkUrl100 = artworkUrl100;
 	}
 
@@ -59,6 +65,7 @@ public class Result implements Serializable {
 	}
 
 	public void setCopyright(String copyright) {
+		checkMutable();
 		this.copyright = copyright;
 	}
 
@@ -67,6 +74,7 @@ public class Result implements Serializable {
 	}
 
 	public void setGenres(List<Genre> genres) {
+		checkMutable();
 		this.genres = genres;
 	}
 
@@ -75,6 +83,7 @@ public class Result implements Serializable {
 	}
 
 	public void setId(String id) {
+		checkMutable();
 		this.id = id;
 	}
 
@@ -83,6 +92,7 @@ public class Result implements Serializable {
 	}
 
 	public void setKind(String kind) {
+		checkMutable();
 		this.kind = kind;
 	}
 
@@ -91,6 +101,7 @@ public class Result implements Serializable {
 	}
 
 	public void setName(String name) {
+		checkMutable();
 		this.name = name;
 	}
 
@@ -99,6 +110,7 @@ public class Result implements Serializable {
 	}
 
 	public void setReleaseDate(String releaseDate) {
+		checkMutable();
 		this.releaseDate = releaseDate;
 	}
 
@@ -107,7 +119,43 @@ public class Result implements Serializable {
 	}
 
 	public void setUrl(String url) {
+		checkMutable();
 		this.url = url;
 	}
 
+	/**
+	 * Make this {@link Result} and its {@link Genre} instances read-only.
+	 * Setters of a frozen instance throw {@link UnsupportedOperationException},
+	 * and {@link #getGenres()} returns an unmodifiable {@link List}.
+	 * 
+	 * @return {@code this} instance
+	 */
+	public Result freeze() {
+		if (!frozen) {
+			if (genres != null) {
+				for (Genre genre : genres) {
+					genre.freeze();
+				}
+				genres = Collections.unmodifiableList(genres);
+			}
+			frozen = true;
+		}
+		return this;
+	}
+
+	/**
+	 * @return {@code true} if this instance was made read-only with
+	 *         {@link #freeze()}
+	 */
+	@JsonIgnore
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void checkMutable() {
+		if (frozen) {
+			throw new UnsupportedOperationException("Result is frozen");
+		}
+	}
+
 }
@@ -16,8 +16,11 @@
 package be.ceau.itunesapi.response.genreidsappendix;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.Map;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 /**
  * Single entry in an iTunes {@link GenreIdsResponse}.
  */
@@ -31,12 +34,14 @@ public class Genre implements Serializable {
 	private Map<String, String> rssUrls;
 	private Map<String, String> chartUrls;
 	private Map<Integer, Genre> subgenres;
+	private boolean frozen;
 
 	public String getName() {
 		return name;
 	}
 
 	public void setName(String name) {
+		checkMutable();
 		this.name = name;
 	}
 
@@ -45,6 +50,7 @@ public class Genre implements Serializable {
 	}
 
 	public void setId(String id) {
+		checkMutable();
 		this.id = id;
 	}
 
@@ -53,6 +59,7 @@ public class Genre implements Serializable {
 	}
 
 	public void setUrl(String url) {
+		checkMutable();
 		this.url = url;
 	}
 
@@ -61,6 +68,7 @@ public class Genre implements Serializable {
 	}
 
 	public void setRssUrls(Map<String, String> rssUrls) {
+		checkMutable();
 		this.rssUrls = rssUrls;
 	}
 
@@ -69,6 +77,7 @@ public class Genre implements Serializable {
 	}
 
 	public void setChartUrls(Map<String, String> chartUrls) {
+		checkMutable();
 		this.chartUrls = chartUrls;
 	}
 
@@ -77,7 +86,49 @@ public class Genre implements Serializable {
 	}
 
 	public void setSubgenres(Map<Integer, Genre> subgenres) {
+		checkMutable();
 		this.subgenres = subgenres;
 	}
 
+	/**
+	 * Make this {@link Genre} and its subgenres read-only. Setters of a frozen
+	 * instance throw {@link UnsupportedOperationException}, and its
+	 * {@link Map} getters return unmodifiable views.
+	 * 
+	 * @return {@code this} instance
+	 */
+	public Genre freeze() {
+		if (!frozen) {
+			if (rssUrls != null) {
+				rssUrls = Collections.unmodifiableMap(rssUrls);
+			}
+			if (chartUrls != null) {
+				chartUrls = Collections.unmodifiableMap(chartUrls);
+			}
+			if (subgenres != null) {
+				for (Genre subgenre : subgenres.values()) {
+					subgenre.freeze();
+				}
+				subgenres = Collections.unmodifiableMap(subgenres);
+			}
+			frozen = true;
+		}
+		return this;
+	}
+
+	/**
+	 * @return {@code true} if this instance was made read-only with
+	 *         {@link #freeze()}
+	 */
+	@JsonIgnore
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void checkMutable() {
+		if (frozen) {
+			throw new UnsupportedOperationException("Genre is frozen");
+		}
+	}
+
 }
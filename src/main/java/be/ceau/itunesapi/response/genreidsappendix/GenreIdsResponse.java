@@ -16,7 +16,9 @@
 package be.ceau.itunesapi.response.genreidsappendix;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -35,7 +37,8 @@ public class GenreIdsResponse implements Serializable {
 	private static final ObjectMapper MAPPER = new ObjectMapper();
 	private static final MapType MAP_TYPE = MAPPER.getTypeFactory().constructMapType(HashMap.class, Integer.class, Genre.class);
 
-	private final Map<Integer, Genre> genres = new HashMap<>();
+	private Map<Integer, Genre> genres = new HashMap<>();
+	private boolean frozen;
 
 	/**
 	 * Static factory for parsing a valid JSON response to a new
@@ -58,12 +61,61 @@ public class GenreIdsResponse implements Serializable {
 	}
 
 	/**
-	 * @return modifiable {@link Map} containing the parsed genres in this response
+	 * Static factory for parsing a valid JSON response to a new
+	 * {@link GenreIdsResponse} instance
+	 * 
+	 * @param json
+	 *            {@link InputStream} over the JSON response received from
+	 *            Apple's Genre IDs Appendix API, not closed by this method
+	 * @return a {@link GenreIdsAppendix} instance
+	 * @throws IllegalArgumentException if argument null
+	 * @throws IOException on exception with reading or parsing JSON
+	 */
+	public static GenreIdsResponse parse(InputStream json) throws IOException {
+		if (json == null) {
+			throw new IllegalArgumentException("json argument can not be null");
+		}
+		Map<Integer, Genre> map = MAPPER.readValue(json, MAP_TYPE);
+		GenreIdsResponse response = new GenreIdsResponse();
+		response.genres.putAll(map);
+		return response;
+	}
+
+	/**
+	 * @return {@link Map} containing the parsed genres in this response,
+	 *         modifiable unless frozen
 	 */
 	public Map<Integer, Genre> getGenres() {
 		return genres;
 	}
 
+	/**
+	 * Make this {@link GenreIdsResponse} and the whole genre tree it holds
+	 * read-only. Once safely published, a frozen instance can be shared
+	 * between threads.
+	 * 
+	 * @return {@code this} instance
+	 * @see Genre#freeze()
+	 */
+	public GenreIdsResponse freeze() {
+		if (!frozen) {
+			for (Genre genre : genres.values()) {
+				genre.freeze();
+			}
+			genres = Collections.unmodifiableMap(genres);
+			frozen = true;
+		}
+		return this;
+	}
+
+	/**
+	 * @return {@code true} if this instance was made read-only with
+	 *         {@link #freeze()}
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+
 	@Override
 	public String toString() {
 		return "GenreIdsResponse[" + genres + "]";
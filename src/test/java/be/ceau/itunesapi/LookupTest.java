@@ -15,12 +15,27 @@
 */
 package be.ceau.itunesapi;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import be.ceau.itunesapi.http.AsyncConnector;
+import be.ceau.itunesapi.http.Connector;
+import be.ceau.itunesapi.http.ExecutorAsyncConnector;
 import be.ceau.itunesapi.request.Country;
 import be.ceau.itunesapi.request.Entity;
+import be.ceau.itunesapi.response.Correlation;
 import be.ceau.itunesapi.response.Response;
 
 public class LookupTest {
@@ -35,6 +50,86 @@ public class LookupTest {
 		Assert.assertNotNull(new Lookup().getIds());
 	}
 
+	@Test
+	public void splitsWithinLimits() {
+		Lookup lookup = new Lookup().setCountry(Country.BELGIUM);
+		for (int i = 0; i < 500; i++) {
+			lookup.addId(String.valueOf(1000000000L + i));
+			lookup.addIsbn(String.valueOf(9780000000000L + i));
+		}
+		List<Lookup> parts = lookup.split();
+		Set<String> ids = new HashSet<>();
+		Set<String> isbns = new HashSet<>();
+		for (Lookup part : parts) {
+			Assert.assertTrue(part.build().length() <= Lookup.MAX_URL_LENGTH);
+			Assert.assertTrue(part.getIds().size() + part.getIsbns().size() <= Lookup.MAX_IDS);
+			Assert.assertEquals(Country.BELGIUM, part.getCountry());
+			ids.addAll(part.getIds());
+			isbns.addAll(part.getIsbns());
+		}
+		Assert.assertEquals(lookup.getIds(), ids);
+		Assert.assertEquals(lookup.getIsbns(), isbns);
+		// 500 encoded ids of 13 characters and 500 isbns of 16 fill 8 urls
+		Assert.assertEquals(8, parts.size());
+
+		Assert.assertEquals(1, new Lookup().addId("1").split().size());
+		Assert.assertEquals(3, new Lookup().addId("1").addId("2").addId("3").split(1, Lookup.MAX_URL_LENGTH).size());
+	}
+
+	@Test
+	public void executesSplitLookup() {
+		Connector connector = new Connector() {
+			@Override
+			public String get(String link) throws IOException {
+				return "{\"resultCount\":1,\"results\":[{\"trackId\":" + link.length() + "}]}";
+			}
+		};
+		Response response = new Lookup().addId("1").addId("2").addId("3").addId("4").addId("5")
+				.split(2, Lookup.MAX_URL_LENGTH).get(0).executeSplit(connector);
+		Assert.assertEquals(1, response.getResultCount());
+		Lookup large = new Lookup();
+		for (int i = 0; i < 450; i++) {
+			large.addId(String.valueOf(i));
+		}
+		Assert.assertEquals(3, large.executeSplit(connector).getResultCount());
+	}
+
+	@Test
+	public void correlatesResults() throws IOException {
+		Lookup lookup = new Lookup().addId("909253").addId("178834").addId("24").addId("abc");
+		Response response = Response.READER.readValue("{\"resultCount\":4,\"results\":["
+				+ "{\"wrapperType\":\"track\",\"trackId\":909253,\"collectionId\":24,\"artistId\":5},"
+				+ "{\"wrapperType\":\"artist\",\"artistId\":178834},"
+				+ "{\"wrapperType\":\"collection\",\"collectionId\":99,\"artistId\":178834},"
+				+ "{\"wrapperType\":\"artist\",\"artistId\":6}]}");
+		Correlation correlation = lookup.correlate(response);
+		Assert.assertEquals(1, correlation.getResults("909253").size());
+		Assert.assertEquals(2, correlation.getResults(178834L).size());
+		Assert.assertTrue(correlation.getResults("24").isEmpty());
+		Assert.assertEquals(new HashSet<>(Arrays.asList("24", "abc")), new HashSet<>(correlation.getMissing()));
+		Assert.assertEquals(Long.valueOf(6L), correlation.getUncorrelated().get(0).getArtistId());
+	}
+
+	@Test
+	public void canonicalUrl() {
+		Lookup first = new Lookup()
+				.addId("909253")
+				.addId("178834")
+				.addId("24")
+				.addUpc("720642462928")
+				.setEntity(Entity.ALBUM);
+		Lookup second = new Lookup()
+				.setEntity(Entity.ALBUM)
+				.addUpc("720642462928")
+				.addId("24")
+				.addId("909253")
+				.addId("178834");
+		Assert.assertEquals("https://itunes.apple.com/lookup?id=24%2C178834%2C909253&upc=720642462928&entity=album", first.build());
+		Assert.assertEquals(first.build(), second.build());
+		Assert.assertEquals(first.fingerprint(), second.fingerprint());
+		Assert.assertNotEquals(first.fingerprint(), second.addId("1").fingerprint());
+	}
+
 	@Test
 	public void albums() {
 		Response response = new Lookup()
@@ -46,4 +141,41 @@ public class LookupTest {
 		Assert.assertEquals(response.getResults().size(), response.getResultCount());
 	}
 
+	@Test
+	public void executeAsync() throws InterruptedException, ExecutionException {
+		AsyncConnector connector = new AsyncConnector() {
+			@Override
+			public CompletableFuture<byte[]> getAsync(String link) {
+				return CompletableFuture.completedFuture(LineReader.readFile("uyd.json").getBytes(StandardCharsets.UTF_8));
+			}
+		};
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Response response = new Lookup().addId("124043755").executeAsync(connector, executor).get();
+			Assert.assertEquals(1, response.getResultCount());
+			Assert.assertEquals(124043755L, response.getResults().get(0).getTrackId().longValue());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void executeAsyncFailure() throws InterruptedException {
+		Connector failing = new Connector() {
+			@Override
+			public String get(String link) throws IOException {
+				throw new IOException("unreachable");
+			}
+		};
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			new Lookup().addId("124043755").executeAsync(new ExecutorAsyncConnector(failing, executor), executor).get();
+			Assert.fail();
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof IOException);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
 }
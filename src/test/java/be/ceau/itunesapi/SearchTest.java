@@ -15,8 +15,11 @@
 */
 package be.ceau.itunesapi;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -24,6 +27,8 @@ import org.junit.Test;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
+import be.ceau.itunesapi.http.Connector;
+import be.ceau.itunesapi.http.StreamConnector;
 import be.ceau.itunesapi.http.URLConnector;
 import be.ceau.itunesapi.request.Country;
 import be.ceau.itunesapi.request.search.Media;
@@ -82,6 +87,35 @@ public class SearchTest {
 		new Search().setTerm("north").setCountry(Country.CANADA).setMedia(Media.PODCAST).execute(null);
 	}
 
+	@Test
+	public void stringConnector() {
+		Response response = new Search("uhh yeah dude").execute(new Connector() {
+			@Override
+			public String get(String link) throws IOException {
+				return LineReader.readFile("uyd.json");
+			}
+		});
+		Assert.assertEquals(1, response.getResultCount());
+		Assert.assertEquals("Uhh Yeah Dude", response.getResults().get(0).getCollectionName());
+	}
+
+	@Test
+	public void streamConnector() {
+		Response response = new Search("uhh yeah dude").execute(new StreamConnector() {
+			@Override
+			public String get(String link) throws IOException {
+				throw new AssertionError("stream should be used");
+			}
+
+			@Override
+			public InputStream open(String link) throws IOException {
+				return new ByteArrayInputStream(LineReader.readFile("uyd.json").getBytes(StandardCharsets.UTF_8));
+			}
+		});
+		Assert.assertEquals(1, response.getResultCount());
+		Assert.assertEquals("Uhh Yeah Dude", response.getResults().get(0).getCollectionName());
+	}
+
 	@Test
 	public void mediaTest() throws IOException {
 		for (Media media : Media.values()) {
@@ -0,0 +1,349 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.bulk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import be.ceau.itunesapi.http.Connector;
+import be.ceau.itunesapi.request.lookup.IdType;
+import be.ceau.itunesapi.response.Result;
+
+public class BulkLookupTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+	private final AtomicInteger active = new AtomicInteger();
+	private final AtomicInteger maxActive = new AtomicInteger();
+
+	/**
+	 * Answers each requested upc or id with a track whose id is the upc or id,
+	 * except for ids ending in 7, and fails requests including upc 13.
+	 */
+	private final Connector connector = new Connector() {
+		@Override
+		public String get(String link) throws IOException {
+			int now = active.incrementAndGet();
+			while (maxActive.get() < now) {
+				maxActive.compareAndSet(maxActive.get(), now);
+			}
+			try {
+				Thread.sleep(5);
+				boolean byId = link.contains("?id=");
+				String[] upcs = link.replaceAll(".*[?&](upc|id)=([^&]*).*", "$2").split("%2C");
+				StringBuilder results = new StringBuilder();
+				int count = 0;
+				for (String upc : upcs) {
+					if (upc.equals("13")) {
+						throw new IOException("unlucky");
+					}
+					if (byId && upc.endsWith("7")) {
+						continue;
+					}
+					results.append(count++ == 0 ? "" : ",").append("{\"trackId\":").append(upc).append("}");
+				}
+				return "{\"resultCount\":" + count + ",\"results\":[" + results + "]}";
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			} finally {
+				active.decrementAndGet();
+			}
+		}
+	};
+
+	@After
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	private static List<String> range(int from, int to) {
+		List<String> ids = new ArrayList<>();
+		for (int i = from; i < to; i++) {
+			ids.add(String.valueOf(i));
+		}
+		return ids;
+	}
+
+	@Test
+	public void streamsAllResults() throws IOException, InterruptedException {
+		final Set<Long> found = new HashSet<>();
+		final List<List<String>> failed = new ArrayList<>();
+		BulkLookup bulk = new BulkLookup(connector, executor).setBatchSize(10).setParallelism(2);
+		long count = bulk.execute(range(100, 1000), IdType.UPC, new ResultHandler() {
+			@Override
+			public void onResult(Result result) {
+				Assert.assertTrue(found.add(result.getTrackId()));
+			}
+
+			@Override
+			public void onMissing(List<String> ids) {
+			}
+
+			@Override
+			public void onFailure(List<String> ids, Exception cause) {
+				failed.add(ids);
+			}
+		});
+		Assert.assertEquals(900, count);
+		Assert.assertEquals(900, found.size());
+		Assert.assertTrue(failed.isEmpty());
+		Assert.assertEquals(90, bulk.getBatches());
+		Assert.assertTrue(maxActive.get() <= 2);
+	}
+
+	@Test
+	public void reportsFailedBatch() throws IOException, InterruptedException {
+		final List<List<String>> failed = new ArrayList<>();
+		BulkLookup bulk = new BulkLookup(connector, executor).setBatchSize(5);
+		long count = bulk.execute(range(0, 20), IdType.UPC, new ResultHandler() {
+			@Override
+			public void onResult(Result result) {
+			}
+
+			@Override
+			public void onMissing(List<String> ids) {
+			}
+
+			@Override
+			public void onFailure(List<String> ids, Exception cause) {
+				failed.add(ids);
+			}
+		});
+		Assert.assertEquals(15, count);
+		Assert.assertEquals(1, failed.size());
+		Assert.assertTrue(failed.get(0).contains("13"));
+		Assert.assertEquals(1, bulk.getFailures());
+	}
+
+	@Test
+	public void reportsMissingIds() throws IOException, InterruptedException {
+		final List<String> missing = new ArrayList<>();
+		BulkLookup bulk = new BulkLookup(connector, executor).setBatchSize(10);
+		long count = bulk.execute(range(100, 150), IdType.ID, new ResultHandler() {
+			@Override
+			public void onResult(Result result) {
+			}
+
+			@Override
+			public void onMissing(List<String> ids) {
+				missing.addAll(ids);
+			}
+
+			@Override
+			public void onFailure(List<String> ids, Exception cause) {
+			}
+		});
+		Assert.assertEquals(45, count);
+		Collections.sort(missing);
+		Assert.assertEquals(Arrays.asList("107", "117", "127", "137", "147"), missing);
+		Assert.assertEquals(5, bulk.getMissing());
+	}
+
+	@Test
+	public void resumesFromCheckpoint() throws IOException, InterruptedException {
+		Path file = folder.getRoot().toPath().resolve("job.checkpoint");
+		final Set<Long> found = new HashSet<>();
+		BulkLookup bulk = new BulkLookup(connector, executor).setBatchSize(10).setParallelism(1);
+		try (Checkpoint checkpoint = new Checkpoint(file)) {
+			bulk.execute(range(100, 1000).iterator(), IdType.UPC, new ResultHandler() {
+				@Override
+				public void onResult(Result result) throws IOException {
+					if (result.getTrackId() == 150L) {
+						throw new IOException("deploy");
+					}
+					Assert.assertTrue(found.add(result.getTrackId()));
+				}
+
+				@Override
+				public void onMissing(List<String> ids) {
+				}
+
+				@Override
+				public void onFailure(List<String> ids, Exception cause) {
+				}
+			}, checkpoint);
+			Assert.fail();
+		} catch (IOException expected) {
+			Assert.assertEquals(50, found.size());
+		}
+
+		// a number torn by a crash is ignored
+		Files.write(file, new byte[3], StandardOpenOption.APPEND);
+		ResultHandler collecting = new ResultHandler() {
+			@Override
+			public void onResult(Result result) {
+				Assert.assertTrue(found.add(result.getTrackId()));
+			}
+
+			@Override
+			public void onMissing(List<String> ids) {
+			}
+
+			@Override
+			public void onFailure(List<String> ids, Exception cause) {
+			}
+		};
+		try (Checkpoint checkpoint = new Checkpoint(file)) {
+			Assert.assertEquals(5, checkpoint.getWatermark());
+			long count = bulk.execute(range(100, 1000).iterator(), IdType.UPC, collecting, checkpoint);
+			Assert.assertEquals(850, count);
+			Assert.assertEquals(900, found.size());
+			Assert.assertEquals(5, bulk.getSkipped());
+			Assert.assertEquals(90, checkpoint.getCompleted());
+		}
+
+		try (Checkpoint checkpoint = new Checkpoint(file)) {
+			bulk.setBatchSize(20).execute(range(100, 1000).iterator(), IdType.UPC, collecting, checkpoint);
+			Assert.fail();
+		} catch (IllegalStateException expected) {
+			// written for another batch size
+		}
+	}
+
+	@Test
+	public void refusesCheckpointOfOtherJob() throws IOException, InterruptedException {
+		Path file = folder.getRoot().toPath().resolve("job.checkpoint");
+		ResultHandler ignoring = new ResultHandler() {
+			@Override
+			public void onResult(Result result) {
+			}
+
+			@Override
+			public void onMissing(List<String> ids) {
+			}
+
+			@Override
+			public void onFailure(List<String> ids, Exception cause) {
+			}
+		};
+		BulkLookup bulk = new BulkLookup(connector, executor).setBatchSize(10);
+		try (Checkpoint checkpoint = new Checkpoint(file)) {
+			bulk.execute(range(100, 200).iterator(), IdType.UPC, ignoring, checkpoint);
+			Assert.assertEquals(10, checkpoint.getCompleted());
+		}
+		try (Checkpoint checkpoint = new Checkpoint(file)) {
+			bulk.execute(range(100, 200).iterator(), IdType.ISBN, ignoring, checkpoint);
+			Assert.fail();
+		} catch (IllegalStateException expected) {
+			// written for another id type
+		}
+		try (Checkpoint checkpoint = new Checkpoint(file)) {
+			bulk.execute(range(101, 200).iterator(), IdType.UPC, ignoring, checkpoint);
+			Assert.fail();
+		} catch (IllegalStateException expected) {
+			// written for other ids
+		}
+		try (Checkpoint checkpoint = new Checkpoint(file)) {
+			Assert.assertEquals(0, bulk.execute(range(100, 200).iterator(), IdType.UPC, ignoring, checkpoint));
+			Assert.assertEquals(10, bulk.getSkipped());
+		}
+	}
+
+	@Test
+	public void flushesBeforeCheckpoint() throws IOException, InterruptedException {
+		Path output = folder.getRoot().toPath().resolve("results.ndjson.gz");
+		Path journal = folder.getRoot().toPath().resolve("job.checkpoint");
+		NdjsonSink sink = new NdjsonSink(output, true) {
+			@Override
+			public synchronized void onResult(Result result) throws IOException {
+				if (result.getTrackId() == 555L) {
+					throw new IOException("crash");
+				}
+				super.onResult(result);
+			}
+		};
+		Checkpoint checkpoint = new Checkpoint(journal);
+		try {
+			new BulkLookup(connector, executor).setBatchSize(10).execute(range(100, 1000).iterator(), IdType.UPC, sink, checkpoint);
+			Assert.fail();
+		} catch (IOException expected) {
+			// neither sink nor checkpoint is closed, as in a crash
+		}
+
+		// opening the output again repairs it
+		new NdjsonSink(output, true).close();
+		Set<Long> written = new HashSet<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(output)), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				written.add(new ObjectMapper().readValue(line, Result.class).getTrackId());
+			}
+		}
+		try (Checkpoint resumed = new Checkpoint(journal)) {
+			Assert.assertTrue(resumed.getCompleted() > 0);
+			for (long batch = 0; batch < 90; batch++) {
+				if (resumed.isCompleted(batch)) {
+					for (long id = 100 + batch * 10; id < 110 + batch * 10; id++) {
+						Assert.assertTrue(written.contains(id));
+					}
+				}
+			}
+		}
+		checkpoint.close();
+	}
+
+	@Test
+	public void abortsOnHandlerException() throws InterruptedException {
+		BulkLookup bulk = new BulkLookup(connector, executor).setBatchSize(1).setParallelism(1);
+		try {
+			bulk.execute(range(100, 200), IdType.UPC, new ResultHandler() {
+				@Override
+				public void onResult(Result result) throws IOException {
+					throw new IOException("disk full");
+				}
+
+				@Override
+				public void onMissing(List<String> ids) {
+				}
+
+				@Override
+				public void onFailure(List<String> ids, Exception cause) {
+				}
+			});
+			Assert.fail();
+		} catch (IOException expected) {
+			Assert.assertEquals("disk full", expected.getMessage());
+		}
+		Assert.assertTrue(bulk.getBatches() < 100);
+	}
+
+}
@@ -0,0 +1,144 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.bulk;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import be.ceau.itunesapi.response.Result;
+
+public class NdjsonSinkTest {
+
+	private static final ObjectReader READER = new ObjectMapper().readerFor(Result.class);
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private static Result result(long trackId, String name) {
+		Result result = new Result();
+		result.setTrackId(trackId);
+		result.setTrackName(name);
+		return result;
+	}
+
+	@Test
+	public void writesOneResultPerLine() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (NdjsonSink sink = new NdjsonSink(out)) {
+			sink.onResult(result(1L, "One"));
+			sink.onResult(result(2L, "Two\nlines"));
+			sink.onMissing(Collections.singletonList("3"));
+			Assert.assertEquals(0, out.size());
+		}
+		String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n", -1);
+		Assert.assertEquals(3, lines.length);
+		Assert.assertEquals("", lines[2]);
+		Assert.assertEquals("{\"trackId\":1,\"trackName\":\"One\"}", lines[0]);
+		Result second = READER.readValue(lines[1]);
+		Assert.assertEquals("Two\nlines", second.getTrackName());
+	}
+
+	@Test
+	public void appendsCompressedRuns() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("results.ndjson.gz");
+		for (long run = 0; run < 2; run++) {
+			try (NdjsonSink sink = new NdjsonSink(file, true)) {
+				for (long i = 0; i < 1000; i++) {
+					sink.onResult(result(run * 1000 + i, "Track " + i));
+				}
+				Assert.assertEquals(1000, sink.getResults());
+			}
+		}
+		List<Long> ids = read(file);
+		Assert.assertEquals(2000, ids.size());
+		Assert.assertEquals(Long.valueOf(1999L), ids.get(1999));
+		Assert.assertTrue(Files.size(file) < 2000 * 30);
+	}
+
+	@Test
+	public void removesIncompleteLine() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("results.ndjson");
+		Files.write(file, "{\"trackId\":1}\n{\"trackId\":2,\"track".getBytes(StandardCharsets.UTF_8));
+		try (NdjsonSink sink = new NdjsonSink(file, false)) {
+			sink.onResult(result(3L, "Three"));
+		}
+		List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+		Assert.assertEquals(2, lines.size());
+		Assert.assertEquals("{\"trackId\":1}", lines.get(0));
+		Assert.assertEquals(Long.valueOf(3L), READER.<Result> readValue(lines.get(1)).getTrackId());
+	}
+
+	@Test
+	public void removesIncompleteMember() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("results.ndjson.gz");
+		try (NdjsonSink sink = new NdjsonSink(file, true)) {
+			for (long i = 0; i < 500; i++) {
+				sink.onResult(result(i, "Track " + i));
+			}
+			sink.flush();
+			// everything flushed reads back while the sink is open
+			Assert.assertEquals(500, read(file).size());
+			for (long i = 500; i < 1000; i++) {
+				sink.onResult(result(i, "Track " + i));
+			}
+		}
+		// cut off the end of the second member, as a crash while writing it would
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 10);
+		}
+		try (NdjsonSink sink = new NdjsonSink(file, true)) {
+			sink.onResult(result(1000L, "Track 1000"));
+		}
+		List<Long> ids = read(file);
+		Assert.assertEquals(501, ids.size());
+		Assert.assertEquals(Long.valueOf(499L), ids.get(499));
+		Assert.assertEquals(Long.valueOf(1000L), ids.get(500));
+	}
+
+	private static List<Long> read(Path file) throws IOException {
+		List<Long> ids = new ArrayList<>();
+		try (InputStream in = new GZIPInputStream(Files.newInputStream(file));
+				BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				Result result = READER.readValue(line);
+				ids.add(result.getTrackId());
+			}
+		}
+		return ids;
+	}
+
+}
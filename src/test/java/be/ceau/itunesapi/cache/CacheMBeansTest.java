@@ -0,0 +1,68 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.cache;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.itunesapi.http.Endpoint;
+
+public class CacheMBeansTest {
+
+	private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+	@After
+	public void unregister() {
+		CacheMBeans.unregister("first");
+		CacheMBeans.unregister("second");
+	}
+
+	@Test
+	public void registersEveryEndpoint() throws JMException {
+		Map<Endpoint, CacheStatistics> statistics = CacheStatistics.create();
+		statistics.get(Endpoint.SEARCH).miss();
+		CacheMBeans.register("first", statistics);
+		Assert.assertEquals(Endpoint.values().length, server.queryNames(new ObjectName("be.ceau.itunesapi:cache=\"first\",*"), null).size());
+		ObjectName search = new ObjectName("be.ceau.itunesapi:type=CacheStatistics,cache=\"first\",endpoint=search");
+		Assert.assertEquals(1L, server.getAttribute(search, "Misses"));
+		Assert.assertEquals(Endpoint.SEARCH, Endpoint.valueOf((String) server.getAttribute(search, "Endpoint")));
+	}
+
+	@Test
+	public void replacesAndUnregisters() throws JMException {
+		CacheMBeans.register("first", CacheStatistics.create());
+		CacheMBeans.register("second", CacheStatistics.create());
+		Map<Endpoint, CacheStatistics> replacement = CacheStatistics.create();
+		replacement.get(Endpoint.LOOKUP).hit();
+		CacheMBeans.register("first", replacement);
+		Assert.assertEquals(1L, server.getAttribute(new ObjectName("be.ceau.itunesapi:type=CacheStatistics,cache=\"first\",endpoint=lookup"), "Hits"));
+
+		CacheMBeans.unregister("first");
+		Assert.assertTrue(server.queryNames(new ObjectName("be.ceau.itunesapi:cache=\"first\",*"), null).isEmpty());
+		Assert.assertEquals(Endpoint.values().length, server.queryNames(new ObjectName("be.ceau.itunesapi:cache=\"second\",*"), null).size());
+		// unregistering an unknown name is harmless
+		CacheMBeans.unregister("first");
+	}
+
+}
@@ -0,0 +1,281 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.cache;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.itunesapi.http.Connector;
+import be.ceau.itunesapi.http.Endpoint;
+import be.ceau.itunesapi.http.Revalidation;
+
+public class CachingConnectorTest {
+
+	private static class CountingConnector implements Connector {
+
+		private final AtomicInteger calls = new AtomicInteger();
+
+		@Override
+		public String get(String link) throws IOException {
+			calls.incrementAndGet();
+			return "{\"resultCount\":1,\"link\":\"" + link + "\"}";
+		}
+
+	}
+
+	@Test
+	public void hitsCanonicalLink() throws IOException {
+		CountingConnector counting = new CountingConnector();
+		CachingConnector connector = new CachingConnector(counting);
+		String first = connector.get("https://itunes.apple.com/search?term=north&limit=5");
+		String second = connector.get("https://ITUNES.apple.com/search?limit=5&term=north");
+		Assert.assertEquals(first, second);
+		Assert.assertEquals(1, counting.calls.get());
+		Assert.assertEquals(1, connector.getHits());
+		Assert.assertEquals(1, connector.getMisses());
+	}
+
+	@Test
+	public void countsPerEndpoint() throws IOException, JMException {
+		CountingConnector counting = new CountingConnector();
+		CachingConnector connector = new CachingConnector(counting);
+		String search = "https://itunes.apple.com/search?term=north";
+		connector.get(search);
+		connector.get(search);
+		connector.get("https://itunes.apple.com/lookup?id=1");
+		connector.invalidate(search);
+
+		CacheStatistics statistics = connector.getStatistics(Endpoint.SEARCH);
+		Assert.assertEquals(1, statistics.getHits());
+		Assert.assertEquals(1, statistics.getMisses());
+		Assert.assertEquals(0.5, statistics.getHitRate(), 0.0);
+		Assert.assertEquals(1, statistics.getLoads());
+		Assert.assertEquals(1, statistics.getInvalidations());
+		Assert.assertEquals(0, statistics.getEntries());
+		Assert.assertEquals(0, statistics.getBytes());
+		Assert.assertEquals(1, connector.getStatistics(Endpoint.LOOKUP).getEntries());
+		Assert.assertEquals(connector.getBytes(), connector.getStatistics(Endpoint.LOOKUP).getBytes());
+
+		CacheMBeans.register("test", connector.getStatistics());
+		try {
+			ObjectName name = new ObjectName("be.ceau.itunesapi:type=CacheStatistics,cache=\"test\",endpoint=lookup");
+			Assert.assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Misses"));
+		} finally {
+			CacheMBeans.unregister("test");
+		}
+		Assert.assertTrue(ManagementFactory.getPlatformMBeanServer().queryNames(new ObjectName("be.ceau.itunesapi:*"), null).isEmpty());
+	}
+
+	@Test
+	public void keepsRepeatedParameterOrder() {
+		Assert.assertNotEquals(
+				CacheKey.of("https://itunes.apple.com/lookup?id=1&id=2"),
+				CacheKey.of("https://itunes.apple.com/lookup?id=2&id=1"));
+		Assert.assertEquals(
+				"https://itunes.apple.com/lookup?entity=album&id=1",
+				CacheKey.of("https://itunes.apple.com/lookup?id=1&entity=album"));
+	}
+
+	@Test
+	public void expires() throws IOException, InterruptedException {
+		CountingConnector counting = new CountingConnector();
+		CachingConnector connector = new CachingConnector(counting).setTtl(20, TimeUnit.MILLISECONDS);
+		connector.get("https://itunes.apple.com/search?term=north");
+		Thread.sleep(40);
+		connector.get("https://itunes.apple.com/search?term=north");
+		Assert.assertEquals(2, counting.calls.get());
+		Assert.assertEquals(1, connector.getExpirations());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsed() throws IOException {
+		CountingConnector counting = new CountingConnector();
+		String a = "https://itunes.apple.com/search?term=a";
+		String b = "https://itunes.apple.com/search?term=b";
+		String c = "https://itunes.apple.com/search?term=c";
+		int size = counting.get(a).length();
+		counting.calls.set(0);
+		CachingConnector connector = new CachingConnector(counting).setMaxBytes(2L * size);
+		connector.get(a);
+		connector.get(b);
+		connector.get(a);
+		connector.get(c);
+		Assert.assertEquals(1, connector.getEvictions());
+		Assert.assertEquals(2, connector.getSize());
+		Assert.assertEquals(2L * size, connector.getBytes());
+		connector.get(a);
+		Assert.assertEquals(3, counting.calls.get());
+		connector.get(b);
+		Assert.assertEquals(4, counting.calls.get());
+	}
+
+	@Test
+	public void revalidatesExpiredResponse() throws IOException, InterruptedException {
+		final AtomicInteger full = new AtomicInteger();
+		final AtomicInteger notModified = new AtomicInteger();
+		Connector server = new Connector() {
+			@Override
+			public String get(String link) throws IOException {
+				Revalidation revalidation = Revalidation.current();
+				if (revalidation != null && "\"v1\"".equals(revalidation.getEtag())) {
+					notModified.incrementAndGet();
+					revalidation.complete(true, null, null);
+					return "";
+				}
+				full.incrementAndGet();
+				if (revalidation != null) {
+					revalidation.complete(false, "\"v1\"", null);
+				}
+				return "{\"feed\":{}}";
+			}
+		};
+		CachingConnector connector = new CachingConnector(server).setTtl(20, TimeUnit.MILLISECONDS);
+		Assert.assertEquals("{\"feed\":{}}", connector.get("https://rss.itunes.apple.com/api/v1/us/apple-music/hot-tracks/all/10/explicit.json"));
+		Thread.sleep(40);
+		Assert.assertEquals("{\"feed\":{}}", connector.get("https://rss.itunes.apple.com/api/v1/us/apple-music/hot-tracks/all/10/explicit.json"));
+		Assert.assertEquals(1, full.get());
+		Assert.assertEquals(1, notModified.get());
+		Assert.assertEquals(1, connector.getRevalidations());
+		Assert.assertEquals(1, connector.getHits());
+		Assert.assertEquals(0, connector.getExpirations());
+	}
+
+	@Test
+	public void stackedCachesReportValidators() throws IOException {
+		CachingConnector inner = new CachingConnector(new Connector() {
+			@Override
+			public String get(String link) throws IOException {
+				Revalidation.current().complete(false, "\"v1\"", null);
+				return "{}";
+			}
+		});
+		inner.get("https://itunes.apple.com/lookup?id=1");
+		Revalidation outer = new Revalidation("\"v1\"", null);
+		Revalidation previous = outer.attach();
+		try {
+			inner.get("https://itunes.apple.com/lookup?id=1");
+		} finally {
+			Revalidation.restore(previous);
+		}
+		Assert.assertTrue(outer.isNotModified());
+	}
+
+	@Test
+	public void servesStaleWhileRefreshing() throws IOException, InterruptedException {
+		final AtomicInteger version = new AtomicInteger();
+		final CountDownLatch release = new CountDownLatch(1);
+		CachingConnector connector = new CachingConnector(new Connector() {
+			@Override
+			public String get(String link) throws IOException {
+				int v = version.incrementAndGet();
+				if (v > 1) {
+					try {
+						release.await(5, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						throw new IOException(e);
+					}
+				}
+				return "{\"version\":" + v + "}";
+			}
+		});
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			connector.setTtl(20, TimeUnit.MILLISECONDS).setStaleWhileRevalidate(1, TimeUnit.MINUTES, executor);
+			String link = "https://itunes.apple.com/search?term=north";
+			Assert.assertEquals("{\"version\":1}", connector.get(link));
+			Thread.sleep(40);
+			for (int i = 0; i < 5; i++) {
+				Assert.assertEquals("{\"version\":1}", connector.get(link));
+			}
+			Assert.assertEquals(5, connector.getStaleHits());
+			release.countDown();
+			while (connector.getRefreshes() < 1) {
+				Thread.sleep(5);
+			}
+			Assert.assertEquals("{\"version\":2}", connector.get(link));
+			Assert.assertEquals(2, version.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void cachesEmptyResponsesPerId() throws IOException, InterruptedException {
+		final AtomicInteger calls = new AtomicInteger();
+		CachingConnector connector = new CachingConnector(new Connector() {
+			@Override
+			public String get(String link) throws IOException {
+				calls.incrementAndGet();
+				return "{\n\n\n \"resultCount\":0,\n \"results\": []\n}";
+			}
+		}).setNegativeTtl(20, TimeUnit.MILLISECONDS);
+		connector.get("https://itunes.apple.com/lookup?id=1%2C2%2C3&entity=album");
+		Assert.assertEquals("{\"resultCount\":0,\"results\":[]}", connector.get("https://itunes.apple.com/lookup?id=2&entity=album"));
+		connector.get("https://itunes.apple.com/lookup?id=3%2C1&entity=album");
+		Assert.assertEquals(1, calls.get());
+		Assert.assertEquals(2, connector.getNegativeHits());
+
+		connector.get("https://itunes.apple.com/lookup?id=2");
+		Assert.assertEquals(2, calls.get());
+
+		Thread.sleep(40);
+		connector.get("https://itunes.apple.com/lookup?id=2&entity=album");
+		Assert.assertEquals(3, calls.get());
+	}
+
+	@Test
+	public void cachesMissingIdsOfPartialResponse() throws IOException {
+		final AtomicInteger calls = new AtomicInteger();
+		CachingConnector connector = new CachingConnector(new Connector() {
+			@Override
+			public String get(String link) throws IOException {
+				calls.incrementAndGet();
+				return "{\"resultCount\":1,\"results\":[{\"wrapperType\":\"track\",\"trackId\":2}]}";
+			}
+		});
+		connector.get("https://itunes.apple.com/lookup?id=1%2C2%2C3");
+		Assert.assertEquals("{\"resultCount\":0,\"results\":[]}", connector.get("https://itunes.apple.com/lookup?id=1"));
+		Assert.assertEquals("{\"resultCount\":0,\"results\":[]}", connector.get("https://itunes.apple.com/lookup?id=3"));
+		connector.get("https://itunes.apple.com/lookup?id=3%2C1");
+		Assert.assertEquals(1, calls.get());
+		Assert.assertEquals(3, connector.getNegativeHits());
+
+		connector.get("https://itunes.apple.com/lookup?id=2");
+		Assert.assertEquals(2, calls.get());
+	}
+
+	@Test
+	public void recognizesEmptyResponses() {
+		Assert.assertTrue(EmptyResponse.isEmpty("{\"resultCount\":0,\"results\":[]}".getBytes(StandardCharsets.UTF_8)));
+		Assert.assertTrue(EmptyResponse.isEmpty("{\"errorMessage\":{\"resultCount\":1}, \"resultCount\":0}".getBytes(StandardCharsets.UTF_8)));
+		Assert.assertFalse(EmptyResponse.isEmpty("{\"resultCount\":1,\"results\":[{}]}".getBytes(StandardCharsets.UTF_8)));
+		Assert.assertFalse(EmptyResponse.isEmpty("{\"feed\":{}}".getBytes(StandardCharsets.UTF_8)));
+		Assert.assertFalse(EmptyResponse.isEmpty("<html></html>".getBytes(StandardCharsets.UTF_8)));
+	}
+
+}
@@ -0,0 +1,184 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import be.ceau.itunesapi.http.Connector;
+import be.ceau.itunesapi.http.Endpoint;
+import be.ceau.itunesapi.http.Revalidation;
+
+public class DiskCachingConnectorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final AtomicInteger calls = new AtomicInteger();
+
+	private final Connector counting = new Connector() {
+		@Override
+		public String get(String link) throws IOException {
+			calls.incrementAndGet();
+			return "{\"resultCount\":1,\"link\":\"" + link + "\"}";
+		}
+	};
+
+	@Test
+	public void survivesRestart() throws IOException {
+		Path directory = folder.getRoot().toPath().resolve("cache");
+		String expected;
+		try (DiskCachingConnector connector = new DiskCachingConnector(counting, directory)) {
+			expected = connector.get("https://itunes.apple.com/lookup?id=909253");
+			Assert.assertEquals(expected, connector.get("https://itunes.apple.com/lookup?id=909253"));
+			Assert.assertEquals(1, connector.getHits());
+		}
+		try (DiskCachingConnector connector = new DiskCachingConnector(counting, directory)) {
+			Assert.assertEquals(1, connector.getSize());
+			Assert.assertEquals(expected, connector.get("https://itunes.apple.com/lookup?id=909253"));
+			Assert.assertEquals(1, connector.getHits());
+		}
+		Assert.assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void expires() throws IOException, InterruptedException {
+		try (DiskCachingConnector connector = new DiskCachingConnector(counting, folder.getRoot().toPath())) {
+			connector.setTtl(20, TimeUnit.MILLISECONDS);
+			connector.get("https://itunes.apple.com/lookup?id=909253");
+			Thread.sleep(40);
+			connector.get("https://itunes.apple.com/lookup?id=909253");
+		}
+		Assert.assertEquals(2, calls.get());
+	}
+
+	@Test
+	public void invalidateSurvivesRestart() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		try (DiskCachingConnector connector = new DiskCachingConnector(counting, directory)) {
+			connector.get("https://itunes.apple.com/lookup?id=909253");
+			connector.invalidate("https://itunes.apple.com/lookup?id=909253");
+			Assert.assertEquals(0, connector.getSize());
+		}
+		try (DiskCachingConnector connector = new DiskCachingConnector(counting, directory)) {
+			Assert.assertEquals(0, connector.getSize());
+		}
+	}
+
+	@Test
+	public void compactsReplacedRecords() throws IOException {
+		try (DiskCachingConnector connector = new DiskCachingConnector(counting, folder.getRoot().toPath(), 1024, 4)) {
+			connector.setTtl(0, TimeUnit.MILLISECONDS);
+			for (int i = 0; i < 100; i++) {
+				connector.get("https://itunes.apple.com/lookup?id=" + (i % 3));
+			}
+			Assert.assertTrue(connector.getCompactions() > 0);
+			Assert.assertTrue(connector.getSegments() <= 4);
+			connector.setTtl(1, TimeUnit.HOURS);
+			connector.get("https://itunes.apple.com/lookup?id=1");
+			connector.compact();
+			Assert.assertEquals(1, connector.getSize());
+			Assert.assertEquals(connector.getLiveBytes(), connector.getStoredBytes());
+			connector.get("https://itunes.apple.com/lookup?id=1");
+			Assert.assertEquals(1, connector.getHits());
+		}
+	}
+
+	@Test
+	public void ignoresTornRecord() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		long stored;
+		try (DiskCachingConnector connector = new DiskCachingConnector(counting, directory)) {
+			connector.get("https://itunes.apple.com/lookup?id=1");
+			connector.get("https://itunes.apple.com/lookup?id=2");
+			stored = connector.getStoredBytes();
+		}
+		File segment = directory.toFile().listFiles()[0];
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+			file.seek(stored - 2);
+			file.write('x');
+		}
+		try (DiskCachingConnector connector = new DiskCachingConnector(counting, directory)) {
+			Assert.assertEquals(1, connector.getSize());
+			connector.get("https://itunes.apple.com/lookup?id=1");
+			Assert.assertEquals(1, connector.getHits());
+		}
+	}
+
+	@Test
+	public void revalidatesAcrossRestart() throws IOException, InterruptedException {
+		Connector server = new Connector() {
+			@Override
+			public String get(String link) throws IOException {
+				calls.incrementAndGet();
+				Revalidation revalidation = Revalidation.current();
+				boolean match = "Mon, 01 Jan 2024 00:00:00 GMT".equals(revalidation.getLastModified());
+				revalidation.complete(match, null, "Mon, 01 Jan 2024 00:00:00 GMT");
+				return match ? "" : "{\"feed\":{}}";
+			}
+		};
+		Path directory = folder.getRoot().toPath();
+		try (DiskCachingConnector connector = new DiskCachingConnector(server, directory)) {
+			connector.setTtl(0, TimeUnit.MILLISECONDS);
+			connector.get("https://rss.itunes.apple.com/api/v1/us/podcasts/top-podcasts/all/10/explicit.json");
+		}
+		try (DiskCachingConnector connector = new DiskCachingConnector(server, directory)) {
+			Assert.assertEquals("{\"feed\":{}}", connector.get("https://rss.itunes.apple.com/api/v1/us/podcasts/top-podcasts/all/10/explicit.json"));
+			Assert.assertEquals(1, connector.getRevalidations());
+			Assert.assertEquals(0, connector.getMisses());
+		}
+		Assert.assertEquals(2, calls.get());
+	}
+
+	@Test
+	public void answersWhenStoreFails() throws IOException {
+		Path directory = folder.getRoot().toPath().resolve("cache");
+		try (DiskCachingConnector connector = new DiskCachingConnector(counting, directory)) {
+			// no segment can be created once the directory is replaced by a file
+			Files.delete(directory);
+			Files.createFile(directory);
+			Assert.assertEquals("{\"resultCount\":1,\"link\":\"https://itunes.apple.com/lookup?id=1\"}", connector.get("https://itunes.apple.com/lookup?id=1"));
+			Assert.assertEquals(0, connector.getSize());
+		}
+	}
+
+	@Test
+	public void countsPerEndpoint() throws IOException {
+		try (DiskCachingConnector connector = new DiskCachingConnector(counting, folder.getRoot().toPath())) {
+			connector.get("https://itunes.apple.com/lookup?id=1");
+			connector.get("https://itunes.apple.com/lookup?id=1");
+			connector.get("https://itunes.apple.com/search?term=north");
+
+			CacheStatistics lookup = connector.getStatistics().get(Endpoint.LOOKUP);
+			Assert.assertEquals(1, lookup.getHits());
+			Assert.assertEquals(1, lookup.getMisses());
+			Assert.assertEquals(1, lookup.getLoads());
+			Assert.assertEquals(1, connector.getStatistics().get(Endpoint.SEARCH).getMisses());
+			Assert.assertEquals(0, connector.getStatistics().get(Endpoint.FEED).getMisses());
+		}
+	}
+
+}
@@ -0,0 +1,106 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.itunesapi.http.Connector;
+import be.ceau.itunesapi.response.genreidsappendix.GenreIdsResponse;
+
+public class GenreRegistryTest {
+
+	private static String tree(String name) {
+		return "{\"34\":{\"name\":\"Music\",\"id\":\"34\",\"url\":\"https://itunes.apple.com/us/genre/music/id34\","
+				+ "\"subgenres\":{\"14\":{\"name\":\"" + name + "\",\"id\":\"14\",\"url\":\"https://itunes.apple.com/us/genre/music-pop/id14\"}}}}";
+	}
+
+	private final AtomicInteger calls = new AtomicInteger();
+
+	private final Connector connector = new Connector() {
+		@Override
+		public String get(String link) throws IOException {
+			return tree("Pop " + calls.incrementAndGet());
+		}
+	};
+
+	@Test
+	public void loadsOnceAndShares() {
+		try (GenreRegistry registry = new GenreRegistry(connector, 1, TimeUnit.HOURS)) {
+			GenreIdsResponse first = registry.get();
+			Assert.assertSame(first, registry.get());
+			Assert.assertTrue(first.isFrozen());
+			Assert.assertEquals("Pop 1", registry.getGenre(14).getName());
+			Assert.assertEquals(1, calls.get());
+			try {
+				registry.getGenre(14).setName("Rock");
+				Assert.fail();
+			} catch (UnsupportedOperationException expected) {
+				// frozen
+			}
+		}
+	}
+
+	@Test
+	public void refreshSwapsTree() {
+		try (GenreRegistry registry = new GenreRegistry(connector, 1, TimeUnit.HOURS)) {
+			GenreIdsResponse first = registry.get();
+			Assert.assertTrue(registry.refresh());
+			Assert.assertNotSame(first, registry.get());
+			Assert.assertEquals("Pop 2", registry.getGenre(14).getName());
+			Assert.assertEquals("Pop 1", first.getGenres().get(34).getSubgenres().get(14).getName());
+		}
+	}
+
+	@Test
+	public void failedRefreshKeepsTree() {
+		final AtomicInteger calls = new AtomicInteger();
+		try (GenreRegistry registry = new GenreRegistry(new Connector() {
+			@Override
+			public String get(String link) throws IOException {
+				if (calls.incrementAndGet() > 1) {
+					throw new IOException("unavailable");
+				}
+				return tree("Pop");
+			}
+		}, 1, TimeUnit.HOURS)) {
+			GenreIdsResponse first = registry.get();
+			Assert.assertFalse(registry.refresh());
+			Assert.assertSame(first, registry.get());
+			Assert.assertEquals(1, registry.getFailures());
+		}
+	}
+
+	@Test
+	public void seedAvoidsColdFetch() throws IOException, InterruptedException {
+		try (GenreRegistry registry = new GenreRegistry(connector, 1, TimeUnit.HOURS)) {
+			registry.seed(new ByteArrayInputStream(tree("Seeded").getBytes(StandardCharsets.UTF_8)));
+			Assert.assertEquals("Music", registry.getGenre(34).getName());
+			while (registry.getRefreshes() < 1) {
+				Thread.sleep(5);
+			}
+			Assert.assertFalse(registry.isSeeded());
+			Assert.assertEquals("Pop 1", registry.getGenre(14).getName());
+		}
+	}
+
+}
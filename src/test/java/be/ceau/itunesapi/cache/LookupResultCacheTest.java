@@ -0,0 +1,121 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.itunesapi.Lookup;
+import be.ceau.itunesapi.http.Connector;
+import be.ceau.itunesapi.http.Endpoint;
+import be.ceau.itunesapi.request.Entity;
+import be.ceau.itunesapi.response.Response;
+
+public class LookupResultCacheTest {
+
+	private final List<String> links = new ArrayList<>();
+
+	/**
+	 * Answers every requested id, except 404, with a track, collection or
+	 * artist result depending on the first digit.
+	 */
+	private final Connector connector = new Connector() {
+		@Override
+		public synchronized String get(String link) throws IOException {
+			links.add(link);
+			String ids = link.replaceAll(".*[?&]id=([^&]*).*", "$1");
+			StringBuilder results = new StringBuilder();
+			int count = 0;
+			for (String id : ids.split("%2C")) {
+				if (id.equals("404")) {
+					continue;
+				}
+				String field = id.startsWith("1") ? "trackId" : id.startsWith("2") ? "collectionId" : "artistId";
+				results.append(count++ == 0 ? "" : ",").append("{\"").append(field).append("\":").append(id)
+						.append(field.equals("artistId") ? "}" : ",\"artistId\":9}");
+			}
+			return "{\"resultCount\":" + count + ",\"results\":[" + results + "]}";
+		}
+	};
+
+	@Test
+	public void requestsOnlyUncachedIds() {
+		LookupResultCache cache = new LookupResultCache(connector);
+		Response first = cache.execute(new Lookup().addId("11").addId("22").addId("404"));
+		Assert.assertEquals(2, first.getResultCount());
+		Assert.assertTrue(first.isFrozen());
+
+		Response second = cache.execute(new Lookup().addId("33").addId("11").addId("22").addId("404"));
+		Assert.assertEquals(2, links.size());
+		Assert.assertTrue(links.get(1).matches(".*[?&]id=33(&.*)?"));
+		Assert.assertEquals(3, second.getResultCount());
+		Assert.assertEquals(Long.valueOf(33L), second.getResults().get(0).getArtistId());
+		Assert.assertSame(first.getResults().get(0), second.getResults().get(1));
+		Assert.assertEquals(Long.valueOf(22L), second.getResults().get(2).getCollectionId());
+		Assert.assertEquals(3, cache.getHits());
+		Assert.assertEquals(4, cache.getMisses());
+		Assert.assertEquals(4, cache.getSize());
+
+		cache.execute(new Lookup().addId("22").addId("404"));
+		Assert.assertEquals(2, links.size());
+	}
+
+	@Test
+	public void splitsUncachedIds() {
+		LookupResultCache cache = new LookupResultCache(connector);
+		Lookup lookup = new Lookup();
+		for (int i = 0; i < 450; i++) {
+			lookup.addId(String.valueOf(100000 + i));
+		}
+		Assert.assertEquals(450, cache.execute(lookup).getResultCount());
+		Assert.assertEquals(3, links.size());
+		Assert.assertEquals(3, cache.getRequests());
+		Assert.assertEquals(450, cache.getSize());
+	}
+
+	@Test
+	public void bypassesEntityLookups() {
+		LookupResultCache cache = new LookupResultCache(connector);
+		cache.execute(new Lookup().addId("11").setEntity(Entity.SONG));
+		cache.execute(new Lookup().addId("11").setEntity(Entity.SONG));
+		Assert.assertEquals(2, links.size());
+		Assert.assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void countsIds() {
+		LookupResultCache cache = new LookupResultCache(connector).setMaxEntries(3);
+		cache.execute(new Lookup().addId("11").addId("22"));
+		cache.execute(new Lookup().addId("11").addId("33").addId("404"));
+
+		CacheStatistics statistics = cache.getStatistics().get(Endpoint.LOOKUP);
+		Assert.assertEquals(1, statistics.getHits());
+		Assert.assertEquals(4, statistics.getMisses());
+		Assert.assertEquals(2, statistics.getLoads());
+		Assert.assertEquals(1, statistics.getEvictions());
+		Assert.assertEquals(3, statistics.getEntries());
+		Assert.assertEquals(0, cache.getStatistics().get(Endpoint.SEARCH).getMisses());
+
+		cache.clear();
+		Assert.assertEquals(3, statistics.getInvalidations());
+		Assert.assertEquals(0, statistics.getEntries());
+	}
+
+}
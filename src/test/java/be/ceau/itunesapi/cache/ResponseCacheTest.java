@@ -0,0 +1,136 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.cache;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.itunesapi.FeedGenerator;
+import be.ceau.itunesapi.Lookup;
+import be.ceau.itunesapi.http.Connector;
+import be.ceau.itunesapi.http.Endpoint;
+import be.ceau.itunesapi.response.Response;
+import be.ceau.itunesapi.response.Result;
+import be.ceau.itunesapi.response.feedgenerator.Feed;
+
+public class ResponseCacheTest {
+
+	private final AtomicInteger calls = new AtomicInteger();
+
+	private final Connector connector = new Connector() {
+		@Override
+		public String get(String link) throws IOException {
+			calls.incrementAndGet();
+			if (link.contains("rss.itunes.apple.com")) {
+				return "{\"feed\":{\"title\":\"Top Songs\",\"author\":{\"name\":\"iTunes Store\"},\"links\":[{\"self\":\"https://rss.itunes.apple.com/\"}],"
+						+ "\"results\":[{\"id\":\"1\",\"genres\":[{\"genreId\":\"14\",\"name\":\"Pop\"}]}]}}";
+			}
+			return "{\"resultCount\":1,\"results\":[{\"trackId\":909253,\"genres\":[\"Rock\"]}]}";
+		}
+	};
+
+	@Test
+	public void sharesFrozenResponse() {
+		ResponseCache cache = new ResponseCache(connector);
+		Response first = cache.execute(new Lookup().addId("909253"));
+		Response second = cache.execute(new Lookup().addId("909253"));
+		Assert.assertSame(first, second);
+		Assert.assertEquals(1, calls.get());
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertTrue(first.isFrozen());
+
+		Result result = first.getResults().get(0);
+		Assert.assertEquals(Long.valueOf(909253L), result.getTrackId());
+		try {
+			result.setTrackName("Changed");
+			Assert.fail();
+		} catch (UnsupportedOperationException expected) {
+			// frozen
+		}
+		try {
+			result.getGenres().add("Pop");
+			Assert.fail();
+		} catch (UnsupportedOperationException expected) {
+			// frozen
+		}
+		try {
+			first.getResults().clear();
+			Assert.fail();
+		} catch (UnsupportedOperationException expected) {
+			// frozen
+		}
+	}
+
+	@Test
+	public void freezesFeed() {
+		ResponseCache cache = new ResponseCache(connector);
+		Feed feed = cache.execute(new FeedGenerator());
+		Assert.assertSame(feed, cache.execute(new FeedGenerator()));
+		Assert.assertEquals("Top Songs", feed.getTitle());
+		try {
+			feed.getResults().get(0).getGenres().get(0).setName("Rock");
+			Assert.fail();
+		} catch (UnsupportedOperationException expected) {
+			// frozen
+		}
+		try {
+			feed.getAuthor().setName("Someone");
+			Assert.fail();
+		} catch (UnsupportedOperationException expected) {
+			// frozen
+		}
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsed() {
+		ResponseCache cache = new ResponseCache(connector).setMaxEntries(1);
+		cache.execute(new Lookup().addId("1"));
+		cache.execute(new Lookup().addId("2"));
+		cache.execute(new Lookup().addId("1"));
+		Assert.assertEquals(3, calls.get());
+		Assert.assertEquals(2, cache.getEvictions());
+	}
+
+	@Test
+	public void countsPerEndpoint() {
+		ResponseCache cache = new ResponseCache(connector).setMaxEntries(2);
+		cache.execute(new Lookup().addId("1"));
+		cache.execute(new Lookup().addId("1"));
+		cache.execute(new FeedGenerator());
+		cache.execute(new Lookup().addId("2"));
+
+		CacheStatistics lookup = cache.getStatistics(Endpoint.LOOKUP);
+		Assert.assertEquals(1, lookup.getHits());
+		Assert.assertEquals(2, lookup.getMisses());
+		Assert.assertEquals(2, lookup.getLoads());
+		Assert.assertEquals(1, lookup.getEvictions());
+		Assert.assertEquals(1, lookup.getEntries());
+		CacheStatistics feed = cache.getStatistics(Endpoint.FEED);
+		Assert.assertEquals(1, feed.getMisses());
+		Assert.assertEquals(0, feed.getEvictions());
+		Assert.assertEquals(1, feed.getEntries());
+
+		cache.clear();
+		Assert.assertEquals(1, lookup.getInvalidations());
+		Assert.assertEquals(1, feed.getInvalidations());
+		Assert.assertEquals(0, lookup.getEntries());
+		Assert.assertEquals(0, lookup.getBytes());
+	}
+
+}
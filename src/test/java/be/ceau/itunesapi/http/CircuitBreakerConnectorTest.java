@@ -0,0 +1,167 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.itunesapi.http.CircuitBreaker.State;
+
+public class CircuitBreakerConnectorTest {
+
+	private static final String SEARCH = "https://itunes.apple.com/search?term=north";
+	private static final String LOOKUP = "https://itunes.apple.com/lookup?id=178834";
+
+	/**
+	 * {@link Connector} failing search requests while {@code failing} is set
+	 */
+	private static class FlakyConnector implements Connector {
+
+		private final AtomicInteger calls = new AtomicInteger();
+		private volatile boolean failing = true;
+
+		@Override
+		public String get(String link) throws IOException {
+			calls.incrementAndGet();
+			if (failing && Endpoint.of(link) == Endpoint.SEARCH) {
+				throw new HttpStatusException(503, link, null);
+			}
+			return "{}";
+		}
+
+	}
+
+	@Test
+	public void endpoints() {
+		Assert.assertEquals(Endpoint.SEARCH, Endpoint.of(SEARCH));
+		Assert.assertEquals(Endpoint.LOOKUP, Endpoint.of(LOOKUP));
+		Assert.assertEquals(Endpoint.FEED, Endpoint.of("https://rss.itunes.apple.com/api/v1/us/apple-music/new-music/all/10/explicit.json"));
+		Assert.assertEquals(Endpoint.GENRES, Endpoint.of("https://itunes.apple.com/WebObjects/MZStoreServices.woa/ws/genres"));
+		Assert.assertEquals(Endpoint.OTHER, Endpoint.of("https://www.apple.com"));
+		Assert.assertEquals(Endpoint.OTHER, Endpoint.of("www.apple.com"));
+	}
+
+	@Test
+	public void opensPerEndpoint() throws IOException, InterruptedException {
+		FlakyConnector delegate = new FlakyConnector();
+		CircuitBreakerConnector connector = new CircuitBreakerConnector(delegate, 2, 50, TimeUnit.MILLISECONDS, 1);
+		for (int i = 0; i < 2; i++) {
+			try {
+				connector.get(SEARCH);
+				Assert.fail();
+			} catch (HttpStatusException expected) {
+				// continue
+			}
+		}
+		Assert.assertEquals(State.OPEN, connector.getCircuitBreaker(Endpoint.SEARCH).getState());
+		try {
+			connector.get(SEARCH);
+			Assert.fail();
+		} catch (CircuitOpenException e) {
+			Assert.assertEquals(FailureType.REJECTED, FailureType.of(e));
+		}
+		Assert.assertEquals(2, delegate.calls.get());
+		Assert.assertEquals(1, connector.getCircuitBreaker(Endpoint.SEARCH).getRejected());
+
+		// other endpoints are not affected
+		Assert.assertEquals("{}", connector.get(LOOKUP));
+		Assert.assertEquals(State.CLOSED, connector.getCircuitBreaker(Endpoint.LOOKUP).getState());
+
+		// a successful trial request closes the breaker
+		Thread.sleep(60);
+		Assert.assertEquals(State.HALF_OPEN, connector.getCircuitBreaker(Endpoint.SEARCH).getState());
+		delegate.failing = false;
+		Assert.assertEquals("{}", connector.get(SEARCH));
+		Assert.assertEquals(State.CLOSED, connector.getCircuitBreaker(Endpoint.SEARCH).getState());
+	}
+
+	@Test
+	public void trialReleasedBeforeClose() throws IOException, InterruptedException {
+		final AtomicInteger calls = new AtomicInteger();
+		StreamConnector delegate = new StreamConnector() {
+			@Override
+			public String get(String link) throws IOException {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public InputStream open(String link) throws IOException {
+				if (calls.incrementAndGet() == 1) {
+					throw new HttpStatusException(503, link, null);
+				}
+				if (calls.get() == 2) {
+					return new InputStream() {
+						@Override
+						public int read() throws IOException {
+							throw new IOException("reset");
+						}
+					};
+				}
+				return new ByteArrayInputStream("{}".getBytes("UTF-8"));
+			}
+		};
+		CircuitBreakerConnector connector = new CircuitBreakerConnector(delegate, 1, 10, TimeUnit.MILLISECONDS, 1);
+		try {
+			connector.get(SEARCH);
+			Assert.fail();
+		} catch (HttpStatusException expected) {
+			// continue
+		}
+		CircuitBreaker breaker = connector.getCircuitBreaker(Endpoint.SEARCH);
+
+		// a trial failing while read reopens the breaker before it is closed
+		Thread.sleep(20);
+		InputStream failing = connector.open(SEARCH);
+		try {
+			failing.read();
+			Assert.fail();
+		} catch (IOException expected) {
+			// continue
+		}
+		Assert.assertEquals(State.OPEN, breaker.getState());
+
+		// a trial read to its end closes the breaker before it is closed
+		Thread.sleep(20);
+		InputStream body = connector.open(SEARCH);
+		while (body.read() != -1) {
+			// drain
+		}
+		Assert.assertEquals(State.CLOSED, breaker.getState());
+		failing.close();
+		body.close();
+	}
+
+	@Test
+	public void failedTrialReopens() throws InterruptedException {
+		CircuitBreaker breaker = new CircuitBreaker(1, 10, TimeUnit.MILLISECONDS, 1);
+		Assert.assertTrue(breaker.tryAcquire());
+		breaker.onFailure();
+		Assert.assertFalse(breaker.tryAcquire());
+		Thread.sleep(20);
+		Assert.assertTrue(breaker.tryAcquire());
+		// only one trial at a time
+		Assert.assertFalse(breaker.tryAcquire());
+		breaker.onFailure();
+		Assert.assertEquals(State.OPEN, breaker.getState());
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CoalescingConnectorTest {
+
+	@Test
+	public void sharesInFlightRequest() throws InterruptedException, ExecutionException {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger calls = new AtomicInteger();
+		final CoalescingConnector connector = new CoalescingConnector(new Connector() {
+			@Override
+			public String get(String link) throws IOException {
+				calls.incrementAndGet();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+				return "{\"resultCount\":0}";
+			}
+		});
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(new Callable<String>() {
+					@Override
+					public String call() throws IOException {
+						return connector.get("https://itunes.apple.com/search?term=north");
+					}
+				}));
+			}
+			while (connector.getCoalesced() < 7) {
+				Thread.sleep(5);
+			}
+			release.countDown();
+			for (Future<String> future : futures) {
+				Assert.assertEquals("{\"resultCount\":0}", future.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		Assert.assertEquals(1, calls.get());
+		Assert.assertEquals(7, connector.getCoalesced());
+		Assert.assertEquals(0, connector.getInFlight());
+	}
+
+	@Test
+	public void sharedRequestOutlivesDeadlineOfFirstCaller() throws InterruptedException, ExecutionException, IOException {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger calls = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			final CoalescingConnector connector = new CoalescingConnector(new Connector() {
+				@Override
+				public String get(String link) throws IOException {
+					calls.incrementAndGet();
+					Assert.assertNull(Deadline.current());
+					try {
+						release.await(5, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						throw new IOException(e);
+					}
+					return "{\"resultCount\":0}";
+				}
+			}, executor);
+			Future<String> follower = executor.submit(new Callable<String>() {
+				@Override
+				public String call() throws IOException, InterruptedException {
+					while (connector.getInFlight() == 0) {
+						Thread.sleep(5);
+					}
+					return connector.get("https://itunes.apple.com/search?term=north");
+				}
+			});
+			Deadline previous = Deadline.after(100, TimeUnit.MILLISECONDS).attach();
+			try {
+				connector.get("https://itunes.apple.com/search?term=north");
+				Assert.fail();
+			} catch (DeadlineExceededException expected) {
+				// continue
+			} finally {
+				Deadline.restore(previous);
+			}
+			release.countDown();
+			Assert.assertEquals("{\"resultCount\":0}", follower.get());
+		} finally {
+			executor.shutdown();
+		}
+		Assert.assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void doesNotKeepCompletedRequests() throws IOException {
+		final AtomicInteger calls = new AtomicInteger();
+		CoalescingConnector connector = new CoalescingConnector(new Connector() {
+			@Override
+			public String get(String link) throws IOException {
+				calls.incrementAndGet();
+				throw new IOException("reset");
+			}
+		});
+		for (int i = 0; i < 2; i++) {
+			try {
+				connector.get("https://itunes.apple.com/search?term=north");
+				Assert.fail();
+			} catch (IOException expected) {
+				// continue
+			}
+		}
+		Assert.assertEquals(2, calls.get());
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DeadlineTest {
+
+	@Test
+	public void readTimeout() throws IOException {
+		try (LocalServer server = new LocalServer()) {
+			server.delay(2000);
+			URLConnector connector = new URLConnector().setReadTimeout(100, TimeUnit.MILLISECONDS);
+			long start = System.nanoTime();
+			try {
+				connector.get(server.url("/search"));
+				Assert.fail();
+			} catch (IOException e) {
+				Assert.assertEquals(FailureType.TIMEOUT, FailureType.of(e));
+			}
+			Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1500);
+		}
+	}
+
+	@Test
+	public void deadlineShortensTimeout() throws IOException {
+		try (LocalServer server = new LocalServer()) {
+			server.delay(2000);
+			URLConnector connector = new URLConnector();
+			Deadline previous = Deadline.after(100, TimeUnit.MILLISECONDS).attach();
+			long start = System.nanoTime();
+			try {
+				connector.get(server.url("/search"));
+				Assert.fail();
+			} catch (IOException e) {
+				Assert.assertEquals(FailureType.TIMEOUT, FailureType.of(e));
+			} finally {
+				Deadline.restore(previous);
+			}
+			Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1500);
+			Assert.assertNull(Deadline.current());
+		}
+	}
+
+	@Test
+	public void deadlineAbortsStalledBody() throws IOException {
+		try (LocalServer server = new LocalServer()) {
+			// the read timeout set when connecting outlasts the deadline once
+			// the headers took most of it
+			URLConnector connector = new URLConnector().setCompression(false);
+			server.respond(200, "{\"resultCount\":0,\"results\":[]}");
+			// warm up, so only the delays below count
+			connector.get(server.url("/search"));
+			server.delay(600).stall(3000);
+			Deadline previous = Deadline.after(1000, TimeUnit.MILLISECONDS).attach();
+			long start = System.nanoTime();
+			try {
+				connector.get(server.url("/search"));
+				Assert.fail();
+			} catch (IOException e) {
+				Assert.assertTrue(e instanceof DeadlineExceededException);
+			} finally {
+				Deadline.restore(previous);
+			}
+			Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1400);
+		}
+	}
+
+	@Test
+	public void expiredDeadlineStopsRetries() {
+		final AtomicInteger calls = new AtomicInteger();
+		RetryingConnector connector = new RetryingConnector(new Connector() {
+			@Override
+			public String get(String link) throws IOException {
+				calls.incrementAndGet();
+				throw new HttpStatusException(503, link, "1");
+			}
+		}).setMaxAttempts(5);
+		Deadline previous = Deadline.after(500, TimeUnit.MILLISECONDS).attach();
+		try {
+			connector.get("https://itunes.apple.com/search?term=north");
+			Assert.fail();
+		} catch (IOException e) {
+			Assert.assertTrue(e instanceof HttpStatusException);
+		} finally {
+			Deadline.restore(previous);
+		}
+		Assert.assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void earliestDeadlineWins() {
+		Deadline late = Deadline.after(1, TimeUnit.HOURS);
+		Deadline early = Deadline.after(1, TimeUnit.MINUTES);
+		Deadline first = early.attach();
+		Deadline second = late.attach();
+		Assert.assertSame(early, Deadline.current());
+		Deadline.restore(second);
+		Deadline.restore(first);
+		Assert.assertNull(Deadline.current());
+	}
+
+}
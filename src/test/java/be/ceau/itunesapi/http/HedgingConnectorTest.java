@@ -0,0 +1,196 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HedgingConnectorTest {
+
+	@Test
+	public void hedgesStalledRequest() throws IOException {
+		final AtomicInteger calls = new AtomicInteger();
+		Connector delegate = new Connector() {
+			@Override
+			public String get(String link) throws IOException {
+				if (calls.incrementAndGet() == HedgingConnector.MIN_SAMPLES + 1) {
+					try {
+						Thread.sleep(5000);
+					} catch (InterruptedException e) {
+						throw new InterruptedIOException();
+					}
+					return "stalled";
+				}
+				return "fast";
+			}
+		};
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			HedgingConnector connector = new HedgingConnector(delegate, executor).setMinDelay(5, TimeUnit.MILLISECONDS);
+			for (int i = 0; i < HedgingConnector.MIN_SAMPLES; i++) {
+				Assert.assertEquals("fast", connector.get("https://itunes.apple.com/lookup?id=" + i));
+			}
+			Assert.assertEquals(0, connector.getHedged());
+			long start = System.nanoTime();
+			Assert.assertEquals("fast", connector.get("https://itunes.apple.com/lookup?id=178834"));
+			Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+			Assert.assertEquals(1, connector.getHedged());
+			Assert.assertEquals(1, connector.getHedgeWins());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void closesBodyOfCancelledRequest() throws IOException, InterruptedException {
+		final AtomicInteger calls = new AtomicInteger();
+		final CountDownLatch closed = new CountDownLatch(1);
+		StreamConnector delegate = new StreamConnector() {
+			@Override
+			public String get(String link) throws IOException {
+				return "fast";
+			}
+
+			@Override
+			public InputStream open(String link) throws IOException {
+				if (calls.incrementAndGet() != HedgingConnector.MIN_SAMPLES + 1) {
+					return new ByteArrayInputStream("fast".getBytes("UTF-8"));
+				}
+				// a body that only ends when closed, ignoring interrupts
+				return new InputStream() {
+					private final CountDownLatch open = new CountDownLatch(1);
+
+					@Override
+					public int read() throws IOException {
+						while (true) {
+							try {
+								if (open.await(10, TimeUnit.SECONDS)) {
+									throw new IOException("closed");
+								}
+							} catch (InterruptedException e) {
+								// ignored, as by a socket read
+							}
+						}
+					}
+
+					@Override
+					public void close() {
+						open.countDown();
+						closed.countDown();
+					}
+				};
+			}
+		};
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			HedgingConnector connector = new HedgingConnector(delegate, executor).setMinDelay(5, TimeUnit.MILLISECONDS);
+			for (int i = 0; i < HedgingConnector.MIN_SAMPLES; i++) {
+				connector.get("https://itunes.apple.com/lookup?id=" + i);
+			}
+			Assert.assertEquals("fast", connector.get("https://itunes.apple.com/lookup?id=178834"));
+			Assert.assertEquals(1, connector.getHedgeWins());
+			Assert.assertTrue(closed.await(2, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void budgetCapsHedges() throws IOException {
+		Connector delegate = new Connector() {
+			@Override
+			public String get(String link) throws IOException {
+				try {
+					Thread.sleep(link.endsWith("slow") ? 30 : 0);
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+				return "ok";
+			}
+		};
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			HedgingConnector connector = new HedgingConnector(delegate, executor)
+					.setMinDelay(1, TimeUnit.MILLISECONDS)
+					.setBudget(new RetryBudget(0, 2));
+			for (int i = 0; i < HedgingConnector.MIN_SAMPLES; i++) {
+				connector.get("https://itunes.apple.com/lookup?id=fast");
+			}
+			for (int i = 0; i < 5; i++) {
+				Assert.assertEquals("ok", connector.get("https://itunes.apple.com/lookup?id=slow"));
+			}
+			Assert.assertEquals(2, connector.getHedged());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void reportsRevalidationOfWinner() throws IOException, InterruptedException {
+		final AtomicInteger calls = new AtomicInteger();
+		Connector delegate = new Connector() {
+			@Override
+			public String get(String link) throws IOException {
+				Revalidation revalidation = Revalidation.current();
+				if (revalidation == null) {
+					return "";
+				}
+				if (calls.incrementAndGet() == 1) {
+					try {
+						Thread.sleep(5000);
+					} catch (InterruptedException e) {
+						// the cancelled request reports after the winner
+						revalidation.complete(false, "loser", null);
+						throw new InterruptedIOException();
+					}
+				}
+				revalidation.complete(true, "winner", null);
+				return "";
+			}
+		};
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			HedgingConnector connector = new HedgingConnector(delegate, executor).setMinDelay(5, TimeUnit.MILLISECONDS);
+			for (int i = 0; i < HedgingConnector.MIN_SAMPLES; i++) {
+				connector.get("https://itunes.apple.com/lookup?id=" + i);
+			}
+			Revalidation revalidation = new Revalidation("winner", null);
+			Revalidation previous = revalidation.attach();
+			try {
+				connector.get("https://itunes.apple.com/lookup?id=178834");
+			} finally {
+				Revalidation.restore(previous);
+			}
+			Thread.sleep(100);
+			Assert.assertEquals(1, connector.getHedgeWins());
+			Assert.assertTrue(revalidation.isNotModified());
+			Assert.assertEquals("winner", revalidation.getResponseEtag());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Minimal HTTP server on the loopback interface, serving a fixed body.
+ */
+class LocalServer implements Closeable {
+
+	private final HttpServer server;
+	private final AtomicInteger requests = new AtomicInteger();
+	private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+	private volatile int status = 200;
+	private volatile String body = "{}";
+	private volatile boolean gzip;
+	private volatile long delay;
+	private volatile long stall;
+	private volatile String etag;
+
+	LocalServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				requests.incrementAndGet();
+				clientPorts.add(exchange.getRemoteAddress().getPort());
+				try (InputStream in = exchange.getRequestBody()) {
+					while (in.read() != -1) {
+						// drain
+					}
+				}
+				if (delay > 0) {
+					try {
+						Thread.sleep(delay);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				if (etag != null) {
+					exchange.getResponseHeaders().set("ETag", etag);
+					if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+						exchange.sendResponseHeaders(304, -1);
+						exchange.close();
+						return;
+					}
+				}
+				byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+				String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+				if (gzip && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+					ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+					try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+						out.write(bytes);
+					}
+					bytes = compressed.toByteArray();
+					exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+				}
+				exchange.sendResponseHeaders(status, bytes.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					if (stall > 0) {
+						out.write(bytes, 0, bytes.length / 2);
+						out.flush();
+						try {
+							Thread.sleep(stall);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						out.write(bytes, bytes.length / 2, bytes.length - bytes.length / 2);
+					} else {
+						out.write(bytes);
+					}
+				}
+			}
+		});
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+	}
+
+	LocalServer respond(int status, String body) {
+		this.status = status;
+		this.body = body;
+		return this;
+	}
+
+	LocalServer gzip(boolean gzip) {
+		this.gzip = gzip;
+		return this;
+	}
+
+	LocalServer delay(long delay) {
+		this.delay = delay;
+		return this;
+	}
+
+	/**
+	 * Send half of the body, then wait the given time before sending the
+	 * rest.
+	 */
+	LocalServer stall(long stall) {
+		this.stall = stall;
+		return this;
+	}
+
+	LocalServer etag(String etag) {
+		this.etag = etag;
+		return this;
+	}
+
+	String url(String path) {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+	}
+
+	int requests() {
+		return requests.get();
+	}
+
+	int connections() {
+		return clientPorts.size();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+
+}
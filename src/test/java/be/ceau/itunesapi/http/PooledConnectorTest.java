@@ -0,0 +1,62 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PooledConnectorTest {
+
+	@Test(expected = IllegalArgumentException.class)
+	public void emptyPool() {
+		new PooledConnector(0);
+	}
+
+	@Test
+	public void reusesConnection() throws IOException {
+		try (LocalServer server = new LocalServer()) {
+			server.respond(200, "{\"resultCount\":0}");
+			PooledConnector connector = new PooledConnector(1);
+			for (int i = 0; i < 5; i++) {
+				Assert.assertEquals("{\"resultCount\":0}", connector.get(server.url("/lookup?id=" + i)));
+			}
+			Assert.assertEquals(5, server.requests());
+			Assert.assertEquals(1, server.connections());
+			Assert.assertEquals(1, connector.getAvailableConnections());
+		}
+	}
+
+	@Test
+	public void reusesConnectionAfterError() throws IOException {
+		try (LocalServer server = new LocalServer()) {
+			server.respond(503, "unavailable");
+			PooledConnector connector = new PooledConnector(1);
+			for (int i = 0; i < 3; i++) {
+				try {
+					connector.get(server.url("/search?term=" + i));
+					Assert.fail();
+				} catch (IOException expected) {
+					// continue
+				}
+			}
+			Assert.assertEquals(3, server.requests());
+			Assert.assertEquals(1, server.connections());
+		}
+	}
+
+}
@@ -0,0 +1,60 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RateLimitingConnectorTest {
+
+	private static final Connector ECHO = new Connector() {
+		@Override
+		public String get(String link) throws IOException {
+			return link;
+		}
+	};
+
+	@Test
+	public void pacesRequestsPerHost() throws IOException {
+		RateLimitingConnector connector = new RateLimitingConnector(ECHO, 20, 2);
+		long start = System.nanoTime();
+		for (int i = 0; i < 6; i++) {
+			Assert.assertEquals("https://itunes.apple.com/lookup?id=" + i, connector.get("https://itunes.apple.com/lookup?id=" + i));
+		}
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		Assert.assertTrue("elapsed " + elapsed, elapsed >= 180);
+
+		// a different host has its own bucket
+		start = System.nanoTime();
+		connector.get("https://rss.itunes.apple.com/api/v1/us/apple-music/new-music/all/10/explicit.json");
+		Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 40);
+
+		Assert.assertEquals(2, connector.getBuckets().size());
+		WaitStatistics statistics = connector.getBuckets().get("itunes.apple.com").getStatistics();
+		Assert.assertEquals(6, statistics.getAcquisitions());
+		Assert.assertEquals(4, statistics.getDelayedAcquisitions());
+		Assert.assertEquals(7, connector.getStatistics().getAcquisitions());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidRate() {
+		new RateLimitingConnector(ECHO, 0, 1);
+	}
+
+}
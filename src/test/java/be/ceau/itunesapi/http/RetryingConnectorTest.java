@@ -0,0 +1,125 @@
+/*
+	Copyright 2021 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.itunesapi.http;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RetryingConnectorTest {
+
+	/**
+	 * {@link Connector} throwing the given failures, then returning "ok"
+	 */
+	private static class FailingConnector implements Connector {
+
+		private final IOException[] failures;
+		private final AtomicInteger calls = new AtomicInteger();
+
+		FailingConnector(IOException... failures) {
+			this.failures = failures;
+		}
+
+		@Override
+		public String get(String link) throws IOException {
+			int call = calls.getAndIncrement();
+			if (call < failures.length) {
+				throw failures[call];
+			}
+			return "ok";
+		}
+
+	}
+
+	private static RetryingConnector retrying(Connector delegate) {
+		return new RetryingConnector(delegate).setBaseDelay(1, TimeUnit.MILLISECONDS);
+	}
+
+	@Test
+	public void retriesServerErrorAndTimeout() throws IOException {
+		FailingConnector delegate = new FailingConnector(
+				new HttpStatusException(503, "https://itunes.apple.com/search", null),
+				new SocketTimeoutException());
+		Assert.assertEquals("ok", retrying(delegate).get("https://itunes.apple.com/search"));
+		Assert.assertEquals(3, delegate.calls.get());
+	}
+
+	@Test
+	public void givesUpAfterMaxAttempts() {
+		FailingConnector delegate = new FailingConnector(
+				new HttpStatusException(403, "https://itunes.apple.com/search", "0"),
+				new HttpStatusException(403, "https://itunes.apple.com/search", "0"));
+		try {
+			retrying(delegate).setMaxAttempts(2).get("https://itunes.apple.com/search");
+			Assert.fail();
+		} catch (IOException e) {
+			Assert.assertEquals(FailureType.THROTTLED, FailureType.of(e));
+		}
+		Assert.assertEquals(2, delegate.calls.get());
+	}
+
+	@Test
+	public void doesNotRetryClientError() {
+		FailingConnector delegate = new FailingConnector(new HttpStatusException(400, "https://itunes.apple.com/search", null));
+		try {
+			retrying(delegate).get("https://itunes.apple.com/search");
+			Assert.fail();
+		} catch (IOException e) {
+			Assert.assertEquals(FailureType.CLIENT_ERROR, FailureType.of(e));
+		}
+		Assert.assertEquals(1, delegate.calls.get());
+	}
+
+	@Test
+	public void doesNotWaitBeyondMaxDelay() {
+		FailingConnector delegate = new FailingConnector(new HttpStatusException(503, "https://itunes.apple.com/search", "3600"));
+		try {
+			retrying(delegate).get("https://itunes.apple.com/search");
+			Assert.fail();
+		} catch (IOException e) {
+			Assert.assertTrue(e instanceof HttpStatusException);
+		}
+		Assert.assertEquals(1, delegate.calls.get());
+	}
+
+	@Test
+	public void budgetLimitsRetries() throws IOException {
+		RetryBudget budget = new RetryBudget(0, 1);
+		FailingConnector delegate = new FailingConnector(new IOException("reset"), new IOException("reset"));
+		RetryingConnector connector = retrying(delegate).setBudget(budget);
+		try {
+			connector.get("https://itunes.apple.com/search");
+			Assert.fail();
+		} catch (IOException e) {
+			Assert.assertEquals(FailureType.NETWORK, FailureType.of(e));
+		}
+		Assert.assertEquals(2, delegate.calls.get());
+		Assert.assertEquals(0, budget.getBalance(), 0);
+	}
+
+	@Test
+	public void retryAfter() {
+		Assert.assertEquals(120, new HttpStatusException(429, "", "120").getRetryAfter(TimeUnit.SECONDS));
+		Assert.assertEquals(0, new HttpStatusException(429, "", "Wed, 21 Oct 2015 07:28:00 GMT").getRetryAfter(TimeUnit.SECONDS));
+		Assert.assertEquals(-1, new HttpStatusException(429, "", "soon").getRetryAfter(TimeUnit.SECONDS));
+		Assert.assertEquals(-1, new HttpStatusException(429, "", null).getRetryAfter(TimeUnit.SECONDS));
+	}
+
+}
@@ -42,4 +42,52 @@ public class URLConnectorTest {
 		Assert.assertTrue(!appleDotCom.isEmpty());
 	}
 
+	@Test
+	public void gzip() throws IOException {
+		StringBuilder sb = new StringBuilder("{\"results\":[");
+		for (int i = 0; i < 200; i++) {
+			sb.append(i == 0 ? "" : ",").append("{\"longDescription\":\"lorem ipsum dolor sit amet\"}");
+		}
+		String body = sb.append("]}").toString();
+		try (LocalServer server = new LocalServer()) {
+			server.respond(200, body).gzip(true);
+			URLConnector connector = new URLConnector();
+			Assert.assertEquals(body, connector.get(server.url("/lookup")));
+			Assert.assertEquals(body.length(), connector.getBytesDecoded());
+			Assert.assertTrue(connector.getBytesReceived() < connector.getBytesDecoded() / 4);
+
+			URLConnector uncompressed = new URLConnector().setCompression(false);
+			Assert.assertEquals(body, uncompressed.get(server.url("/lookup")));
+			Assert.assertEquals(uncompressed.getBytesDecoded(), uncompressed.getBytesReceived());
+		}
+	}
+
+	@Test
+	public void revalidation() throws IOException {
+		try (LocalServer server = new LocalServer()) {
+			server.respond(200, "{\"feed\":{}}").etag("\"v1\"");
+			URLConnector connector = new URLConnector();
+
+			Revalidation first = new Revalidation(null, null);
+			Revalidation previous = first.attach();
+			try {
+				Assert.assertEquals("{\"feed\":{}}", connector.get(server.url("/feed")));
+			} finally {
+				Revalidation.restore(previous);
+			}
+			Assert.assertFalse(first.isNotModified());
+			Assert.assertEquals("\"v1\"", first.getResponseEtag());
+
+			Revalidation second = new Revalidation(first.getResponseEtag(), null);
+			previous = second.attach();
+			try {
+				Assert.assertEquals("", connector.get(server.url("/feed")));
+			} finally {
+				Revalidation.restore(previous);
+			}
+			Assert.assertTrue(second.isNotModified());
+			Assert.assertNull(Revalidation.current());
+		}
+	}
+
 }